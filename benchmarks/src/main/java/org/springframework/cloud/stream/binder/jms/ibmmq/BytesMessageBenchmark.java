@@ -0,0 +1,144 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Session;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.jms.support.converter.SimpleMessageConverter;
+
+/**
+ * Conversion of binary payloads to and from a {@link BytesMessage}: the generic
+ * {@link SimpleMessageConverter} against {@link IBMMQBytesMessageConverter}, with and
+ * without compression. Sending returns the body length, i.e. what would go over the
+ * channel and into the queue manager log.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BytesMessageBenchmark {
+
+	@Param({ "1024", "65536", "1048576" })
+	public int payloadSize;
+
+	/**
+	 * Repetitive JSON like text, or random bytes that don't compress.
+	 */
+	@Param({ "true", "false" })
+	public boolean compressible;
+
+	private final Session session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(),
+			new Class<?>[] { Session.class }, (proxy, method, args) -> {
+				if ("createBytesMessage".equals(method.getName())) {
+					return new InMemoryBytesMessage();
+				}
+				throw new UnsupportedOperationException(method.getName());
+			});
+
+	private final MessageConverter simpleConverter = new SimpleMessageConverter();
+
+	private final MessageConverter bytesConverter = new IBMMQBytesMessageConverter(0);
+
+	private final MessageConverter compressingConverter = new IBMMQBytesMessageConverter(64 * 1024);
+
+	private byte[] payload;
+
+	private ByteBuffer directPayload;
+
+	private BytesMessage received;
+
+	private BytesMessage receivedCompressed;
+
+	@Setup
+	public void setUp() throws JMSException {
+		payload = new byte[payloadSize];
+		if (compressible) {
+			byte[] record = "{\"orderId\":12345,\"status\":\"SHIPPED\",\"region\":\"EMEA\"},"
+					.getBytes(StandardCharsets.UTF_8);
+			for (int i = 0; i < payloadSize; i++) {
+				payload[i] = record[i % record.length];
+			}
+		}
+		else {
+			new Random(42).nextBytes(payload);
+		}
+
+		directPayload = ByteBuffer.allocateDirect(payloadSize);
+		directPayload.put(payload).flip();
+
+		received = (BytesMessage) bytesConverter.toMessage(payload, session);
+		received.reset();
+		receivedCompressed = (BytesMessage) new IBMMQBytesMessageConverter(1).toMessage(payload, session);
+		receivedCompressed.reset();
+	}
+
+	@Benchmark
+	public long simpleConverterArray() throws JMSException {
+		return ((BytesMessage) simpleConverter.toMessage(payload, session)).getBodyLength();
+	}
+
+	/**
+	 * A direct buffer has to be copied into an array before the generic converter can
+	 * write it.
+	 */
+	@Benchmark
+	public long simpleConverterDirectBuffer() throws JMSException {
+		ByteBuffer buffer = directPayload.duplicate();
+		byte[] copy = new byte[buffer.remaining()];
+		buffer.get(copy);
+		return ((BytesMessage) simpleConverter.toMessage(copy, session)).getBodyLength();
+	}
+
+	@Benchmark
+	public long bytesConverterArray() throws JMSException {
+		return ((BytesMessage) bytesConverter.toMessage(payload, session)).getBodyLength();
+	}
+
+	@Benchmark
+	public long bytesConverterDirectBuffer() throws JMSException {
+		return ((BytesMessage) bytesConverter.toMessage(directPayload, session)).getBodyLength();
+	}
+
+	@Benchmark
+	public long compressingConverterArray() throws JMSException {
+		return ((BytesMessage) compressingConverter.toMessage(payload, session)).getBodyLength();
+	}
+
+	@Benchmark
+	public Object simpleConverterReceive() throws JMSException {
+		received.reset();
+		return simpleConverter.fromMessage(received);
+	}
+
+	@Benchmark
+	public Object bytesConverterReceive() throws JMSException {
+		received.reset();
+		return bytesConverter.fromMessage(received);
+	}
+
+	@Benchmark
+	public Object bytesConverterReceiveCompressed() throws JMSException {
+		receivedCompressed.reset();
+		return bytesConverter.fromMessage(receivedCompressed);
+	}
+}
@@ -0,0 +1,109 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties.ConsumerExecution;
+import org.springframework.cloud.stream.provisioning.ConsumerDestination;
+
+/**
+ * Starts {@code bindings} batching consumers with {@code concurrency} threads each
+ * against {@link IdleConnectionFactory}, i.e. many mostly idle group queues, and
+ * reports the live platform threads, heap, resident set size (which includes thread
+ * stacks; Linux only) and receive calls for each {@link ConsumerExecution}.
+ *
+ * Not a JMH benchmark, as it measures resources held rather than time per operation:
+ *
+ * <pre>
+ * java -Xss1m -cp benchmarks/target/benchmarks.jar \
+ *     org.springframework.cloud.stream.binder.jms.ibmmq.ConsumerThreadsMeasurement [bindings] [concurrency] [seconds]
+ * </pre>
+ */
+public class ConsumerThreadsMeasurement {
+
+	public static void main(String[] args) throws Exception {
+		int bindings = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		long seconds = args.length > 2 ? Long.parseLong(args[2]) : 10;
+
+		System.out.printf("%d bindings x %d consumers, measured after %ds%n", bindings, concurrency, seconds);
+		System.out.printf("%-17s %15s %15s %15s %15s %15s%n", "execution", "platform threads", "peak threads",
+				"heap (MB)", "RSS (MB)", "receives/s");
+		for (ConsumerExecution execution : ConsumerExecution.values()) {
+			if (execution == ConsumerExecution.VIRTUAL_THREADS && !IBMMQThreads.isVirtualThreadsAvailable()) {
+				System.out.printf("%-17s %s%n", execution, "needs Java 21 or later");
+				continue;
+			}
+			measure(execution, bindings, concurrency, seconds);
+		}
+	}
+
+	private static void measure(ConsumerExecution execution, int bindings, int concurrency, long seconds)
+			throws InterruptedException {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+		IdleConnectionFactory connectionFactory = new IdleConnectionFactory();
+		IBMMQDestinationProperties destinationProperties = new IBMMQDestinationProperties();
+		destinationProperties.setConsumerExecution(execution);
+
+		System.gc();
+		threads.resetPeakThreadCount();
+		int threadsBefore = threads.getThreadCount();
+		long heapBefore = memory.getHeapMemoryUsage().getUsed();
+		long rssBefore = residentSetSize();
+
+		List<IBMMQBatchingConsumer> consumers = new ArrayList<>(bindings);
+		for (int i = 0; i < bindings; i++) {
+			String queueName = "group.queue." + i;
+			ConsumerDestination destination = () -> queueName;
+			IBMMQBatchingConsumer consumer = new IBMMQBatchingConsumer(connectionFactory, destination,
+					"dead.letter.queue", destinationProperties, message -> {
+					});
+			consumer.setConcurrency(concurrency);
+			consumer.start();
+			consumers.add(consumer);
+		}
+
+		long receivesBefore = connectionFactory.getReceives();
+		TimeUnit.SECONDS.sleep(seconds);
+		long receives = connectionFactory.getReceives() - receivesBefore;
+		System.gc();
+
+		System.out.printf("%-17s %15d %15d %15d %15d %15d%n", execution,
+				threads.getThreadCount() - threadsBefore,
+				threads.getPeakThreadCount() - threadsBefore,
+				(memory.getHeapMemoryUsage().getUsed() - heapBefore) / (1024 * 1024),
+				rssBefore >= 0 ? (residentSetSize() - rssBefore) / (1024 * 1024) : -1,
+				receives / seconds);
+
+		consumers.parallelStream().forEach(IBMMQBatchingConsumer::stop);
+	}
+
+	/**
+	 * Bytes resident, from {@code /proc/self/status}, or -1 if not available.
+	 */
+	private static long residentSetSize() {
+		Path status = Paths.get("/proc/self/status");
+		try {
+			for (String line : Files.readAllLines(status)) {
+				if (line.startsWith("VmRSS:")) {
+					return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+				}
+			}
+		}
+		catch (Exception e) {
+			// not on Linux
+		}
+
+		return -1;
+	}
+}
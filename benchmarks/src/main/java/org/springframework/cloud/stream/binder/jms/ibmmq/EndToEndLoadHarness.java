@@ -0,0 +1,146 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
+import org.springframework.cloud.stream.binder.ExtendedProducerProperties;
+import org.springframework.cloud.stream.binder.jms.config.JmsConsumerProperties;
+import org.springframework.cloud.stream.binder.jms.config.JmsProducerProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQConfigurationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties.BindingMode;
+import org.springframework.cloud.stream.provisioning.ConsumerDestination;
+import org.springframework.cloud.stream.provisioning.ProducerDestination;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * Drives a sender and a receiver binding, provisioned on an
+ * {@link IBMMQFakeQueueManager}, at a fixed rate for each {@link BindingMode} and
+ * reports the throughput and the latency percentiles from send to receipt.
+ *
+ * Latency is measured from when each message was due to be sent, so a sender that
+ * falls behind the rate shows up as latency rather than going unnoticed. The broker
+ * is an embedded ActiveMQ rather than a queue manager, so the results reflect the
+ * binder's own overhead (batching, conversion, subscriptions) rather than IBM MQ's.
+ *
+ * Not a JMH benchmark, as it measures latency distributions under a given load:
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar \
+ *     org.springframework.cloud.stream.binder.jms.ibmmq.EndToEndLoadHarness \
+ *     [rate] [seconds] [warmupSeconds] [producerBatchSize] [consumerBatchSize]
+ * </pre>
+ */
+public class EndToEndLoadHarness {
+
+	private static final String DUE_AT = "loadHarnessDueAt";
+
+	private static final String DESTINATION = "load";
+
+	private static final String GROUP = "receivers";
+
+	public static void main(String[] args) throws Exception {
+		int rate = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int warmupSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		int producerBatchSize = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+		int consumerBatchSize = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+
+		System.out.printf("%d msgs/s for %ds after %ds warm up, producer batches of %d, consumer batches of %d%n",
+				rate, seconds, warmupSeconds, producerBatchSize, consumerBatchSize);
+		System.out.printf("%-8s %10s %10s %12s %10s %10s %10s %10s%n", "mode", "sent", "received", "msgs/s",
+				"p50 (us)", "p99 (us)", "p999 (us)", "max (us)");
+		for (BindingMode bindingMode : BindingMode.values()) {
+			IBMMQDestinationProperties destinationProperties = new IBMMQDestinationProperties();
+			destinationProperties.setBindingMode(bindingMode);
+			destinationProperties.setProducerBatchSize(producerBatchSize);
+			destinationProperties.setConsumerBatchSize(consumerBatchSize);
+			run(destinationProperties, rate, seconds, warmupSeconds);
+		}
+	}
+
+	private static void run(IBMMQDestinationProperties destinationProperties, int rate, int seconds,
+			int warmupSeconds) throws Exception {
+		IBMMQFakeQueueManager queueManager = new IBMMQFakeQueueManager();
+		IBMMQConfigurationProperties configurationProperties = queueManager.configurationProperties();
+		configurationProperties.getDestinations().put(DESTINATION, destinationProperties);
+		IBMMQProvisioningProvider provisioningProvider = queueManager.provisioningProvider(configurationProperties);
+
+		ExtendedProducerProperties<JmsProducerProperties> producerProperties = new ExtendedProducerProperties<>(
+				new JmsProducerProperties());
+		producerProperties.setRequiredGroups(GROUP);
+		ProducerDestination producerDestination = provisioningProvider.provisionProducerDestination(DESTINATION,
+				producerProperties);
+		ConsumerDestination consumerDestination = provisioningProvider.provisionConsumerDestination(DESTINATION,
+				GROUP, new ExtendedConsumerProperties<>(new JmsConsumerProperties()));
+
+		long start = System.nanoTime();
+		long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+		long measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+		long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+
+		LatencyRecorder latencies = new LatencyRecorder();
+		IBMMQBatchingConsumer consumer = new IBMMQBatchingConsumer(queueManager.getConnectionFactory(),
+				consumerDestination, JmsConsumerProperties.DEFAULT_DLQ_NAME, destinationProperties, message -> {
+					long receivedAt = System.nanoTime();
+					@SuppressWarnings("unchecked")
+					List<Map<String, Object>> headers = (List<Map<String, Object>>) message.getHeaders()
+							.get(IBMMQBatchingConsumer.BATCH_HEADERS);
+					for (Map<String, Object> messageHeaders : headers) {
+						long dueAt = (Long) messageHeaders.get(DUE_AT);
+						if (dueAt >= measureFrom) {
+							latencies.record(receivedAt - dueAt);
+						}
+					}
+				});
+		IBMMQBatchingProducer producer = new IBMMQBatchingProducer(queueManager.getConnectionFactory(),
+				producerDestination, destinationProperties);
+		consumer.start();
+		producer.start();
+
+		AtomicInteger failed = new AtomicInteger();
+		int sent = 0;
+		byte[] payload = new byte[256];
+		try {
+			for (long dueAt = start; dueAt < measureUntil; dueAt += interval) {
+				long wait = dueAt - System.nanoTime();
+				if (wait > 0) {
+					LockSupport.parkNanos(wait);
+				}
+
+				producer.send(MessageBuilder.withPayload(payload).setHeader(DUE_AT, dueAt).build())
+						.whenComplete((result, failure) -> {
+							if (failure != null) {
+								failed.incrementAndGet();
+							}
+						});
+				if (dueAt >= measureFrom) {
+					sent++;
+				}
+			}
+
+			// wait for the stragglers
+			long drainUntil = System.currentTimeMillis() + 5000;
+			while (latencies.count() + failed.get() < sent && System.currentTimeMillis() < drainUntil) {
+				Thread.sleep(10);
+			}
+		}
+		finally {
+			producer.stop();
+			consumer.stop();
+			provisioningProvider.destroy();
+			queueManager.stop();
+		}
+
+		System.out.printf("%-8s %10d %10d %12.0f %10d %10d %10d %10d%n", destinationProperties.getBindingMode(), sent,
+				latencies.count(), (double) latencies.count() / seconds, latencies.percentile(0.5),
+				latencies.percentile(0.99), latencies.percentile(0.999), latencies.percentile(1.0));
+		if (failed.get() > 0) {
+			System.out.printf("%-8s %d message(s) could not be sent%n", "", failed.get());
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSContext;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.Topic;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for a connection factory to a queue manager whose queues are all empty.
+ * Like the MQ client, a receive with a timeout waits on a monitor for the whole
+ * timeout (so it pins the carrier of a virtual thread), whereas a receive without
+ * wait returns straight away.
+ */
+class IdleConnectionFactory implements ConnectionFactory {
+
+	private final AtomicLong receives = new AtomicLong();
+
+	@Override
+	public Connection createConnection() {
+		return proxy(Connection.class, (proxy, method, args) -> {
+			if (method.getName().equals("createSession")) {
+				return createSession();
+			}
+			return defaultValue(method.getReturnType());
+		});
+	}
+
+	@Override
+	public Connection createConnection(String userName, String password) {
+		return createConnection();
+	}
+
+	@Override
+	public JMSContext createContext() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public JMSContext createContext(String userName, String password) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public JMSContext createContext(String userName, String password, int sessionMode) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public JMSContext createContext(int sessionMode) {
+		throw new UnsupportedOperationException();
+	}
+
+	long getReceives() {
+		return receives.get();
+	}
+
+	private Session createSession() {
+		return proxy(Session.class, (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "createQueue":
+				String queueName = (String) args[0];
+				return proxy(Queue.class, (q, m, a) -> m.getName().equals("getQueueName") ? queueName
+						: defaultValue(m.getReturnType()));
+			case "createTopic":
+				String topicName = (String) args[0];
+				return proxy(Topic.class, (t, m, a) -> m.getName().equals("getTopicName") ? topicName
+						: defaultValue(m.getReturnType()));
+			case "createConsumer":
+				return createConsumer();
+			case "createProducer":
+				return proxy(MessageProducer.class, (p, m, a) -> defaultValue(m.getReturnType()));
+			default:
+				return defaultValue(method.getReturnType());
+			}
+		});
+	}
+
+	private MessageConsumer createConsumer() {
+		Object monitor = new Object();
+		return proxy(MessageConsumer.class, (proxy, method, args) -> {
+			if (method.getName().equals("receive")) {
+				receives.incrementAndGet();
+				long timeout = args != null ? (Long) args[0] : 0;
+				synchronized (monitor) {
+					monitor.wait(timeout);
+				}
+				return null;
+			}
+			if (method.getName().equals("receiveNoWait")) {
+				receives.incrementAndGet();
+				return null;
+			}
+			return defaultValue(method.getReturnType());
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance(IdleConnectionFactory.class.getClassLoader(), new Class<?>[] { type },
+				(proxy, method, args) -> {
+					if (method.getDeclaringClass() == Object.class) {
+						switch (method.getName()) {
+						case "equals":
+							return proxy == args[0];
+						case "hashCode":
+							return System.identityHashCode(proxy);
+						default:
+							return type.getSimpleName();
+						}
+					}
+					return handler.invoke(proxy, method, args);
+				});
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (type == boolean.class) {
+			return false;
+		}
+		if (type == int.class) {
+			return 0;
+		}
+		if (type == long.class) {
+			return 0L;
+		}
+		return null;
+	}
+}
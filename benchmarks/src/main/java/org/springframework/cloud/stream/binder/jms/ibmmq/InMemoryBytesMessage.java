@@ -0,0 +1,309 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.MessageFormatException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * In-memory {@link BytesMessage}. Like a message received from a queue manager it
+ * is readable after {@link #reset()}, and writes are copied into the body as the MQ
+ * client copies them into its buffer.
+ */
+class InMemoryBytesMessage extends InMemoryMessage implements BytesMessage {
+
+	private ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+	private DataOutputStream output = new DataOutputStream(body);
+
+	/**
+	 * The body as of the last {@link #reset()}, {@code null} once written to again.
+	 */
+	private byte[] bytes;
+
+	private DataInputStream input;
+
+	/**
+	 * Switch to reading the body from the start.
+	 */
+	@Override
+	public void reset() {
+		if (bytes == null) {
+			bytes = body.toByteArray();
+		}
+		input = new DataInputStream(new ByteArrayInputStream(bytes));
+	}
+
+	@Override
+	public long getBodyLength() {
+		return body.size();
+	}
+
+	@Override
+	public void clearBody() {
+		body = new ByteArrayOutputStream();
+		output = new DataOutputStream(body);
+		bytes = null;
+		input = null;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T getBody(Class<T> type) throws JMSException {
+		return (T) body.toByteArray();
+	}
+
+	@Override
+	public boolean readBoolean() throws JMSException {
+		try {
+			return input.readBoolean();
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public byte readByte() throws JMSException {
+		try {
+			return input.readByte();
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public int readUnsignedByte() throws JMSException {
+		try {
+			return input.readUnsignedByte();
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public short readShort() throws JMSException {
+		try {
+			return input.readShort();
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public int readUnsignedShort() throws JMSException {
+		try {
+			return input.readUnsignedShort();
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public char readChar() throws JMSException {
+		try {
+			return input.readChar();
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public int readInt() throws JMSException {
+		try {
+			return input.readInt();
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public long readLong() throws JMSException {
+		try {
+			return input.readLong();
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public float readFloat() throws JMSException {
+		try {
+			return input.readFloat();
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public double readDouble() throws JMSException {
+		try {
+			return input.readDouble();
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public String readUTF() throws JMSException {
+		try {
+			return input.readUTF();
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public int readBytes(byte[] value) throws JMSException {
+		return readBytes(value, value.length);
+	}
+
+	@Override
+	public int readBytes(byte[] value, int length) throws JMSException {
+		try {
+			return input.read(value, 0, length);
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public void writeBoolean(boolean value) throws JMSException {
+		bytes = null;
+		try {
+			output.writeBoolean(value);
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public void writeByte(byte value) throws JMSException {
+		bytes = null;
+		try {
+			output.writeByte(value);
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public void writeShort(short value) throws JMSException {
+		bytes = null;
+		try {
+			output.writeShort(value);
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public void writeChar(char value) throws JMSException {
+		bytes = null;
+		try {
+			output.writeChar(value);
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public void writeInt(int value) throws JMSException {
+		bytes = null;
+		try {
+			output.writeInt(value);
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public void writeLong(long value) throws JMSException {
+		bytes = null;
+		try {
+			output.writeLong(value);
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public void writeFloat(float value) throws JMSException {
+		bytes = null;
+		try {
+			output.writeFloat(value);
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public void writeDouble(double value) throws JMSException {
+		bytes = null;
+		try {
+			output.writeDouble(value);
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public void writeUTF(String value) throws JMSException {
+		bytes = null;
+		try {
+			output.writeUTF(value);
+		}
+		catch (IOException e) {
+			throw jmsException(e);
+		}
+	}
+
+	@Override
+	public void writeBytes(byte[] value) throws JMSException {
+		writeBytes(value, 0, value.length);
+	}
+
+	@Override
+	public void writeBytes(byte[] value, int offset, int length) throws JMSException {
+		bytes = null;
+		body.write(value, offset, length);
+	}
+
+	@Override
+	public void writeObject(Object value) throws JMSException {
+		if (!(value instanceof byte[])) {
+			throw new MessageFormatException("Only byte[] objects are supported");
+		}
+		writeBytes((byte[]) value);
+	}
+
+	private JMSException jmsException(IOException e) {
+		JMSException exception = new JMSException(e instanceof EOFException ? "End of message body" : e.getMessage());
+		exception.setLinkedException(e);
+		return exception;
+	}
+}
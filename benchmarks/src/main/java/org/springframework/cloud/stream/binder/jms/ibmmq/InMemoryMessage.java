@@ -0,0 +1,294 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageFormatException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Headers and properties of an in-memory JMS {@link Message}, standing in for the MQ
+ * client's messages so that conversion can be measured without a queue manager.
+ * Properties are stored as given; reading one as another type only supports the
+ * conversions the benchmarks need.
+ */
+abstract class InMemoryMessage implements Message {
+
+	private final Map<String, Object> properties = new HashMap<>();
+
+	private String messageId;
+
+	private long timestamp;
+
+	private String correlationId;
+
+	private Destination replyTo;
+
+	private Destination destination;
+
+	private int deliveryMode = javax.jms.DeliveryMode.PERSISTENT;
+
+	private boolean redelivered;
+
+	private String type;
+
+	private long expiration;
+
+	private long deliveryTime;
+
+	private int priority = 4;
+
+	@Override
+	public String getJMSMessageID() {
+		return messageId;
+	}
+
+	@Override
+	public void setJMSMessageID(String id) {
+		this.messageId = id;
+	}
+
+	@Override
+	public long getJMSTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public void setJMSTimestamp(long timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	@Override
+	public byte[] getJMSCorrelationIDAsBytes() {
+		return correlationId != null ? correlationId.getBytes(StandardCharsets.UTF_8) : null;
+	}
+
+	@Override
+	public void setJMSCorrelationIDAsBytes(byte[] correlationId) {
+		this.correlationId = correlationId != null ? new String(correlationId, StandardCharsets.UTF_8) : null;
+	}
+
+	@Override
+	public void setJMSCorrelationID(String correlationId) {
+		this.correlationId = correlationId;
+	}
+
+	@Override
+	public String getJMSCorrelationID() {
+		return correlationId;
+	}
+
+	@Override
+	public Destination getJMSReplyTo() {
+		return replyTo;
+	}
+
+	@Override
+	public void setJMSReplyTo(Destination replyTo) {
+		this.replyTo = replyTo;
+	}
+
+	@Override
+	public Destination getJMSDestination() {
+		return destination;
+	}
+
+	@Override
+	public void setJMSDestination(Destination destination) {
+		this.destination = destination;
+	}
+
+	@Override
+	public int getJMSDeliveryMode() {
+		return deliveryMode;
+	}
+
+	@Override
+	public void setJMSDeliveryMode(int deliveryMode) {
+		this.deliveryMode = deliveryMode;
+	}
+
+	@Override
+	public boolean getJMSRedelivered() {
+		return redelivered;
+	}
+
+	@Override
+	public void setJMSRedelivered(boolean redelivered) {
+		this.redelivered = redelivered;
+	}
+
+	@Override
+	public String getJMSType() {
+		return type;
+	}
+
+	@Override
+	public void setJMSType(String type) {
+		this.type = type;
+	}
+
+	@Override
+	public long getJMSExpiration() {
+		return expiration;
+	}
+
+	@Override
+	public void setJMSExpiration(long expiration) {
+		this.expiration = expiration;
+	}
+
+	@Override
+	public long getJMSDeliveryTime() {
+		return deliveryTime;
+	}
+
+	@Override
+	public void setJMSDeliveryTime(long deliveryTime) {
+		this.deliveryTime = deliveryTime;
+	}
+
+	@Override
+	public int getJMSPriority() {
+		return priority;
+	}
+
+	@Override
+	public void setJMSPriority(int priority) {
+		this.priority = priority;
+	}
+
+	@Override
+	public void clearProperties() {
+		properties.clear();
+	}
+
+	@Override
+	public boolean propertyExists(String name) {
+		return properties.containsKey(name);
+	}
+
+	@Override
+	public boolean getBooleanProperty(String name) throws JMSException {
+		Object value = properties.get(name);
+		return value instanceof Boolean ? (Boolean) value : Boolean.valueOf(String.valueOf(value));
+	}
+
+	@Override
+	public byte getByteProperty(String name) throws JMSException {
+		return (byte) getLongProperty(name);
+	}
+
+	@Override
+	public short getShortProperty(String name) throws JMSException {
+		return (short) getLongProperty(name);
+	}
+
+	@Override
+	public int getIntProperty(String name) throws JMSException {
+		return (int) getLongProperty(name);
+	}
+
+	@Override
+	public long getLongProperty(String name) throws JMSException {
+		Object value = properties.get(name);
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+		if (value instanceof String) {
+			return Long.parseLong((String) value);
+		}
+		throw new MessageFormatException(String.format("Property '%s' is not a number", name));
+	}
+
+	@Override
+	public float getFloatProperty(String name) throws JMSException {
+		return (float) getDoubleProperty(name);
+	}
+
+	@Override
+	public double getDoubleProperty(String name) throws JMSException {
+		Object value = properties.get(name);
+		if (value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
+		if (value instanceof String) {
+			return Double.parseDouble((String) value);
+		}
+		throw new MessageFormatException(String.format("Property '%s' is not a number", name));
+	}
+
+	@Override
+	public String getStringProperty(String name) {
+		Object value = properties.get(name);
+		return value != null ? value.toString() : null;
+	}
+
+	@Override
+	public Object getObjectProperty(String name) {
+		return properties.get(name);
+	}
+
+	@Override
+	public Enumeration<String> getPropertyNames() {
+		return Collections.enumeration(properties.keySet());
+	}
+
+	@Override
+	public void setBooleanProperty(String name, boolean value) {
+		properties.put(name, value);
+	}
+
+	@Override
+	public void setByteProperty(String name, byte value) {
+		properties.put(name, value);
+	}
+
+	@Override
+	public void setShortProperty(String name, short value) {
+		properties.put(name, value);
+	}
+
+	@Override
+	public void setIntProperty(String name, int value) {
+		properties.put(name, value);
+	}
+
+	@Override
+	public void setLongProperty(String name, long value) {
+		properties.put(name, value);
+	}
+
+	@Override
+	public void setFloatProperty(String name, float value) {
+		properties.put(name, value);
+	}
+
+	@Override
+	public void setDoubleProperty(String name, double value) {
+		properties.put(name, value);
+	}
+
+	@Override
+	public void setStringProperty(String name, String value) {
+		properties.put(name, value);
+	}
+
+	@Override
+	public void setObjectProperty(String name, Object value) {
+		properties.put(name, value);
+	}
+
+	@Override
+	public void acknowledge() {
+	}
+
+	@Override
+	public boolean isBodyAssignableTo(@SuppressWarnings("rawtypes") Class type) {
+		return false;
+	}
+}
@@ -0,0 +1,49 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.ibm.mq.pcf.PCFMessage;
+
+/**
+ * Stand-in for the PCF admin connection: accepts every command after a fixed
+ * per-call latency, simulating the round trip to the command server.
+ */
+class LatencyPCFAgentPool extends IBMMQPCFAgentPool {
+
+	private static final PCFMessage[] NO_RESPONSES = new PCFMessage[0];
+
+	private final long latencyNanos;
+
+	private final AtomicInteger commands = new AtomicInteger();
+
+	LatencyPCFAgentPool(long latencyMicros) {
+		super(() -> {
+			throw new UnsupportedOperationException("No queue manager behind the latency stand-in");
+		}, 1, 0, 0);
+		this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+	}
+
+	@Override
+	public PCFMessage[] send(PCFMessage request) {
+		commands.incrementAndGet();
+		if (latencyNanos > 0) {
+			LockSupport.parkNanos(latencyNanos);
+		}
+		return NO_RESPONSES;
+	}
+
+	@Override
+	public PooledAgent borrow() {
+		return null;
+	}
+
+	@Override
+	public void giveBack(PooledAgent agent) {
+	}
+
+	int getCommands() {
+		return commands.get();
+	}
+}
@@ -0,0 +1,40 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import java.util.Arrays;
+
+/**
+ * Records latencies and reports percentiles over all of them, exactly rather than
+ * from buckets, which is affordable for the message counts of a harness run.
+ */
+class LatencyRecorder {
+
+	private long[] latencies = new long[1024];
+
+	private int count;
+
+	synchronized void record(long latencyNanos) {
+		if (count == latencies.length) {
+			latencies = Arrays.copyOf(latencies, count * 2);
+		}
+		latencies[count++] = latencyNanos;
+	}
+
+	synchronized int count() {
+		return count;
+	}
+
+	/**
+	 * Latency, in microseconds, that the given fraction (e.g. 0.999) of the recorded
+	 * latencies did not exceed.
+	 */
+	synchronized long percentile(double fraction) {
+		if (count == 0) {
+			return 0;
+		}
+
+		long[] sorted = Arrays.copyOf(latencies, count);
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(fraction * count) - 1;
+		return sorted[Math.max(0, Math.min(index, count - 1))] / 1000;
+	}
+}
@@ -0,0 +1,81 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
+import org.springframework.cloud.stream.binder.ExtendedProducerProperties;
+import org.springframework.cloud.stream.binder.jms.config.JmsConsumerProperties;
+import org.springframework.cloud.stream.binder.jms.config.JmsProducerProperties;
+import org.springframework.cloud.stream.binder.jms.utils.Base64UrlNamingStrategy;
+import org.springframework.cloud.stream.binder.jms.utils.DestinationNameResolver;
+import org.springframework.cloud.stream.binder.jms.utils.DestinationNames;
+
+/**
+ * Object name sanitising and the destination name resolution it is applied to.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class NamingBenchmark {
+
+	@Param({ "orders", "th!s->>-is-a-g-r$up-that-is-r&eally-r3*lly-inV@lid-and-longer-than-48-characters" })
+	public String name;
+
+	private final DestinationNameResolver destinationNameResolver = new DestinationNameResolver(
+			new Base64UrlNamingStrategy("anonymous."));
+
+	private ExtendedProducerProperties<JmsProducerProperties> producerProperties;
+
+	private ExtendedConsumerProperties<JmsConsumerProperties> consumerProperties;
+
+	@Setup
+	public void setUp() {
+		producerProperties = new ExtendedProducerProperties<>(new JmsProducerProperties());
+		producerProperties.setRequiredGroups("group0", "group1", "group2", "group3");
+		consumerProperties = new ExtendedConsumerProperties<>(new JmsConsumerProperties());
+	}
+
+	@Benchmark
+	public String sanitiseObjectName() {
+		return IBMMQProvisioningProvider.sanitiseObjectName(name);
+	}
+
+	@Benchmark
+	public void resolveAndSanitiseProducerNames(Blackhole blackhole) {
+		Collection<DestinationNames> destinationNames = destinationNameResolver
+				.resolveTopicAndQueueNameForRequiredGroups(name, producerProperties);
+		for (DestinationNames names : destinationNames) {
+			String topicName = IBMMQProvisioningProvider.sanitiseObjectName(names.getTopicName());
+			blackhole.consume(topicName);
+			for (String group : names.getGroupNames()) {
+				blackhole.consume(IBMMQProvisioningProvider
+						.sanitiseObjectName(String.format("%s.%s", topicName, group)));
+			}
+		}
+	}
+
+	@Benchmark
+	public String resolveAndSanitiseConsumerName() {
+		String topicName = IBMMQProvisioningProvider
+				.sanitiseObjectName(destinationNameResolver.resolveQueueNameForInputGroup(name, consumerProperties));
+		String queueName = destinationNameResolver.resolveQueueNameForInputGroup("group0", consumerProperties);
+		return IBMMQProvisioningProvider.sanitiseObjectName(String.format("%s.%s", topicName, queueName));
+	}
+}
@@ -0,0 +1,109 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import java.util.concurrent.TimeUnit;
+
+import com.ibm.mq.jms.MQConnectionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
+import org.springframework.cloud.stream.binder.ExtendedProducerProperties;
+import org.springframework.cloud.stream.binder.jms.config.JmsConsumerProperties;
+import org.springframework.cloud.stream.binder.jms.config.JmsProducerProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQConfigurationProperties;
+import org.springframework.cloud.stream.binder.jms.utils.Base64UrlNamingStrategy;
+import org.springframework.cloud.stream.binder.jms.utils.DestinationNameResolver;
+import org.springframework.cloud.stream.provisioning.ConsumerDestination;
+import org.springframework.cloud.stream.provisioning.ProducerDestination;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+/**
+ * Provisioning time of {@link IBMMQProvisioningProvider} against a PCF stand-in with
+ * a configurable per-command latency. A fresh provider (and therefore an empty object
+ * inventory) is used for every invocation, so every object is really "created".
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ProvisioningBenchmark {
+
+	@Param({ "1", "16" })
+	public int partitions;
+
+	@Param({ "1", "4" })
+	public int groups;
+
+	@Param({ "0", "500" })
+	public long pcfLatencyMicros;
+
+	@Param({ "1", "8" })
+	public int provisioningConcurrency;
+
+	private final DestinationNameResolver destinationNameResolver = new DestinationNameResolver(
+			new Base64UrlNamingStrategy("anonymous."));
+
+	private IBMMQProvisioningProvider provisioningProvider;
+
+	private ExtendedProducerProperties<JmsProducerProperties> producerProperties;
+
+	private ExtendedConsumerProperties<JmsConsumerProperties> consumerProperties;
+
+	@Setup(Level.Trial)
+	public void setUpProperties() {
+		producerProperties = new ExtendedProducerProperties<>(new JmsProducerProperties());
+		if (partitions > 1) {
+			producerProperties.setPartitionCount(partitions);
+			producerProperties.setPartitionKeyExpression(new SpelExpressionParser().parseExpression("payload"));
+		}
+		String[] requiredGroups = new String[groups];
+		for (int i = 0; i < groups; i++) {
+			requiredGroups[i] = "group" + i;
+		}
+		producerProperties.setRequiredGroups(requiredGroups);
+
+		consumerProperties = new ExtendedConsumerProperties<>(new JmsConsumerProperties());
+	}
+
+	@Setup(Level.Invocation)
+	public void setUpProvider() {
+		IBMMQConfigurationProperties configurationProperties = new IBMMQConfigurationProperties();
+		configurationProperties.setQueueManager("BENCHMARK");
+		configurationProperties.setInventoryPrefetch(false);
+		configurationProperties.setProvisioningConcurrency(provisioningConcurrency);
+
+		IBMMQRequests requests = new IBMMQRequests(new MQConnectionFactory(), configurationProperties,
+				new LatencyPCFAgentPool(pcfLatencyMicros));
+		provisioningProvider = new IBMMQProvisioningProvider(requests, configurationProperties,
+				destinationNameResolver);
+	}
+
+	@TearDown(Level.Invocation)
+	public void tearDownProvider() {
+		provisioningProvider.destroy();
+	}
+
+	@Benchmark
+	public ProducerDestination provisionProducerDestination() {
+		return provisioningProvider.provisionProducerDestination("benchmark.destination", producerProperties);
+	}
+
+	@Benchmark
+	public ConsumerDestination provisionConsumerDestination() {
+		return provisioningProvider.provisionConsumerDestination("benchmark.destination", "group0",
+				consumerProperties);
+	}
+}
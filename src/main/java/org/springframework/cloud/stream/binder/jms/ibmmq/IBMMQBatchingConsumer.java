@@ -0,0 +1,400 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties;
+import org.springframework.cloud.stream.provisioning.ConsumerDestination;
+import org.springframework.context.Lifecycle;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.jms.support.converter.MessagingMessageConverter;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.Assert;
+
+/**
+ * Receives messages from a provisioned {@link ConsumerDestination} in batches of up to
+ * {@code consumerBatchSize} messages, waiting at most {@code consumerBatchTimeout}
+ * milliseconds for a batch to fill up. Each batch is received in one transacted
+ * session and handed to the {@link MessageHandler} as a single message whose payload
+ * is the {@code List} of message payloads; the headers of each message are available,
+ * in the same order, under the {@link #BATCH_HEADERS} header.
+ *
+ * If the handler accepts the batch, the whole batch is committed. If it fails, each
+ * message of the batch is handed to the handler on its own (still within the same
+ * transaction), up to {@code consumerMaxAttempts} times, and any message that keeps
+ * failing is sent to the dead letter queue, so one poison message does not cause the
+ * whole batch to be redelivered over and over. Handlers must therefore tolerate seeing
+ * messages of a failed batch again. Messages that can't be converted are sent to the
+ * dead letter queue straight away.
+ *
+ * Each consumer runs on its own thread, a virtual thread if the destination's
+ * {@code consumerExecution} asks for it (see {@link IBMMQThreads}).
+ */
+public class IBMMQBatchingConsumer implements Lifecycle {
+
+	/**
+	 * Header holding the {@code List} of header maps of the messages in the batch.
+	 */
+	public static final String BATCH_HEADERS = "ibmmq_batchHeaders";
+
+	private static final Logger logger = LoggerFactory.getLogger(IBMMQBatchingConsumer.class);
+
+	private final ConnectionFactory connectionFactory;
+
+	private final ConsumerDestination consumerDestination;
+
+	private final String deadLetterQueueName;
+
+	private final IBMMQDestinationProperties destinationProperties;
+
+	private final MessageHandler messageHandler;
+
+	private final IBMMQDestinationFactory destinationFactory;
+
+	private MessageConverter messageConverter = new MessagingMessageConverter(new IBMMQBytesMessageConverter(0));
+
+	private int concurrency = 1;
+
+	/**
+	 * Milliseconds to wait before reconnecting after a JMS failure.
+	 */
+	private long recoveryInterval = 5000;
+
+	private CompletableFuture<?> provisioned = CompletableFuture.completedFuture(null);
+
+	private volatile boolean running;
+
+	/**
+	 * Whether to poll rather than wait in the MQ client, which would pin the carrier
+	 * thread of a virtual thread.
+	 */
+	private boolean virtualThreads;
+
+	private final List<Thread> consumerThreads = new ArrayList<>();
+
+	private final AtomicInteger batchedMessages = new AtomicInteger();
+
+	/**
+	 * The same instance is needed to deregister from the reconnect listener.
+	 */
+	private final IntSupplier inFlight = this::getInFlight;
+
+	private IBMMQReconnectListener reconnectListener;
+
+	public IBMMQBatchingConsumer(ConnectionFactory connectionFactory, ConsumerDestination consumerDestination,
+			String deadLetterQueueName, IBMMQDestinationProperties destinationProperties,
+			MessageHandler messageHandler) {
+		Assert.isTrue(destinationProperties.getConsumerBatchSize() > 0, "'consumerBatchSize' must be greater than zero");
+
+		this.connectionFactory = connectionFactory;
+		this.consumerDestination = consumerDestination;
+		this.deadLetterQueueName = deadLetterQueueName;
+		this.destinationProperties = destinationProperties;
+		this.messageHandler = messageHandler;
+		this.destinationFactory = new IBMMQDestinationFactory(connectionFactory);
+	}
+
+	public void setMessageConverter(MessageConverter messageConverter) {
+		this.messageConverter = messageConverter;
+	}
+
+	/**
+	 * Number of threads, each with its own session, receiving batches.
+	 */
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public void setRecoveryInterval(long recoveryInterval) {
+		this.recoveryInterval = recoveryInterval;
+	}
+
+	/**
+	 * Only start receiving once the destination has been provisioned, e.g. as told by
+	 * {@link IBMMQProvisioningProvider#whenProvisioned(Object)}. Nothing is received if
+	 * provisioning fails.
+	 */
+	public void setProvisioned(CompletableFuture<?> provisioned) {
+		this.provisioned = provisioned;
+	}
+
+	/**
+	 * Messages received but not yet committed, across all threads, counted by the
+	 * {@link IBMMQReconnectListener} of the connection factory while running.
+	 */
+	public int getInFlight() {
+		return this.batchedMessages.get();
+	}
+
+	@Override
+	public synchronized void start() {
+		if (this.running) {
+			return;
+		}
+
+		this.running = true;
+		this.reconnectListener = IBMMQReconnectListener.of(this.connectionFactory);
+		if (this.reconnectListener != null) {
+			this.reconnectListener.addInFlight(this.inFlight);
+		}
+		this.virtualThreads = IBMMQThreads.isVirtual(this.destinationProperties);
+		ThreadFactory threadFactory = IBMMQThreads.threadFactory(
+				String.format("ibmmq-batching-consumer-%s-", this.consumerDestination.getName()),
+				this.destinationProperties);
+		for (int i = 0; i < this.concurrency; i++) {
+			Thread thread = threadFactory.newThread(this::receiveBatches);
+			thread.start();
+			this.consumerThreads.add(thread);
+		}
+	}
+
+	/**
+	 * Stop receiving; the batch currently being handled is completed first.
+	 */
+	@Override
+	public synchronized void stop() {
+		if (!this.running) {
+			return;
+		}
+
+		this.running = false;
+		for (Thread thread : this.consumerThreads) {
+			try {
+				thread.join(this.destinationProperties.getConsumerBatchTimeout() + TimeUnit.SECONDS.toMillis(30));
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		this.consumerThreads.clear();
+		if (this.reconnectListener != null) {
+			this.reconnectListener.removeInFlight(this.inFlight);
+		}
+		this.destinationFactory.close();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	private void receiveBatches() {
+		try {
+			awaitProvisioned();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		catch (ExecutionException e) {
+			logger.error(String.format("Could not provision '%s', not receiving from it",
+					this.consumerDestination.getName()), e.getCause());
+			return;
+		}
+
+		while (this.running) {
+			Connection connection = null;
+			Session session = null;
+			boolean failed = false;
+			try {
+				connection = this.connectionFactory.createConnection();
+				session = connection.createSession(true, Session.SESSION_TRANSACTED);
+				Queue queue = this.destinationFactory.createQueue(this.consumerDestination.getName(),
+						this.destinationProperties);
+				MessageConsumer consumer = session.createConsumer(queue);
+				MessageProducer deadLetterProducer = session
+						.createProducer(this.destinationFactory.createQueue(this.deadLetterQueueName,
+								new IBMMQDestinationProperties()));
+				connection.start();
+
+				while (this.running) {
+					List<javax.jms.Message> batch = receiveBatch(consumer);
+					if (!batch.isEmpty()) {
+						this.batchedMessages.addAndGet(batch.size());
+						try {
+							handleBatch(session, deadLetterProducer, batch);
+						}
+						finally {
+							this.batchedMessages.addAndGet(-batch.size());
+						}
+					}
+				}
+			}
+			catch (JMSException | RuntimeException e) {
+				logger.error(String.format("Batch consumer for '%s' failed, reconnecting in %dms",
+						this.consumerDestination.getName(), this.recoveryInterval), e);
+				failed = true;
+			}
+			finally {
+				JmsUtils.closeSession(session);
+				JmsUtils.closeConnection(connection);
+			}
+
+			if (failed) {
+				sleep(this.recoveryInterval);
+			}
+		}
+	}
+
+	/**
+	 * Wait for the destination to be provisioned, or for the consumer to be stopped.
+	 */
+	private void awaitProvisioned() throws InterruptedException, ExecutionException {
+		while (this.running) {
+			try {
+				this.provisioned.get(100, TimeUnit.MILLISECONDS);
+				return;
+			}
+			catch (TimeoutException e) {
+				// check whether still running
+			}
+		}
+	}
+
+	private List<javax.jms.Message> receiveBatch(MessageConsumer consumer) throws JMSException {
+		List<javax.jms.Message> batch = new ArrayList<>(this.destinationProperties.getConsumerBatchSize());
+
+		long deadline = System.currentTimeMillis() + this.destinationProperties.getConsumerBatchTimeout();
+		while (batch.size() < this.destinationProperties.getConsumerBatchSize()) {
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0) {
+				break;
+			}
+
+			javax.jms.Message message = this.virtualThreads ? poll(consumer, remaining)
+					: consumer.receive(remaining);
+			if (message == null) {
+				break;
+			}
+			batch.add(message);
+		}
+
+		return batch;
+	}
+
+	/**
+	 * Poll for a message with an exponential back off, sleeping (which unmounts a
+	 * virtual thread) in between.
+	 */
+	private javax.jms.Message poll(MessageConsumer consumer, long timeout) throws JMSException {
+		long deadline = System.currentTimeMillis() + timeout;
+		long backoff = 1;
+		while (this.running) {
+			javax.jms.Message message = consumer.receiveNoWait();
+			long remaining = deadline - System.currentTimeMillis();
+			if (message != null || remaining <= 0) {
+				return message;
+			}
+
+			sleep(Math.min(backoff, remaining));
+			backoff = Math.min(backoff * 2, this.destinationProperties.getIdleReceiveBackoff());
+		}
+
+		return null;
+	}
+
+	private void handleBatch(Session session, MessageProducer deadLetterProducer, List<javax.jms.Message> batch)
+			throws JMSException {
+		List<javax.jms.Message> converted = new ArrayList<>(batch.size());
+		List<Message<?>> messages = new ArrayList<>(batch.size());
+		for (javax.jms.Message message : batch) {
+			try {
+				messages.add((Message<?>) this.messageConverter.fromMessage(message));
+				converted.add(message);
+			}
+			catch (JMSException | RuntimeException e) {
+				logger.error(String.format("Message from '%s' could not be converted, sending it to '%s'",
+						this.consumerDestination.getName(), this.deadLetterQueueName), e);
+				deadLetterProducer.send(message);
+			}
+		}
+
+		if (messages.isEmpty()) {
+			session.commit();
+			return;
+		}
+
+		try {
+			this.messageHandler.handleMessage(toBatchMessage(messages));
+			session.commit();
+			return;
+		}
+		catch (RuntimeException e) {
+			logger.warn(String.format("Batch of %d message(s) from '%s' failed, retrying messages individually",
+					messages.size(), this.consumerDestination.getName()), e);
+		}
+
+		for (int i = 0; i < messages.size(); i++) {
+			if (!handleIndividually(messages.subList(i, i + 1))) {
+				deadLetterProducer.send(converted.get(i));
+			}
+		}
+		session.commit();
+	}
+
+	/**
+	 * Hand a single message batch to the handler, up to {@code consumerMaxAttempts}
+	 * times.
+	 * @return whether the handler accepted it
+	 */
+	private boolean handleIndividually(List<Message<?>> message) {
+		for (int attempt = 1;; attempt++) {
+			try {
+				this.messageHandler.handleMessage(toBatchMessage(message));
+				return true;
+			}
+			catch (RuntimeException e) {
+				if (attempt >= this.destinationProperties.getConsumerMaxAttempts()) {
+					logger.error(String.format("Message from '%s' failed %d time(s), sending it to '%s'",
+							this.consumerDestination.getName(), attempt, this.deadLetterQueueName), e);
+					return false;
+				}
+				logger.warn(String.format("Message from '%s' failed, attempt %d of %d",
+						this.consumerDestination.getName(), attempt,
+						this.destinationProperties.getConsumerMaxAttempts()), e);
+			}
+		}
+	}
+
+	private Message<List<Object>> toBatchMessage(List<Message<?>> messages) {
+		List<Object> payloads = new ArrayList<>(messages.size());
+		List<Map<String, Object>> headers = new ArrayList<>(messages.size());
+		for (Message<?> message : messages) {
+			payloads.add(message.getPayload());
+			headers.add(message.getHeaders());
+		}
+
+		return MessageBuilder.withPayload(payloads).setHeader(BATCH_HEADERS, headers).build();
+	}
+
+	private void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.running = false;
+		}
+	}
+}
@@ -0,0 +1,437 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.stream.binder.BinderHeaders;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties;
+import org.springframework.cloud.stream.provisioning.ProducerDestination;
+import org.springframework.context.Lifecycle;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.jms.support.converter.MessagingMessageConverter;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
+import org.springframework.util.Assert;
+
+/**
+ * Sends messages to a provisioned {@link ProducerDestination} in transacted batches,
+ * committing after {@code producerBatchSize} messages or {@code producerBatchLinger}
+ * milliseconds, whichever comes first. Each commit is a single queue manager log
+ * write for the whole batch instead of one per message.
+ *
+ * A single sender thread owns the JMS session. {@link #send(Message)} queues the
+ * message and returns a future that completes once the batch containing it has been
+ * committed, or completes exceptionally with the failure for that particular
+ * message (a failed send, or the failed commit of its batch). When a message can't be
+ * sent its batch is rolled back and the other messages are sent again without it.
+ * When used as a {@link MessageHandler} the caller blocks until its message is
+ * committed.
+ *
+ * The binder's own producer bindings don't batch: create a batching producer from the
+ * {@link ProducerDestination} returned by the provisioner to use it.
+ */
+public class IBMMQBatchingProducer implements MessageHandler, Lifecycle {
+
+	private static final Logger logger = LoggerFactory.getLogger(IBMMQBatchingProducer.class);
+
+	private final ConnectionFactory connectionFactory;
+
+	private final ProducerDestination producerDestination;
+
+	private final IBMMQDestinationProperties destinationProperties;
+
+	private final IBMMQDestinationFactory destinationFactory;
+
+	private final BlockingQueue<PendingMessage> pendingMessages;
+
+	private final Map<String, Destination> destinations = new HashMap<>();
+
+	private MessageConverter messageConverter;
+
+	private CompletableFuture<?> provisioned = CompletableFuture.completedFuture(null);
+
+	private volatile boolean running;
+
+	private Thread senderThread;
+
+	/**
+	 * Size of the batch being sent and not yet committed.
+	 */
+	private volatile int batchSize;
+
+	/**
+	 * The same instance is needed to deregister from the reconnect listener.
+	 */
+	private final IntSupplier inFlight = this::getInFlight;
+
+	private IBMMQReconnectListener reconnectListener;
+
+	private Connection connection;
+
+	private Session session;
+
+	private MessageProducer producer;
+
+	public IBMMQBatchingProducer(ConnectionFactory connectionFactory, ProducerDestination producerDestination,
+			IBMMQDestinationProperties destinationProperties) {
+		Assert.isTrue(destinationProperties.getProducerBatchSize() > 0, "'producerBatchSize' must be greater than zero");
+		// compressed messages are flagged with a JMS property, which native MQ messages don't carry
+		Assert.isTrue(destinationProperties.getCompressionThreshold() == 0
+				|| destinationProperties.getTargetClient() != IBMMQDestinationProperties.TargetClient.MQ,
+				"'compressionThreshold' cannot be used with the MQ 'targetClient'");
+
+		this.connectionFactory = connectionFactory;
+		this.producerDestination = producerDestination;
+		this.destinationProperties = destinationProperties;
+		this.destinationFactory = new IBMMQDestinationFactory(connectionFactory);
+		this.messageConverter = new MessagingMessageConverter(
+				new IBMMQBytesMessageConverter(destinationProperties.getCompressionThreshold()));
+		// bounded so that senders are held back when the queue manager can't keep up
+		this.pendingMessages = new LinkedBlockingQueue<>(destinationProperties.getProducerBatchSize() * 4);
+	}
+
+	public void setMessageConverter(MessageConverter messageConverter) {
+		this.messageConverter = messageConverter;
+	}
+
+	/**
+	 * Hold back sending until the destination has been provisioned, e.g. as told by
+	 * {@link IBMMQProvisioningProvider#whenProvisioned(Object)}. Messages are queued
+	 * meanwhile, and failed if provisioning fails.
+	 */
+	public void setProvisioned(CompletableFuture<?> provisioned) {
+		this.provisioned = provisioned;
+	}
+
+	/**
+	 * Queue the message for the next batch, blocking while the queue of pending
+	 * messages is full.
+	 */
+	public CompletableFuture<Void> send(Message<?> message) {
+		Assert.state(this.running, "Batching producer is not running");
+
+		PendingMessage pendingMessage = new PendingMessage(message);
+		try {
+			this.pendingMessages.put(pendingMessage);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			pendingMessage.future.completeExceptionally(e);
+		}
+
+		// the sender thread has given up on a destination that could not be provisioned
+		if (this.provisioned.isCompletedExceptionally() && this.pendingMessages.remove(pendingMessage)) {
+			this.provisioned.whenComplete((result, failure) -> pendingMessage.future.completeExceptionally(failure));
+		}
+		// stopped while queueing, so the sender thread may have drained the queue already
+		else if (!this.running && this.pendingMessages.remove(pendingMessage)) {
+			pendingMessage.future.completeExceptionally(new IllegalStateException("Batching producer stopped"));
+		}
+
+		return pendingMessage.future;
+	}
+
+	/**
+	 * Messages queued or sent but not yet committed, counted by the
+	 * {@link IBMMQReconnectListener} of the connection factory while running.
+	 */
+	public int getInFlight() {
+		return this.pendingMessages.size() + this.batchSize;
+	}
+
+	@Override
+	public void handleMessage(Message<?> message) throws MessagingException {
+		try {
+			send(message).get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MessageDeliveryException(message, "Interrupted waiting for batch commit", e);
+		}
+		catch (ExecutionException e) {
+			throw new MessageDeliveryException(message, "Could not send message", e.getCause());
+		}
+	}
+
+	@Override
+	public synchronized void start() {
+		if (this.running) {
+			return;
+		}
+
+		this.running = true;
+		this.reconnectListener = IBMMQReconnectListener.of(this.connectionFactory);
+		if (this.reconnectListener != null) {
+			this.reconnectListener.addInFlight(this.inFlight);
+		}
+		this.senderThread = new Thread(this::sendBatches,
+				"ibmmq-batching-producer-" + this.producerDestination.getName());
+		this.senderThread.setDaemon(true);
+		this.senderThread.start();
+	}
+
+	/**
+	 * Stop accepting messages and wait for the messages already queued to be committed,
+	 * or failed if the destination has not been provisioned yet.
+	 * The sender thread closes the session once it is done, which it may still not be
+	 * when this returns.
+	 */
+	@Override
+	public synchronized void stop() {
+		if (!this.running) {
+			return;
+		}
+
+		this.running = false;
+		try {
+			this.senderThread.join(TimeUnit.SECONDS.toMillis(30));
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (this.senderThread.isAlive()) {
+			logger.warn("Batching producer for '{}' is still sending after 30s, leaving it to finish",
+					this.producerDestination.getName());
+		}
+		else {
+			// queued after the sender thread drained the queue
+			failUnsent(new IllegalStateException("Batching producer stopped"));
+		}
+		if (this.reconnectListener != null) {
+			this.reconnectListener.removeInFlight(this.inFlight);
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	private void sendBatches() {
+		List<PendingMessage> batch = new ArrayList<>(this.destinationProperties.getProducerBatchSize());
+		Exception failure = new IllegalStateException("Batching producer stopped");
+		try {
+			if (!awaitProvisioned()) {
+				// stopped first, so the messages are failed rather than sent to missing objects
+				return;
+			}
+			while (this.running || !this.pendingMessages.isEmpty()) {
+				PendingMessage first = this.pendingMessages.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+
+				batch.add(first);
+				long deadline = System.currentTimeMillis() + this.destinationProperties.getProducerBatchLinger();
+				while (batch.size() < this.destinationProperties.getProducerBatchSize()) {
+					long remaining = deadline - System.currentTimeMillis();
+					PendingMessage next = remaining > 0
+							? this.pendingMessages.poll(remaining, TimeUnit.MILLISECONDS) : null;
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+
+				this.batchSize = batch.size();
+				sendBatch(batch);
+				batch.clear();
+				this.batchSize = 0;
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			fail(batch, e);
+		}
+		catch (ExecutionException e) {
+			logger.error(String.format("Could not provision '%s', failing all messages",
+					this.producerDestination.getName()), e.getCause());
+			failure = e;
+		}
+		finally {
+			closeSession();
+			this.destinationFactory.close();
+			failUnsent(failure);
+		}
+	}
+
+	/**
+	 * Wait for the destination to be provisioned, or for the producer to be stopped.
+	 * @return whether the destination was provisioned
+	 */
+	private boolean awaitProvisioned() throws InterruptedException, ExecutionException {
+		while (this.running) {
+			try {
+				this.provisioned.get(100, TimeUnit.MILLISECONDS);
+				return true;
+			}
+			catch (TimeoutException e) {
+				// check whether still running
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Send and commit the batch. A message that can't be sent is failed, and the
+	 * messages before and after it are sent again in transactions of their own, so that
+	 * nothing is committed alongside a failed send and each message is only sent again
+	 * once per failure.
+	 */
+	private void sendBatch(List<PendingMessage> batch) {
+		Deque<List<PendingMessage>> unsent = new ArrayDeque<>();
+		unsent.push(batch);
+		while (!unsent.isEmpty()) {
+			List<PendingMessage> messages = unsent.pop();
+			int failed = sendInTransaction(messages);
+			if (failed >= 0) {
+				// in order: the messages before the failed one first, then the rest
+				if (failed + 1 < messages.size()) {
+					unsent.push(messages.subList(failed + 1, messages.size()));
+				}
+				if (failed > 0) {
+					unsent.push(messages.subList(0, failed));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Send and commit the messages in one transaction, or roll it back as soon as one
+	 * of them can't be sent.
+	 * @return the index of the message that could not be sent, {@code -1} once every
+	 * message has been committed or failed
+	 */
+	private int sendInTransaction(List<PendingMessage> batch) {
+		try {
+			openSession();
+		}
+		catch (JMSException e) {
+			closeSession();
+			fail(batch, e);
+			return -1;
+		}
+
+		for (int i = 0; i < batch.size(); i++) {
+			PendingMessage pendingMessage = batch.get(i);
+			try {
+				this.producer.send(resolveDestination(pendingMessage.message),
+						this.messageConverter.toMessage(pendingMessage.message, this.session));
+			}
+			catch (JMSException | RuntimeException e) {
+				logger.error(String.format("Could not send message to '%s', rolling back its batch of %d message(s)",
+						this.producerDestination.getName(), batch.size()), e);
+				pendingMessage.future.completeExceptionally(e);
+				rollback();
+				return i;
+			}
+		}
+
+		try {
+			this.session.commit();
+			for (PendingMessage pendingMessage : batch) {
+				pendingMessage.future.complete(null);
+			}
+		}
+		catch (JMSException e) {
+			logger.error(String.format("Could not commit batch of %d message(s) to '%s'", batch.size(),
+					this.producerDestination.getName()), e);
+			closeSession();
+			fail(batch, e);
+		}
+		return -1;
+	}
+
+	private void rollback() {
+		try {
+			this.session.rollback();
+		}
+		catch (JMSException e) {
+			// the next transaction opens a new session instead
+			closeSession();
+		}
+	}
+
+	private Destination resolveDestination(Message<?> message) throws JMSException {
+		Object partition = message.getHeaders().get(BinderHeaders.PARTITION_HEADER);
+		if (this.producerDestination instanceof IBMMQProducerDestination) {
+			return ((IBMMQProducerDestination) this.producerDestination)
+					.getDestination(partition != null ? Integer.parseInt(partition.toString()) : -1);
+		}
+
+		String name = partition != null
+				? this.producerDestination.getNameForPartition(Integer.parseInt(partition.toString()))
+				: this.producerDestination.getName();
+
+		Destination destination = this.destinations.get(name);
+		if (destination == null) {
+			destination = this.destinationFactory.createTopic(name, this.destinationProperties);
+			this.destinations.put(name, destination);
+		}
+
+		return destination;
+	}
+
+	private void openSession() throws JMSException {
+		if (this.session == null) {
+			this.connection = this.connectionFactory.createConnection();
+			this.session = this.connection.createSession(true, Session.SESSION_TRANSACTED);
+			this.producer = this.session.createProducer(null);
+		}
+	}
+
+	private void closeSession() {
+		JmsUtils.closeMessageProducer(this.producer);
+		JmsUtils.closeSession(this.session);
+		JmsUtils.closeConnection(this.connection);
+		this.producer = null;
+		this.session = null;
+		this.connection = null;
+	}
+
+	private void failUnsent(Exception cause) {
+		List<PendingMessage> unsent = new ArrayList<>();
+		this.pendingMessages.drainTo(unsent);
+		fail(unsent, cause);
+	}
+
+	private void fail(List<PendingMessage> pendingMessages, Exception cause) {
+		for (PendingMessage pendingMessage : pendingMessages) {
+			pendingMessage.future.completeExceptionally(cause);
+		}
+	}
+
+	private static class PendingMessage {
+
+		private final Message<?> message;
+
+		private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+		PendingMessage(Message<?> message) {
+			this.message = message;
+		}
+	}
+}
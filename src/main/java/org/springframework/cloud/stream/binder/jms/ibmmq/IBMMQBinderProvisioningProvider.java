@@ -0,0 +1,87 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
+import org.springframework.cloud.stream.binder.ExtendedProducerProperties;
+import org.springframework.cloud.stream.binder.jms.config.JmsConsumerProperties;
+import org.springframework.cloud.stream.binder.jms.config.JmsProducerProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQConfigurationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties;
+import org.springframework.cloud.stream.provisioning.ConsumerDestination;
+import org.springframework.cloud.stream.provisioning.ProducerDestination;
+import org.springframework.cloud.stream.provisioning.ProvisioningException;
+import org.springframework.cloud.stream.provisioning.ProvisioningProvider;
+
+/**
+ * The {@link IBMMQProvisioningProvider} as seen by the JMS binder's own bindings.
+ *
+ * The binder's producers publish to the topic named by the producer destination, so
+ * destinations in {@link IBMMQDestinationProperties.BindingMode#QUEUE} mode, which
+ * have no topic, are refused rather than having every message published to a topic
+ * no one subscribes to. Such destinations can only be sent to with an
+ * {@link IBMMQBatchingProducer} on a destination provisioned by the
+ * {@link IBMMQProvisioningProvider} itself.
+ *
+ * The binder's producers publish as soon as they are bound, and publications are not
+ * kept for subscriptions that don't exist yet, so their destinations are provisioned
+ * on the calling thread even with {@code backgroundProvisioning}. Its consumers retry
+ * opening their queue until it exists, so they are provisioned in the background.
+ *
+ * The binder's producers and consumers all connect to the top level queue manager, so
+ * with {@code ibmmq.shards} configured partitioned bindings are refused as well: their
+ * partitions would be provisioned on the shards while the bindings publish to and read
+ * from the top level queue manager. Partitions on shards are sent to with an
+ * {@link IBMMQShardedProducer} and read with a consumer on the connection factory of
+ * their shard, see {@link IBMMQShards#getConnectionFactory(int)}.
+ */
+public class IBMMQBinderProvisioningProvider implements
+		ProvisioningProvider<ExtendedConsumerProperties<JmsConsumerProperties>, ExtendedProducerProperties<JmsProducerProperties>> {
+
+	private final IBMMQProvisioningProvider provisioningProvider;
+
+	private final IBMMQConfigurationProperties configurationProperties;
+
+	public IBMMQBinderProvisioningProvider(IBMMQProvisioningProvider provisioningProvider,
+			IBMMQConfigurationProperties configurationProperties) {
+		this.provisioningProvider = provisioningProvider;
+		this.configurationProperties = configurationProperties;
+	}
+
+	@Override
+	public ProducerDestination provisionProducerDestination(String name,
+			ExtendedProducerProperties<JmsProducerProperties> properties) throws ProvisioningException {
+		if (configurationProperties.getDestinationProperties(name)
+				.getBindingMode() == IBMMQDestinationProperties.BindingMode.QUEUE) {
+			throw new ProvisioningException(String.format(
+					"Destination '%s' is bound in QUEUE mode, which the binder's producers can't send to as they "
+							+ "publish to a topic; send to it with an IBMMQBatchingProducer instead",
+					name));
+		}
+
+		if (properties.isPartitioned()) {
+			refuseWhenSharding(name);
+		}
+
+		return provisioningProvider.provisionProducerDestinationNow(name, properties);
+	}
+
+	@Override
+	public ConsumerDestination provisionConsumerDestination(String name, String group,
+			ExtendedConsumerProperties<JmsConsumerProperties> properties) throws ProvisioningException {
+		if (properties.isPartitioned()) {
+			refuseWhenSharding(name);
+		}
+
+		return provisioningProvider.provisionConsumerDestination(name, group, properties);
+	}
+
+	private void refuseWhenSharding(String name) {
+		if (!configurationProperties.getShards().isEmpty()) {
+			throw new ProvisioningException(String.format(
+					"Destination '%s' is partitioned across ibmmq.shards, which the binder's bindings can't use "
+							+ "as they connect to the top level queue manager; send to it with an "
+							+ "IBMMQShardedProducer and read it with a consumer on the connection factory of "
+							+ "its shard instead",
+					name));
+		}
+	}
+}
@@ -0,0 +1,255 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageFormatException;
+import javax.jms.Session;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.jms.support.converter.SimpleMessageConverter;
+
+/**
+ * Payload {@link MessageConverter} writing {@code byte[]} and {@link ByteBuffer}
+ * payloads straight into a {@link BytesMessage}: arrays (and heap buffers, from their
+ * backing array) are handed to the message as is, and direct buffers are copied
+ * through a small chunk buffer instead of into a full size array first.
+ *
+ * Binary payloads of at least {@code compressionThreshold} bytes are deflated while
+ * being written, again chunk by chunk, and flagged with the {@link #COMPRESSION}
+ * property. Received messages carrying that property are inflated transparently,
+ * whatever the threshold of the receiving side, into an array of the length the
+ * sender declared in {@link #UNCOMPRESSED_LENGTH}; lengths above
+ * {@code maxUncompressedLength}, and bodies that don't inflate to exactly that length,
+ * fail the conversion. Other payloads and messages are converted by a
+ * {@link SimpleMessageConverter}.
+ *
+ * Use as the payload converter of a
+ * {@link org.springframework.jms.support.converter.MessagingMessageConverter}.
+ */
+public class IBMMQBytesMessageConverter implements MessageConverter {
+
+	/**
+	 * Property naming the algorithm the body is compressed with.
+	 */
+	public static final String COMPRESSION = "ibmmq_compression";
+
+	/**
+	 * Property holding the length of the body before compression.
+	 */
+	public static final String UNCOMPRESSED_LENGTH = "ibmmq_uncompressedLength";
+
+	public static final String DEFLATE = "deflate";
+
+	/**
+	 * The largest message IBM MQ accepts, 100 MB.
+	 */
+	public static final int DEFAULT_MAX_UNCOMPRESSED_LENGTH = 100 * 1024 * 1024;
+
+	private static final int CHUNK_SIZE = 8192;
+
+	private static final ThreadLocal<byte[]> chunks = ThreadLocal.withInitial(() -> new byte[CHUNK_SIZE]);
+
+	private final MessageConverter delegate = new SimpleMessageConverter();
+
+	private final int compressionThreshold;
+
+	private int maxUncompressedLength = DEFAULT_MAX_UNCOMPRESSED_LENGTH;
+
+	/**
+	 * @param compressionThreshold size, in bytes, from which binary payloads are
+	 * compressed, or 0 to never compress
+	 */
+	public IBMMQBytesMessageConverter(int compressionThreshold) {
+		this.compressionThreshold = compressionThreshold;
+	}
+
+	/**
+	 * The largest uncompressed length, in bytes, a received message may declare, as the
+	 * array it is inflated into is allocated up front. Defaults to
+	 * {@link #DEFAULT_MAX_UNCOMPRESSED_LENGTH}.
+	 */
+	public void setMaxUncompressedLength(int maxUncompressedLength) {
+		this.maxUncompressedLength = maxUncompressedLength;
+	}
+
+	@Override
+	public Message toMessage(Object object, Session session) throws JMSException, MessageConversionException {
+		if (object instanceof byte[]) {
+			byte[] bytes = (byte[]) object;
+			return toBytesMessage(bytes, 0, bytes.length, session);
+		}
+		if (object instanceof ByteBuffer) {
+			ByteBuffer buffer = ((ByteBuffer) object).duplicate();
+			if (buffer.hasArray()) {
+				return toBytesMessage(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(),
+						session);
+			}
+			return toBytesMessage(buffer, session);
+		}
+
+		return delegate.toMessage(object, session);
+	}
+
+	@Override
+	public Object fromMessage(Message message) throws JMSException, MessageConversionException {
+		if (!(message instanceof BytesMessage)) {
+			return delegate.fromMessage(message);
+		}
+
+		BytesMessage bytesMessage = (BytesMessage) message;
+		String compression = bytesMessage.getStringProperty(COMPRESSION);
+		if (compression == null) {
+			byte[] body = new byte[(int) bytesMessage.getBodyLength()];
+			bytesMessage.readBytes(body);
+			return body;
+		}
+		if (!DEFLATE.equals(compression)) {
+			throw new MessageConversionException(String.format("Unsupported compression '%s'", compression));
+		}
+
+		return inflate(bytesMessage);
+	}
+
+	private BytesMessage toBytesMessage(byte[] bytes, int offset, int length, Session session) throws JMSException {
+		BytesMessage message = session.createBytesMessage();
+		if (!compress(length)) {
+			message.writeBytes(bytes, offset, length);
+			return message;
+		}
+
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			deflater.setInput(bytes, offset, length);
+			deflater.finish();
+			deflate(deflater, message);
+		}
+		finally {
+			deflater.end();
+		}
+		flagCompressed(message, length);
+
+		return message;
+	}
+
+	private BytesMessage toBytesMessage(ByteBuffer buffer, Session session) throws JMSException {
+		BytesMessage message = session.createBytesMessage();
+		byte[] chunk = chunks.get();
+		int length = buffer.remaining();
+		if (!compress(length)) {
+			while (buffer.hasRemaining()) {
+				int size = Math.min(chunk.length, buffer.remaining());
+				buffer.get(chunk, 0, size);
+				message.writeBytes(chunk, 0, size);
+			}
+			return message;
+		}
+
+		// the deflater copies its input, so feed it from a separate chunk
+		byte[] input = new byte[CHUNK_SIZE];
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			while (buffer.hasRemaining()) {
+				int size = Math.min(input.length, buffer.remaining());
+				buffer.get(input, 0, size);
+				deflater.setInput(input, 0, size);
+				if (!buffer.hasRemaining()) {
+					deflater.finish();
+				}
+				deflate(deflater, message);
+			}
+		}
+		finally {
+			deflater.end();
+		}
+		flagCompressed(message, length);
+
+		return message;
+	}
+
+	/**
+	 * Write the output of the deflater into the message, until it needs more input or,
+	 * once finished, has no more output.
+	 */
+	private void deflate(Deflater deflater, BytesMessage message) throws JMSException {
+		byte[] chunk = chunks.get();
+		while (!deflater.finished()) {
+			int size = deflater.deflate(chunk);
+			if (size > 0) {
+				message.writeBytes(chunk, 0, size);
+			}
+			else if (deflater.needsInput()) {
+				break;
+			}
+		}
+	}
+
+	private byte[] inflate(BytesMessage message) throws JMSException {
+		byte[] body = new byte[uncompressedLength(message)];
+		byte[] chunk = chunks.get();
+		Inflater inflater = new Inflater();
+		try {
+			int inflated = 0;
+			while (!inflater.finished()) {
+				if (inflater.needsInput()) {
+					int size = message.readBytes(chunk);
+					if (size <= 0) {
+						throw new MessageConversionException("Compressed message body is truncated");
+					}
+					inflater.setInput(chunk, 0, size);
+				}
+				int size = inflater.inflate(body, inflated, body.length - inflated);
+				if (size == 0 && !inflater.needsInput() && !inflater.finished()) {
+					throw new MessageConversionException(String.format(
+							"Compressed message body is longer than its %s property", UNCOMPRESSED_LENGTH));
+				}
+				inflated += size;
+			}
+			if (inflated != body.length) {
+				throw new MessageConversionException(String.format(
+						"Compressed message body inflated to %d bytes rather than the %d of its %s property",
+						inflated, body.length, UNCOMPRESSED_LENGTH));
+			}
+		}
+		catch (DataFormatException e) {
+			throw new MessageConversionException("Could not decompress message body", e);
+		}
+		finally {
+			inflater.end();
+		}
+
+		return body;
+	}
+
+	private int uncompressedLength(BytesMessage message) throws JMSException {
+		int length;
+		try {
+			length = message.getIntProperty(UNCOMPRESSED_LENGTH);
+		}
+		catch (NumberFormatException | MessageFormatException e) {
+			throw new MessageConversionException(
+					String.format("Compressed message has no valid %s property", UNCOMPRESSED_LENGTH), e);
+		}
+		if (length < 0 || length > maxUncompressedLength) {
+			throw new MessageConversionException(
+					String.format("Compressed message declares an uncompressed length of %d bytes, outside 0 to %d",
+							length, maxUncompressedLength));
+		}
+
+		return length;
+	}
+
+	private boolean compress(int length) {
+		return compressionThreshold > 0 && length >= compressionThreshold;
+	}
+
+	private void flagCompressed(BytesMessage message, int length) throws JMSException {
+		message.setStringProperty(COMPRESSION, DEFLATE);
+		message.setIntProperty(UNCOMPRESSED_LENGTH, length);
+	}
+}
@@ -0,0 +1,96 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+import org.springframework.util.Assert;
+
+/**
+ * Adjusts the number of concurrent consumers of a listener container, one consumer
+ * at a time, based on the depth and oldest message age of the queue it consumes from.
+ *
+ * Consumers are added, up to {@code maxConsumers}, while the depth is above
+ * {@code scaleUpDepth} or the oldest message is older than {@code scaleUpMessageAge}
+ * seconds. They are removed again, down to {@code minConsumers}, once the depth is at
+ * or below {@code scaleDownDepth} and the message age is back under its threshold.
+ *
+ * The container's {@code concurrentConsumers} is changed, with its
+ * {@code maxConcurrentConsumers} kept equal to it: a maximum above it would have the
+ * container add and remove idle consumers itself as well.
+ *
+ * The binder creates the listener containers of its own consumer bindings internally,
+ * so the autoscaler is for containers the application creates itself. Register it with
+ * {@link IBMMQQueueStatusMonitor#addListener}.
+ */
+public class IBMMQConsumerAutoscaler implements IBMMQQueueStatusMonitor.Listener {
+
+	private static final Logger logger = LoggerFactory.getLogger(IBMMQConsumerAutoscaler.class);
+
+	private final DefaultMessageListenerContainer listenerContainer;
+
+	private final int minConsumers;
+
+	private final int maxConsumers;
+
+	private int scaleUpDepth = 1000;
+
+	private int scaleDownDepth = 0;
+
+	private int scaleUpMessageAge = 0;
+
+	public IBMMQConsumerAutoscaler(DefaultMessageListenerContainer listenerContainer, int minConsumers,
+			int maxConsumers) {
+		Assert.isTrue(minConsumers > 0, "'minConsumers' must be greater than zero");
+		Assert.isTrue(maxConsumers >= minConsumers, "'maxConsumers' must not be less than 'minConsumers'");
+		Assert.isTrue(listenerContainer.getMaxConcurrentConsumers() <= listenerContainer.getConcurrentConsumers(),
+				"The listener container must not scale itself, leave its 'maxConcurrentConsumers' unset");
+
+		this.listenerContainer = listenerContainer;
+		this.minConsumers = minConsumers;
+		this.maxConsumers = maxConsumers;
+	}
+
+	/**
+	 * Queue depth above which a consumer is added. Defaults to 1000.
+	 */
+	public void setScaleUpDepth(int scaleUpDepth) {
+		this.scaleUpDepth = scaleUpDepth;
+	}
+
+	/**
+	 * Queue depth at or below which a consumer is removed. Defaults to 0.
+	 */
+	public void setScaleDownDepth(int scaleDownDepth) {
+		this.scaleDownDepth = scaleDownDepth;
+	}
+
+	/**
+	 * Age, in seconds, of the oldest message above which a consumer is added. Requires
+	 * queue monitoring (MONQ) on the queue. Defaults to 0, which disables the check.
+	 */
+	public void setScaleUpMessageAge(int scaleUpMessageAge) {
+		this.scaleUpMessageAge = scaleUpMessageAge;
+	}
+
+	@Override
+	public void queueStatus(IBMMQQueueStatus status) {
+		int consumers = listenerContainer.getConcurrentConsumers();
+		boolean messagesTooOld = scaleUpMessageAge > 0 && status.getOldestMessageAge() > scaleUpMessageAge;
+
+		if ((status.getCurrentDepth() > scaleUpDepth || messagesTooOld) && consumers < maxConsumers) {
+			scaleTo(consumers + 1, status);
+		}
+		else if (status.getCurrentDepth() <= scaleDownDepth && !messagesTooOld && consumers > minConsumers) {
+			scaleTo(consumers - 1, status);
+		}
+	}
+
+	private void scaleTo(int consumers, IBMMQQueueStatus status) {
+		logger.info("Scaling consumers of '{}' from {} to {} ({})", status.getQueueName(),
+				listenerContainer.getConcurrentConsumers(), consumers, status);
+		// setConcurrentConsumers raises maxConcurrentConsumers when needed, but never lowers it
+		listenerContainer.setConcurrentConsumers(consumers);
+		listenerContainer.setMaxConcurrentConsumers(consumers);
+	}
+}
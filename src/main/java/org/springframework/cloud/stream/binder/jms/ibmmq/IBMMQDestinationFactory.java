@@ -0,0 +1,153 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.Topic;
+
+import com.ibm.mq.jms.MQConnectionFactory;
+import com.ibm.mq.jms.MQDestination;
+import com.ibm.mq.jms.MQQueue;
+import com.ibm.mq.jms.MQTopic;
+import com.ibm.msg.client.wmq.WMQConstants;
+
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.metrics.IBMMQMetrics;
+import org.springframework.jms.connection.SingleConnectionFactory;
+import org.springframework.jms.support.JmsUtils;
+
+/**
+ * Creates the JMS {@link Queue} and {@link Topic} objects handed back from
+ * provisioning.
+ *
+ * With an IBM MQ {@link MQConnectionFactory}, including one wrapped by a
+ * {@link SingleConnectionFactory} such as the binder's caching connection factory,
+ * the destinations are plain {@link MQQueue}/{@link MQTopic} objects and no
+ * connection is needed at all. Any other {@link ConnectionFactory} gets a single admin
+ * connection and session, opened on first use and shared by all destinations until
+ * {@link #close()}.
+ *
+ * IBM MQ destinations are then customized with the client side settings (target
+ * client, async put, read ahead, persistence) from the binding's {@link IBMMQDestinationProperties}.
+ */
+public class IBMMQDestinationFactory {
+
+	private final ConnectionFactory connectionFactory;
+
+	private final boolean nativeDestinations;
+
+	private Connection connection;
+
+	private Session session;
+
+	private IBMMQMetrics metrics = IBMMQMetrics.NONE;
+
+	public IBMMQDestinationFactory(ConnectionFactory connectionFactory) {
+		this.connectionFactory = connectionFactory;
+		this.nativeDestinations = targetConnectionFactory(connectionFactory) instanceof MQConnectionFactory;
+	}
+
+	public void setMetrics(IBMMQMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public Queue createQueue(String queueName, IBMMQDestinationProperties destinationProperties)
+			throws JMSException {
+		Queue queue;
+		if (nativeDestinations) {
+			queue = new MQQueue(queueName);
+		}
+		else {
+			synchronized (this) {
+				queue = getSession().createQueue(queueName);
+			}
+		}
+
+		customize(queue, destinationProperties);
+		return queue;
+	}
+
+	public Topic createTopic(String topicName, IBMMQDestinationProperties destinationProperties)
+			throws JMSException {
+		Topic topic;
+		if (nativeDestinations) {
+			topic = new MQTopic(topicName);
+		}
+		else {
+			synchronized (this) {
+				topic = getSession().createTopic(topicName);
+			}
+		}
+
+		customize(topic, destinationProperties);
+		return topic;
+	}
+
+	public synchronized void close() {
+		JmsUtils.closeSession(session);
+		JmsUtils.closeConnection(connection);
+		session = null;
+		connection = null;
+	}
+
+	/**
+	 * Apply the per destination client settings. These only exist on IBM MQ
+	 * destinations, so other destinations are returned as is.
+	 */
+	private void customize(Destination destination, IBMMQDestinationProperties destinationProperties)
+			throws JMSException {
+		if (!(destination instanceof MQDestination)) {
+			return;
+		}
+
+		MQDestination mqDestination = (MQDestination) destination;
+		if (destinationProperties.getTargetClient() != null) {
+			mqDestination.setTargetClient(destinationProperties.getTargetClient().getValue());
+		}
+		if (destinationProperties.getPutAsyncAllowed() != null) {
+			mqDestination.setPutAsyncAllowed(destinationProperties.getPutAsyncAllowed()
+					? WMQConstants.WMQ_PUT_ASYNC_ALLOWED_ENABLED : WMQConstants.WMQ_PUT_ASYNC_ALLOWED_DISABLED);
+		}
+		if (destinationProperties.getReadAheadAllowed() != null) {
+			mqDestination.setReadAheadAllowed(destinationProperties.getReadAheadAllowed()
+					? WMQConstants.WMQ_READ_AHEAD_ALLOWED_ENABLED : WMQConstants.WMQ_READ_AHEAD_ALLOWED_DISABLED);
+		}
+		if (destinationProperties.getReadAheadClosePolicy() != null) {
+			mqDestination.setReadAheadClosePolicy(destinationProperties.getReadAheadClosePolicy().getValue());
+		}
+		if (destinationProperties.getPersistence() != null) {
+			mqDestination.setPersistence(destinationProperties.getPersistence().getValue());
+		}
+	}
+
+	private static ConnectionFactory targetConnectionFactory(ConnectionFactory connectionFactory) {
+		ConnectionFactory target = connectionFactory;
+		while (target instanceof SingleConnectionFactory
+				&& ((SingleConnectionFactory) target).getTargetConnectionFactory() != null) {
+			target = ((SingleConnectionFactory) target).getTargetConnectionFactory();
+		}
+
+		return target;
+	}
+
+	private Session getSession() throws JMSException {
+		if (session == null) {
+			long start = System.nanoTime();
+			connection = connectionFactory.createConnection();
+			metrics.connectionOpened(System.nanoTime() - start);
+			try {
+				session = connection.createSession(true, Session.AUTO_ACKNOWLEDGE);
+			}
+			catch (JMSException e) {
+				JmsUtils.closeConnection(connection);
+				connection = null;
+				throw e;
+			}
+		}
+
+		return session;
+	}
+}
@@ -0,0 +1,554 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties;
+import org.springframework.cloud.stream.provisioning.ConsumerDestination;
+import org.springframework.context.Lifecycle;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.jms.support.converter.MessagingMessageConverter;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.util.Assert;
+
+/**
+ * Receives messages from a provisioned {@link ConsumerDestination} on one session and
+ * dispatches them to {@code dispatchWorkers} worker threads, striped by the
+ * {@code dispatchKey} property (by default {@code JMSXGroupID}, i.e. the MQ group id).
+ * Messages with the same key are handled in order, on the same worker, while messages
+ * with different keys are handled in parallel.
+ *
+ * Up to {@code dispatchWindow} messages are received in one transaction, which is only
+ * committed once every message received in it has been handled, so the next window is
+ * only received once the slowest worker is done with this one. If that takes longer
+ * than {@code dispatchTimeout} milliseconds, the messages not yet handled are given up
+ * on and the window is rolled back. Each worker queues at most
+ * {@code dispatchQueueCapacity} messages; when the queue of the worker a message is
+ * striped to is full, receiving waits up to {@code dispatchTimeout} for it to drain,
+ * and then rolls the window back.
+ *
+ * A message that can't be converted, or that the handler still fails after
+ * {@code consumerMaxAttempts} attempts, is sent to the dead letter queue in the same
+ * transaction, as by the {@link IBMMQBatchingConsumer}. So that no message is handled
+ * ahead of an earlier one with the same key, the messages after it with that key in
+ * the same window are not handled and are dead lettered too, in order. Messages are
+ * redelivered if the session fails or the window times out before its commit, so
+ * handlers must tolerate seeing them again.
+ */
+public class IBMMQKeyOrderedConsumer implements Lifecycle {
+
+	/**
+	 * {@code dispatchKey} value to stripe by the JMS correlation id rather than a
+	 * message property.
+	 */
+	public static final String CORRELATION_ID_KEY = "JMSCorrelationID";
+
+	private static final Logger logger = LoggerFactory.getLogger(IBMMQKeyOrderedConsumer.class);
+
+	private final ConnectionFactory connectionFactory;
+
+	private final ConsumerDestination consumerDestination;
+
+	private final String deadLetterQueueName;
+
+	private final IBMMQDestinationProperties destinationProperties;
+
+	private final MessageHandler messageHandler;
+
+	private final IBMMQDestinationFactory destinationFactory;
+
+	private MessageConverter messageConverter = new MessagingMessageConverter(new IBMMQBytesMessageConverter(0));
+
+	/**
+	 * Milliseconds to wait before reconnecting after a JMS failure.
+	 */
+	private long recoveryInterval = 5000;
+
+	private CompletableFuture<?> provisioned = CompletableFuture.completedFuture(null);
+
+	private volatile boolean running;
+
+	/**
+	 * Workers keep going until the receiver has stopped, so that the last window can
+	 * be completed.
+	 */
+	private volatile boolean dispatching;
+
+	private final List<Worker> workers = new ArrayList<>();
+
+	private Thread receiverThread;
+
+	/**
+	 * Messages in the window being dispatched, only written by the receiver thread.
+	 */
+	private volatile int windowSize;
+
+	/**
+	 * The same instance is needed to deregister from the reconnect listener.
+	 */
+	private final IntSupplier inFlight = this::getInFlight;
+
+	private IBMMQReconnectListener reconnectListener;
+
+	/**
+	 * Spreads messages without a key, only touched by the receiver thread.
+	 */
+	private int nextWorker;
+
+	public IBMMQKeyOrderedConsumer(ConnectionFactory connectionFactory, ConsumerDestination consumerDestination,
+			String deadLetterQueueName, IBMMQDestinationProperties destinationProperties,
+			MessageHandler messageHandler) {
+		Assert.isTrue(destinationProperties.getDispatchWorkers() > 0, "'dispatchWorkers' must be greater than zero");
+		Assert.isTrue(destinationProperties.getDispatchWindow() > 0, "'dispatchWindow' must be greater than zero");
+		Assert.isTrue(destinationProperties.getDispatchQueueCapacity() > 0,
+				"'dispatchQueueCapacity' must be greater than zero");
+
+		this.connectionFactory = connectionFactory;
+		this.consumerDestination = consumerDestination;
+		this.deadLetterQueueName = deadLetterQueueName;
+		this.destinationProperties = destinationProperties;
+		this.messageHandler = messageHandler;
+		this.destinationFactory = new IBMMQDestinationFactory(connectionFactory);
+	}
+
+	public void setMessageConverter(MessageConverter messageConverter) {
+		this.messageConverter = messageConverter;
+	}
+
+	public void setRecoveryInterval(long recoveryInterval) {
+		this.recoveryInterval = recoveryInterval;
+	}
+
+	/**
+	 * Only start receiving once the destination has been provisioned, e.g. as told by
+	 * {@link IBMMQProvisioningProvider#whenProvisioned(Object)}. Nothing is received if
+	 * provisioning fails.
+	 */
+	public void setProvisioned(CompletableFuture<?> provisioned) {
+		this.provisioned = provisioned;
+	}
+
+	/**
+	 * Messages received but not yet committed, counted by the
+	 * {@link IBMMQReconnectListener} of the connection factory while running.
+	 */
+	public int getInFlight() {
+		return this.windowSize;
+	}
+
+	@Override
+	public synchronized void start() {
+		if (this.running) {
+			return;
+		}
+
+		this.running = true;
+		this.dispatching = true;
+		this.reconnectListener = IBMMQReconnectListener.of(this.connectionFactory);
+		if (this.reconnectListener != null) {
+			this.reconnectListener.addInFlight(this.inFlight);
+		}
+		ThreadFactory threadFactory = IBMMQThreads.threadFactory(
+				String.format("ibmmq-key-ordered-worker-%s-", this.consumerDestination.getName()),
+				this.destinationProperties);
+		for (int i = 0; i < this.destinationProperties.getDispatchWorkers(); i++) {
+			Worker worker = new Worker(this.destinationProperties.getDispatchQueueCapacity());
+			worker.thread = threadFactory.newThread(worker::handleMessages);
+			worker.thread.start();
+			this.workers.add(worker);
+		}
+
+		this.receiverThread = new Thread(this::receiveMessages,
+				"ibmmq-key-ordered-consumer-" + this.consumerDestination.getName());
+		this.receiverThread.setDaemon(true);
+		this.receiverThread.start();
+	}
+
+	/**
+	 * Stop receiving; the messages already received are handled and committed first.
+	 */
+	@Override
+	public synchronized void stop() {
+		if (!this.running) {
+			return;
+		}
+
+		this.running = false;
+		join(this.receiverThread);
+		this.dispatching = false;
+		for (Worker worker : this.workers) {
+			join(worker.thread);
+		}
+		this.workers.clear();
+		if (this.reconnectListener != null) {
+			this.reconnectListener.removeInFlight(this.inFlight);
+		}
+		this.destinationFactory.close();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	private void join(Thread thread) {
+		try {
+			thread.join(this.destinationProperties.getConsumerBatchTimeout()
+					+ this.destinationProperties.getDispatchTimeout() + TimeUnit.SECONDS.toMillis(30));
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void receiveMessages() {
+		try {
+			awaitProvisioned();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		catch (ExecutionException e) {
+			logger.error(String.format("Could not provision '%s', not receiving from it",
+					this.consumerDestination.getName()), e.getCause());
+			return;
+		}
+
+		while (this.running) {
+			Connection connection = null;
+			Session session = null;
+			boolean failed = false;
+			try {
+				connection = this.connectionFactory.createConnection();
+				session = connection.createSession(true, Session.SESSION_TRANSACTED);
+				Queue queue = this.destinationFactory.createQueue(this.consumerDestination.getName(),
+						this.destinationProperties);
+				MessageConsumer consumer = session.createConsumer(queue);
+				MessageProducer deadLetterProducer = session
+						.createProducer(this.destinationFactory.createQueue(this.deadLetterQueueName,
+								new IBMMQDestinationProperties()));
+				connection.start();
+
+				while (this.running) {
+					try {
+						dispatchWindow(session, consumer, deadLetterProducer);
+					}
+					finally {
+						this.windowSize = 0;
+					}
+				}
+			}
+			catch (JMSException | RuntimeException e) {
+				logger.error(String.format("Key ordered consumer for '%s' failed, reconnecting in %dms",
+						this.consumerDestination.getName(), this.recoveryInterval), e);
+				failed = true;
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				this.running = false;
+			}
+			finally {
+				JmsUtils.closeSession(session);
+				JmsUtils.closeConnection(connection);
+			}
+
+			if (failed) {
+				sleep(this.recoveryInterval);
+			}
+		}
+	}
+
+	/**
+	 * Wait for the destination to be provisioned, or for the consumer to be stopped.
+	 */
+	private void awaitProvisioned() throws InterruptedException, ExecutionException {
+		while (this.running) {
+			try {
+				this.provisioned.get(100, TimeUnit.MILLISECONDS);
+				return;
+			}
+			catch (TimeoutException e) {
+				// check whether still running
+			}
+		}
+	}
+
+	/**
+	 * Receive and dispatch up to {@code dispatchWindow} messages, then commit them once
+	 * all have been handled, or roll them back if that takes longer than
+	 * {@code dispatchTimeout}.
+	 */
+	private void dispatchWindow(Session session, MessageConsumer consumer, MessageProducer deadLetterProducer)
+			throws JMSException, InterruptedException {
+		List<Dispatch> window = new ArrayList<>(Math.min(this.destinationProperties.getDispatchWindow(), 1000));
+		Set<String> failedKeys = ConcurrentHashMap.newKeySet();
+
+		boolean queued = true;
+		boolean handled;
+		try {
+			long deadline = System.currentTimeMillis() + this.destinationProperties.getConsumerBatchTimeout();
+			while (this.running && window.size() < this.destinationProperties.getDispatchWindow()) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					break;
+				}
+
+				javax.jms.Message message = consumer.receive(remaining);
+				if (message == null) {
+					break;
+				}
+
+				String key = key(message);
+				Dispatch dispatch;
+				try {
+					dispatch = new Dispatch(message, (Message<?>) this.messageConverter.fromMessage(message), null,
+							key, failedKeys);
+				}
+				catch (JMSException | RuntimeException e) {
+					logger.error(String.format("Message from '%s' could not be converted, sending it to '%s'",
+							this.consumerDestination.getName(), this.deadLetterQueueName), e);
+					// failed by its worker, so that the earlier messages with its key are handled first
+					dispatch = new Dispatch(message, null, e, key, failedKeys);
+				}
+
+				if (!workerFor(key).queue.offer(dispatch, this.destinationProperties.getDispatchTimeout(),
+						TimeUnit.MILLISECONDS)) {
+					logger.error("Worker for '{}' took no message within {}ms", this.consumerDestination.getName(),
+							this.destinationProperties.getDispatchTimeout());
+					queued = false;
+					break;
+				}
+				window.add(dispatch);
+				this.windowSize = window.size();
+			}
+		}
+		finally {
+			// whatever happens, the session must not be used again before the workers are done with the window
+			if (queued) {
+				handled = awaitHandled(window);
+			}
+			else {
+				giveUp(window);
+				handled = false;
+			}
+		}
+
+		if (!handled) {
+			logger.error("Messages from '{}' were not handled within {}ms, rolling back {} message(s)",
+					this.consumerDestination.getName(), this.destinationProperties.getDispatchTimeout(),
+					window.size());
+			session.rollback();
+			return;
+		}
+		if (window.isEmpty()) {
+			return;
+		}
+
+		for (Dispatch dispatch : window) {
+			if (dispatch.handled.isCompletedExceptionally()) {
+				deadLetterProducer.send(dispatch.jmsMessage);
+			}
+		}
+		session.commit();
+	}
+
+	/**
+	 * Wait up to {@code dispatchTimeout} for every message of the window to be handled.
+	 * @return whether they all were, otherwise those that weren't are given up on, so
+	 * that workers skip them
+	 */
+	private boolean awaitHandled(List<Dispatch> window) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + this.destinationProperties.getDispatchTimeout();
+		for (Dispatch dispatch : window) {
+			try {
+				dispatch.handled.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+			}
+			catch (ExecutionException e) {
+				// logged where it failed
+			}
+			catch (TimeoutException e) {
+				giveUp(window);
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Give up on the messages of the window that have not been handled yet, so that
+	 * workers skip them.
+	 */
+	private void giveUp(List<Dispatch> window) {
+		for (Dispatch dispatch : window) {
+			dispatch.handled.cancel(false);
+		}
+	}
+
+	private String key(javax.jms.Message message) throws JMSException {
+		if (CORRELATION_ID_KEY.equals(this.destinationProperties.getDispatchKey())) {
+			return message.getJMSCorrelationID();
+		}
+
+		return message.getStringProperty(this.destinationProperties.getDispatchKey());
+	}
+
+	/**
+	 * The worker for the key, the next one in turn for messages without a key.
+	 */
+	private Worker workerFor(String key) {
+		int index;
+		if (key != null) {
+			index = (key.hashCode() & Integer.MAX_VALUE) % this.workers.size();
+		}
+		else {
+			index = this.nextWorker;
+			this.nextWorker = (this.nextWorker + 1) % this.workers.size();
+		}
+
+		return this.workers.get(index);
+	}
+
+	private void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.running = false;
+		}
+	}
+
+	private class Worker {
+
+		private final BlockingQueue<Dispatch> queue;
+
+		private Thread thread;
+
+		Worker(int capacity) {
+			this.queue = new ArrayBlockingQueue<>(capacity);
+		}
+
+		private void handleMessages() {
+			while (dispatching || !this.queue.isEmpty()) {
+				Dispatch dispatch;
+				try {
+					dispatch = this.queue.poll(100, TimeUnit.MILLISECONDS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				if (dispatch == null || dispatch.handled.isDone()) {
+					// given up on with the rest of its window
+					continue;
+				}
+
+				if (dispatch.key != null && dispatch.failedKeys.contains(dispatch.key)) {
+					logger.warn("Message from '{}' follows a failed message with key '{}', sending it to '{}'",
+							consumerDestination.getName(), dispatch.key, deadLetterQueueName);
+					dispatch.handled.completeExceptionally(new IllegalStateException(
+							String.format("An earlier message with key '%s' failed", dispatch.key)));
+					continue;
+				}
+
+				if (dispatch.message == null) {
+					dispatch.failed(dispatch.conversionFailure);
+					continue;
+				}
+
+				handle(dispatch);
+			}
+		}
+
+		/**
+		 * Hand the message to the handler, up to {@code consumerMaxAttempts} times.
+		 */
+		private void handle(Dispatch dispatch) {
+			for (int attempt = 1;; attempt++) {
+				try {
+					messageHandler.handleMessage(dispatch.message);
+					dispatch.handled.complete(null);
+					return;
+				}
+				catch (RuntimeException e) {
+					if (attempt >= destinationProperties.getConsumerMaxAttempts()) {
+						logger.error(String.format("Message from '%s' failed %d time(s), sending it to '%s'",
+								consumerDestination.getName(), attempt, deadLetterQueueName), e);
+						dispatch.failed(e);
+						return;
+					}
+					logger.warn(String.format("Message from '%s' failed, attempt %d of %d",
+							consumerDestination.getName(), attempt, destinationProperties.getConsumerMaxAttempts()),
+							e);
+				}
+			}
+		}
+	}
+
+	private static class Dispatch {
+
+		private final javax.jms.Message jmsMessage;
+
+		/**
+		 * {@code null} if the message could not be converted.
+		 */
+		private final Message<?> message;
+
+		/**
+		 * Why the message could not be converted, if it couldn't.
+		 */
+		private final Throwable conversionFailure;
+
+		private final String key;
+
+		/**
+		 * Keys of the messages of the window that failed.
+		 */
+		private final Set<String> failedKeys;
+
+		private final CompletableFuture<Void> handled = new CompletableFuture<>();
+
+		Dispatch(javax.jms.Message jmsMessage, Message<?> message, Throwable conversionFailure, String key,
+				Set<String> failedKeys) {
+			this.jmsMessage = jmsMessage;
+			this.message = message;
+			this.conversionFailure = conversionFailure;
+			this.key = key;
+			this.failedKeys = failedKeys;
+		}
+
+		/**
+		 * Fail the message, and with it the later messages with the same key.
+		 */
+		void failed(Throwable failure) {
+			if (this.key != null) {
+				this.failedKeys.add(this.key);
+			}
+			this.handled.completeExceptionally(failure);
+		}
+	}
+}
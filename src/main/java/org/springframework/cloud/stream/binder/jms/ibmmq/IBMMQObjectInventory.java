@@ -0,0 +1,74 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of the queue, topic and subscription objects known to exist on the
+ * queue manager. Populated by inquiries of the objects of each destination as it is
+ * provisioned (see {@link IBMMQRequests#prefetchInventory(String)}), or of the configured
+ * {@code inventoryFilter} on connecting, and kept up to date as objects are provisioned,
+ * so that existing objects are not created again.
+ */
+public class IBMMQObjectInventory {
+
+	private final Set<String> queues = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	private final Set<String> topics = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+	/**
+	 * Subscription names to their selector, empty when they have none.
+	 */
+	private final Map<String, String> subscriptions = new ConcurrentHashMap<>();
+
+	public boolean containsQueue(String queueName) {
+		return queues.contains(queueName);
+	}
+
+	public boolean containsTopic(String topicName) {
+		return topics.contains(topicName);
+	}
+
+	public boolean containsSubscription(String subscriptionName) {
+		return subscriptions.containsKey(subscriptionName);
+	}
+
+	/**
+	 * The selector of the given subscription, empty if it has none, or {@code null} if
+	 * the subscription is not known to exist.
+	 */
+	public String getSubscriptionSelector(String subscriptionName) {
+		return subscriptions.get(subscriptionName);
+	}
+
+	/**
+	 * Whether the given subscription is known to exist with the given selector,
+	 * {@code null} meaning none.
+	 */
+	public boolean containsSubscription(String subscriptionName, String selector) {
+		String existingSelector = subscriptions.get(subscriptionName);
+		return existingSelector != null && existingSelector.equals(selector != null ? selector.trim() : "");
+	}
+
+	public void addQueue(String queueName) {
+		queues.add(queueName.trim());
+	}
+
+	public void addTopic(String topicName) {
+		topics.add(topicName.trim());
+	}
+
+	public void addSubscription(String subscriptionName, String selector) {
+		subscriptions.put(subscriptionName.trim(), selector != null ? selector.trim() : "");
+	}
+
+	public void removeSubscription(String subscriptionName) {
+		subscriptions.remove(subscriptionName);
+	}
+
+	public int size() {
+		return queues.size() + topics.size() + subscriptions.size();
+	}
+}
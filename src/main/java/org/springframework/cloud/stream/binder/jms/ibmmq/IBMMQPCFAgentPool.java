@@ -0,0 +1,340 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.ibm.mq.MQException;
+import com.ibm.mq.MQQueueManager;
+import com.ibm.mq.constants.MQConstants;
+import com.ibm.mq.pcf.PCFMessage;
+import com.ibm.mq.pcf.PCFMessageAgent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.stream.binder.jms.ibmmq.metrics.IBMMQMetrics;
+import org.springframework.util.Assert;
+
+/**
+ * Bounded pool of long lived {@link PCFMessageAgent}s. Each agent owns its own
+ * {@link MQQueueManager} connection, so the command server handshake and the reply
+ * model queue are set up once per agent rather than once per PCF command.
+ *
+ * Idle agents are handed out most recently used first and are validated before being
+ * reused: agents whose connection has dropped, or that have been idle for longer than
+ * the configured idle timeout, are disconnected and replaced. Expired agents are also
+ * evicted whenever an agent is borrowed or handed back.
+ *
+ * The MQ classes for Java don't reconnect automatically. With a reconnect timeout, a
+ * command whose connection fails is therefore retried on a new agent, and so a new
+ * connection (to the next available instance with a connection name list), until it
+ * succeeds or the timeout expires. A retried create command may find that its object
+ * was created after all, which callers already treat as success.
+ */
+public class IBMMQPCFAgentPool {
+
+	private static final Logger logger = LoggerFactory.getLogger(IBMMQPCFAgentPool.class);
+
+	/**
+	 * Reason codes that indicate the agent's connection can no longer be used. See
+	 * http://www.ibm.com/support/knowledgecenter/SSFKSJ_8.0.0/com.ibm.mq.tro.doc/q040710_.htm
+	 */
+	private static final Set<Integer> CONNECTION_FAILURE_REASONS = Collections
+			.unmodifiableSet(new HashSet<>(Arrays.asList(MQConstants.MQRC_CONNECTION_BROKEN,
+					MQConstants.MQRC_Q_MGR_NOT_AVAILABLE, MQConstants.MQRC_Q_MGR_QUIESCING,
+					MQConstants.MQRC_Q_MGR_STOPPING, MQConstants.MQRC_CONNECTION_QUIESCING,
+					MQConstants.MQRC_CONNECTION_STOPPING, MQConstants.MQRC_HCONN_ERROR,
+					MQConstants.MQRC_HOST_NOT_AVAILABLE)));
+
+	/**
+	 * Upper bound of the wait between reconnect attempts.
+	 */
+	private static final long MAX_RECONNECT_INTERVAL = 1000;
+
+	private final MQQueueManagerFactory queueManagerFactory;
+
+	private final long idleTimeout;
+
+	private final long borrowTimeout;
+
+	private final Semaphore permits;
+
+	private final BlockingDeque<PooledAgent> idleAgents = new LinkedBlockingDeque<>();
+
+	private volatile boolean closed;
+
+	private long reconnectTimeout = 0;
+
+	private volatile IBMMQMetrics metrics = IBMMQMetrics.NONE;
+
+	/**
+	 * @param queueManagerFactory creates the queue manager connection for each agent
+	 * @param maxSize maximum number of agents (and therefore connections) in use at once
+	 * @param idleTimeout milliseconds an agent may sit idle before it is discarded
+	 * @param borrowTimeout milliseconds to wait for an agent when all are in use
+	 */
+	public IBMMQPCFAgentPool(MQQueueManagerFactory queueManagerFactory, int maxSize,
+			long idleTimeout, long borrowTimeout) {
+		Assert.notNull(queueManagerFactory, "'queueManagerFactory' must not be null");
+		Assert.isTrue(maxSize > 0, "'maxSize' must be greater than zero");
+
+		this.queueManagerFactory = queueManagerFactory;
+		this.idleTimeout = idleTimeout;
+		this.borrowTimeout = borrowTimeout;
+		this.permits = new Semaphore(maxSize, true);
+	}
+
+	/**
+	 * Milliseconds to keep retrying a command whose connection failed. Defaults to 0,
+	 * i.e. fail straight away.
+	 */
+	public void setReconnectTimeout(long reconnectTimeout) {
+		this.reconnectTimeout = reconnectTimeout;
+	}
+
+	public void setMetrics(IBMMQMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Send a PCF command using a pooled agent. The agent is returned to the pool
+	 * afterwards, unless the failure indicates that its connection is broken, in which
+	 * case the command is retried for up to the reconnect timeout.
+	 */
+	public PCFMessage[] send(PCFMessage request) throws MQException, IOException {
+		long reconnectingSince = 0;
+		long interval = 100;
+		while (true) {
+			try {
+				PCFMessage[] responses = sendOnce(request);
+				if (reconnectingSince != 0) {
+					long duration = System.nanoTime() - reconnectingSince;
+					logger.info("Reconnected PCF agent after {}ms", TimeUnit.NANOSECONDS.toMillis(duration));
+					this.metrics.reconnected(IBMMQMetrics.PCF, duration);
+				}
+				return responses;
+			}
+			catch (MQException e) {
+				if (this.reconnectTimeout <= 0 || !CONNECTION_FAILURE_REASONS.contains(e.getReason())) {
+					throw e;
+				}
+
+				long now = System.nanoTime();
+				if (reconnectingSince == 0) {
+					reconnectingSince = now;
+					logger.warn("PCF agent connection failed with reason {}, reconnecting for up to {}ms",
+							e.getReason(), this.reconnectTimeout);
+				}
+				long remaining = this.reconnectTimeout - TimeUnit.NANOSECONDS.toMillis(now - reconnectingSince);
+				if (remaining <= 0 || this.closed) {
+					this.metrics.reconnectFailed(IBMMQMetrics.PCF, now - reconnectingSince);
+					throw e;
+				}
+
+				try {
+					Thread.sleep(Math.min(interval, remaining));
+				}
+				catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+				interval = Math.min(interval * 2, MAX_RECONNECT_INTERVAL);
+			}
+		}
+	}
+
+	private PCFMessage[] sendOnce(PCFMessage request) throws MQException, IOException {
+		PooledAgent agent = borrow();
+		boolean reusable = true;
+		try {
+			return agent.getAgent().send(request);
+		}
+		catch (MQException e) {
+			reusable = !CONNECTION_FAILURE_REASONS.contains(e.getReason());
+			throw e;
+		}
+		catch (IOException | RuntimeException e) {
+			reusable = false;
+			throw e;
+		}
+		finally {
+			if (reusable) {
+				giveBack(agent);
+			}
+			else {
+				invalidate(agent);
+			}
+		}
+	}
+
+	/**
+	 * Borrow an agent from the pool, creating a new one if no valid idle agent is
+	 * available. Every borrowed agent must be handed back with either
+	 * {@link #giveBack(PooledAgent)} or {@link #invalidate(PooledAgent)}.
+	 */
+	public PooledAgent borrow() throws MQException {
+		Assert.state(!this.closed, "PCF agent pool has been closed");
+
+		try {
+			if (!this.permits.tryAcquire(this.borrowTimeout, TimeUnit.MILLISECONDS)) {
+				throw new IllegalStateException(String.format(
+						"Timed out after %dms waiting for an available PCF agent",
+						this.borrowTimeout));
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted waiting for an available PCF agent", e);
+		}
+
+		try {
+			evictExpired();
+			PooledAgent agent;
+			while ((agent = this.idleAgents.pollFirst()) != null) {
+				if (isValid(agent)) {
+					return agent;
+				}
+				destroy(agent);
+			}
+
+			return create();
+		}
+		catch (MQException | RuntimeException e) {
+			this.permits.release();
+			throw e;
+		}
+	}
+
+	public void giveBack(PooledAgent agent) {
+		if (this.closed) {
+			destroy(agent);
+		}
+		else {
+			agent.touch();
+			this.idleAgents.offerFirst(agent);
+			evictExpired();
+		}
+		this.permits.release();
+	}
+
+	public void invalidate(PooledAgent agent) {
+		destroy(agent);
+		this.permits.release();
+	}
+
+	/**
+	 * Disconnect all idle agents. Agents currently borrowed are disconnected when they
+	 * are handed back.
+	 */
+	public void close() {
+		this.closed = true;
+
+		PooledAgent agent;
+		while ((agent = this.idleAgents.pollFirst()) != null) {
+			destroy(agent);
+		}
+	}
+
+	int getIdleCount() {
+		return this.idleAgents.size();
+	}
+
+	private PooledAgent create() throws MQException {
+		MQQueueManager queueManager = this.queueManagerFactory.createQueueManager();
+		try {
+			return new PooledAgent(queueManager, createAgent(queueManager));
+		}
+		catch (MQException e) {
+			disconnectQuietly(queueManager);
+			throw e;
+		}
+	}
+
+	PCFMessageAgent createAgent(MQQueueManager queueManager) throws MQException {
+		return new PCFMessageAgent(queueManager);
+	}
+
+	private boolean isValid(PooledAgent agent) {
+		return agent.getQueueManager().isConnected() && !isExpired(agent);
+	}
+
+	private boolean isExpired(PooledAgent agent) {
+		return System.currentTimeMillis() - agent.getLastUsed() > this.idleTimeout;
+	}
+
+	/**
+	 * Idle agents are kept most recently used first, so expired agents collect at the
+	 * tail of the deque.
+	 */
+	private void evictExpired() {
+		Iterator<PooledAgent> iterator = this.idleAgents.descendingIterator();
+		while (iterator.hasNext()) {
+			PooledAgent agent = iterator.next();
+			if (!isExpired(agent)) {
+				break;
+			}
+			if (this.idleAgents.removeLastOccurrence(agent)) {
+				destroy(agent);
+			}
+		}
+	}
+
+	private void destroy(PooledAgent agent) {
+		try {
+			agent.getAgent().disconnect();
+		}
+		catch (MQException e) {
+			logger.debug("Could not cleanly disconnect PCF agent", e);
+		}
+		disconnectQuietly(agent.getQueueManager());
+	}
+
+	private void disconnectQuietly(MQQueueManager queueManager) {
+		try {
+			queueManager.disconnect();
+		}
+		catch (MQException e) {
+			logger.debug("Could not cleanly disconnect from queue manager", e);
+		}
+	}
+
+	/**
+	 * A {@link PCFMessageAgent} together with the queue manager connection it uses.
+	 */
+	public static class PooledAgent {
+
+		private final MQQueueManager queueManager;
+
+		private final PCFMessageAgent agent;
+
+		private volatile long lastUsed = System.currentTimeMillis();
+
+		PooledAgent(MQQueueManager queueManager, PCFMessageAgent agent) {
+			this.queueManager = queueManager;
+			this.agent = agent;
+		}
+
+		public MQQueueManager getQueueManager() {
+			return queueManager;
+		}
+
+		public PCFMessageAgent getAgent() {
+			return agent;
+		}
+
+		long getLastUsed() {
+			return lastUsed;
+		}
+
+		void touch() {
+			this.lastUsed = System.currentTimeMillis();
+		}
+	}
+}
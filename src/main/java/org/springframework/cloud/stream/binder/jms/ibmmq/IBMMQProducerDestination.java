@@ -0,0 +1,60 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Queue;
+import javax.jms.Topic;
+import java.util.Map;
+
+import org.springframework.cloud.stream.provisioning.ProducerDestination;
+import org.springframework.cloud.stream.provisioning.ProvisioningException;
+
+/**
+ * {@link ProducerDestination} holding the provisioned JMS destination for each
+ * partition, which may be a {@link Queue} (see
+ * {@link org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties.BindingMode#QUEUE})
+ * rather than a {@link Topic}. The non-partitioned destination is held under
+ * partition {@code -1}.
+ */
+public class IBMMQProducerDestination implements ProducerDestination {
+
+	private final Map<Integer, ? extends Destination> partitionDestinations;
+
+	public IBMMQProducerDestination(Map<Integer, ? extends Destination> partitionDestinations) {
+		this.partitionDestinations = partitionDestinations;
+	}
+
+	@Override
+	public String getName() {
+		return nameOf(getDestination(-1));
+	}
+
+	@Override
+	public String getNameForPartition(int partition) {
+		return nameOf(getDestination(partition));
+	}
+
+	public Destination getDestination(int partition) {
+		Destination destination = partitionDestinations.get(partition);
+		if (destination == null) {
+			throw new IllegalArgumentException(String.format("No destination provisioned for partition %d", partition));
+		}
+
+		return destination;
+	}
+
+	private String nameOf(Destination destination) {
+		try {
+			return destination instanceof Queue ? ((Queue) destination).getQueueName()
+					: ((Topic) destination).getTopicName();
+		}
+		catch (JMSException e) {
+			throw new ProvisioningException("Could not resolve destination name", e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "IBMMQProducerDestination{" + "partitionDestinations=" + partitionDestinations + '}';
+	}
+}
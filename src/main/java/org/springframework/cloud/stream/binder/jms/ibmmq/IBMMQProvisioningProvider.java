@@ -3,19 +3,39 @@ package org.springframework.cloud.stream.binder.jms.ibmmq;
 import javax.jms.ConnectionFactory;
 import javax.jms.Queue;
 import javax.jms.Topic;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import com.ibm.mq.MQException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
 import org.springframework.cloud.stream.binder.ExtendedProducerProperties;
 import org.springframework.cloud.stream.binder.jms.config.JmsConsumerProperties;
 import org.springframework.cloud.stream.binder.jms.config.JmsProducerProperties;
 import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQConfigurationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.metrics.IBMMQMetrics;
+import org.springframework.cloud.stream.binder.jms.ibmmq.metrics.IBMMQMetrics.Outcome;
 import org.springframework.cloud.stream.binder.jms.provisioning.JmsConsumerDestination;
 import org.springframework.cloud.stream.binder.jms.provisioning.JmsProducerDestination;
 import org.springframework.cloud.stream.binder.jms.utils.DestinationNameResolver;
@@ -24,27 +44,200 @@ import org.springframework.cloud.stream.provisioning.ConsumerDestination;
 import org.springframework.cloud.stream.provisioning.ProducerDestination;
 import org.springframework.cloud.stream.provisioning.ProvisioningException;
 import org.springframework.cloud.stream.provisioning.ProvisioningProvider;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
 /**
  * {@link ProvisioningProvider} for IBM MQ.
  *
+ * Each topic, and each queue and subscription chain hanging off a topic, is
+ * independent of the others. When {@code provisioningConcurrency} is greater than one
+ * these chains are provisioned on a bounded executor, otherwise they are provisioned
+ * one after the other on the calling thread. Either way, failures are collected and
+ * reported as a single {@link ProvisioningException}.
+ *
+ * With {@code ibmmq.shards} configured, the objects of each partition of a
+ * partitioned destination are provisioned on the queue manager the partition is
+ * assigned to (see {@link IBMMQShards}) rather than on the top level queue manager.
+ *
+ * With {@code backgroundProvisioning}, the objects of each binding are provisioned on
+ * a background thread, retrying failures every {@code provisioningRetryInterval}
+ * milliseconds. Destinations are returned straight away;
+ * {@link #whenProvisioned(Object)} tells when their objects exist and
+ * {@link #getProvisioningStatus()} reports the progress of all bindings. The queue
+ * managers are still connected to, and the inventory of each destination prefetched,
+ * on the calling thread, so bindings whose objects all exist already are ready right
+ * away. {@link #provisionProducerDestinationNow} provisions a producer destination on
+ * the calling thread regardless.
+ *
  * @author Donovan Muller
  */
 public class IBMMQProvisioningProvider implements
-		ProvisioningProvider<ExtendedConsumerProperties<JmsConsumerProperties>, ExtendedProducerProperties<JmsProducerProperties>> {
+		ProvisioningProvider<ExtendedConsumerProperties<JmsConsumerProperties>, ExtendedProducerProperties<JmsProducerProperties>>,
+		DisposableBean {
 
 	private static final Logger logger = LoggerFactory.getLogger(IBMMQProvisioningProvider.class);
 
 	private final IBMMQRequests ibmMQRequests;
 
+	/**
+	 * Requests per shard, empty when not sharding.
+	 */
+	private final List<IBMMQRequests> shardRequests = new ArrayList<>();
+
+	private final IBMMQShards shards;
+
 	private final DestinationNameResolver destinationNameResolver;
 
+	private final IBMMQConfigurationProperties configurationProperties;
+
+	/**
+	 * {@code null} when provisioning serially.
+	 */
+	private final ExecutorService provisioningExecutor;
+
+	/**
+	 * {@code null} unless provisioning in the background.
+	 */
+	private final ScheduledExecutorService backgroundExecutor;
+
+	private final IBMMQProvisioningStatus provisioningStatus = new IBMMQProvisioningStatus();
+
+	/**
+	 * Requests whose queue manager could not be connected to for background
+	 * provisioning, so their inventory is not inquired while bindings are created.
+	 */
+	private final Set<IBMMQRequests> unreachableRequests = Collections
+			.newSetFromMap(new IdentityHashMap<>());
+
+	private volatile IBMMQMetrics metrics = IBMMQMetrics.NONE;
+
+	/**
+	 * {@code null} when queue status inquiries are disabled.
+	 */
+	private final IBMMQQueueStatusMonitor queueStatusMonitor;
+
 	public IBMMQProvisioningProvider(ConnectionFactory connectionFactory,
 			IBMMQConfigurationProperties configurationProperties, DestinationNameResolver destinationNameResolver)
 			throws MQException {
+		this(connectionFactory, configurationProperties, destinationNameResolver,
+				new IBMMQShards(configurationProperties));
+	}
+
+	public IBMMQProvisioningProvider(ConnectionFactory connectionFactory,
+			IBMMQConfigurationProperties configurationProperties, DestinationNameResolver destinationNameResolver,
+			IBMMQShards shards) throws MQException {
+		this(new IBMMQRequests(connectionFactory, configurationProperties), configurationProperties,
+				destinationNameResolver, shards);
+		for (int shard = 0; shard < shards.size(); shard++) {
+			this.shardRequests.add(new IBMMQRequests(connectionFactory, shards.getProperties(shard)));
+		}
+
+		if (this.backgroundExecutor != null) {
+			// up front, so bindings can be checked against the inventory as they are created
+			for (IBMMQRequests requests : allRequests()) {
+				if (!connect(requests)) {
+					this.unreachableRequests.add(requests);
+				}
+			}
+		}
+	}
+
+	IBMMQProvisioningProvider(IBMMQRequests ibmMQRequests,
+			IBMMQConfigurationProperties configurationProperties, DestinationNameResolver destinationNameResolver) {
+		this(ibmMQRequests, configurationProperties, destinationNameResolver,
+				new IBMMQShards(new IBMMQConfigurationProperties()));
+	}
+
+	private IBMMQProvisioningProvider(IBMMQRequests ibmMQRequests,
+			IBMMQConfigurationProperties configurationProperties, DestinationNameResolver destinationNameResolver,
+			IBMMQShards shards) {
 		this.destinationNameResolver = destinationNameResolver;
+		this.ibmMQRequests = ibmMQRequests;
+		this.configurationProperties = configurationProperties;
+		this.shards = shards;
+
+		if (configurationProperties.getProvisioningConcurrency() > 1) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("ibmmq-provisioning-");
+			threadFactory.setDaemon(true);
+			this.provisioningExecutor = Executors.newFixedThreadPool(
+					configurationProperties.getProvisioningConcurrency(), threadFactory);
+		}
+		else {
+			this.provisioningExecutor = null;
+		}
+
+		if (configurationProperties.isBackgroundProvisioning()) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("ibmmq-background-provisioning-");
+			threadFactory.setDaemon(true);
+			this.backgroundExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		}
+		else {
+			this.backgroundExecutor = null;
+		}
+
+		if (configurationProperties.getQueueStatusInterval() > 0) {
+			this.queueStatusMonitor = new IBMMQQueueStatusMonitor(ibmMQRequests,
+					configurationProperties.getQueueStatusInterval());
+			this.queueStatusMonitor.start();
+		}
+		else {
+			this.queueStatusMonitor = null;
+		}
+	}
+
+	/**
+	 * The monitor inquiring the status of provisioned consumer queues, e.g. to register
+	 * an {@link IBMMQConsumerAutoscaler} with, or {@code null} if
+	 * {@code queueStatusInterval} is not set.
+	 */
+	public IBMMQQueueStatusMonitor getQueueStatusMonitor() {
+		return queueStatusMonitor;
+	}
+
+	/**
+	 * Provision the reply queue of an {@link IBMMQRequestReplyGateway}, indexed by
+	 * correlation id unless {@code ibmmq.destinations.<queueName>.queueIndexType} says
+	 * otherwise. The queue should be used by a single application instance.
+	 */
+	public Queue provisionReplyQueue(String queueName) {
+		logger.info("Provisioning reply queue: '{}'", queueName);
+
+		// a copy, so the configured properties are left as they are
+		IBMMQDestinationProperties destinationProperties = new IBMMQDestinationProperties();
+		BeanUtils.copyProperties(configurationProperties.getDestinationProperties(queueName), destinationProperties);
+		if (destinationProperties.getQueueIndexType() == null) {
+			destinationProperties.setQueueIndexType(IBMMQDestinationProperties.IndexType.CORRELATION_ID);
+		}
+
+		return ibmMQRequests.createQueue(sanitiseObjectName(queueName), destinationProperties);
+	}
+
+	/**
+	 * Progress of the bindings provisioned in the background.
+	 */
+	public IBMMQProvisioningStatus getProvisioningStatus() {
+		return provisioningStatus;
+	}
+
+	/**
+	 * Completes once the objects behind a destination returned by this provider exist,
+	 * e.g. to hold back an {@link IBMMQBatchingProducer} or {@link IBMMQBatchingConsumer}
+	 * until then. Unless provisioning in the background, that is the case as soon as
+	 * the destination is returned.
+	 */
+	public CompletableFuture<Void> whenProvisioned(Object destination) {
+		return provisioningStatus.whenProvisioned(destination);
+	}
 
-		this.ibmMQRequests = new IBMMQRequests(connectionFactory, configurationProperties);
+	public void setMetrics(IBMMQMetrics metrics) {
+		this.metrics = metrics;
+		this.ibmMQRequests.setMetrics(metrics);
+		for (IBMMQRequests requests : this.shardRequests) {
+			requests.setMetrics(metrics);
+		}
+		if (this.queueStatusMonitor != null) {
+			this.queueStatusMonitor.setMetrics(metrics);
+		}
 	}
 
 	@Override
@@ -52,19 +245,208 @@ public class IBMMQProvisioningProvider implements
 			ExtendedProducerProperties<JmsProducerProperties> properties) throws ProvisioningException {
 		logger.info("Provisioning producer destination: '{}'", name);
 
-		Collection<DestinationNames> topicAndQueueNames = this.destinationNameResolver
-				.resolveTopicAndQueueNameForRequiredGroups(name, properties);
+		Supplier<ProducerDestination> provisioning = () -> provision(name, IBMMQMetrics.PRODUCER,
+				() -> doProvisionProducerDestination(name, properties));
+		if (backgroundExecutor == null) {
+			return provisioning.get();
+		}
 
-		final Map<Integer, Topic> partitionTopics = new HashMap<>();
+		List<DestinationNames> topicAndQueueNames = new ArrayList<>(this.destinationNameResolver
+				.resolveTopicAndQueueNameForRequiredGroups(name, properties));
+		IBMMQDestinationProperties destinationProperties = configurationProperties.getDestinationProperties(name);
+		boolean directQueue = destinationProperties.getBindingMode() == IBMMQDestinationProperties.BindingMode.QUEUE;
+
+		for (Map.Entry<IBMMQRequests, List<String>> objectNames : producerObjectNames(topicAndQueueNames,
+				directQueue).entrySet()) {
+			prefetchInventoryNow(objectNames.getKey(), objectNames.getValue());
+		}
 
+		boolean provisioned = true;
+		Map<Integer, Queue> partitionQueues = new HashMap<>();
+		Map<Integer, Topic> partitionTopics = new HashMap<>();
 		for (DestinationNames destinationNames : topicAndQueueNames) {
 			String sanitisedTopicName = sanitiseObjectName(destinationNames.getTopicName());
-			Topic topic = ibmMQRequests.createTopic(sanitisedTopicName);
+			IBMMQRequests requests = requestsFor(destinationNames.getPartitionIndex());
+			IBMMQObjectInventory inventory = requests.getInventory();
+			int partitionIndex = destinationNames.getPartitionIndex() != null ? destinationNames.getPartitionIndex() : -1;
+			if (directQueue) {
+				partitionQueues.put(partitionIndex, requests.queue(sanitisedTopicName, destinationProperties));
+				provisioned &= inventory.containsQueue(sanitisedTopicName);
+				continue;
+			}
+
+			partitionTopics.put(partitionIndex, requests.topic(sanitisedTopicName, destinationProperties));
+			provisioned &= inventory.containsTopic(sanitisedTopicName);
 			for (String queue : destinationNames.getGroupNames()) {
-				// format for the subscribing queue name is: 'topic'.'queue'
 				String sanitisedQueueName = sanitiseObjectName(String.format("%s.%s", sanitisedTopicName, queue));
-				ibmMQRequests.createQueue(sanitisedQueueName);
-				ibmMQRequests.subcribeQueueToTopic(sanitisedTopicName, sanitisedQueueName);
+				provisioned &= inventory.containsQueue(sanitisedQueueName) && inventory
+						.containsSubscription(sanitisedQueueName, destinationProperties.getSubscriptionSelector());
+			}
+		}
+
+		ProducerDestination producerDestination = directQueue ? new IBMMQProducerDestination(partitionQueues)
+				: new JmsProducerDestination(partitionTopics);
+		provisionInBackground(name, IBMMQMetrics.PRODUCER, producerDestination, provisioned, provisioning);
+		return producerDestination;
+	}
+
+	/**
+	 * Provision a producer destination on the calling thread, even with
+	 * {@code backgroundProvisioning}, for producers that send as soon as they are
+	 * bound and can't be held back until the subscriptions of their required groups
+	 * exist.
+	 */
+	public ProducerDestination provisionProducerDestinationNow(String name,
+			ExtendedProducerProperties<JmsProducerProperties> properties) throws ProvisioningException {
+		logger.info("Provisioning producer destination: '{}'", name);
+
+		return provision(name, IBMMQMetrics.PRODUCER, () -> doProvisionProducerDestination(name, properties));
+	}
+
+	@Override
+	public ConsumerDestination provisionConsumerDestination(String name, String group,
+			ExtendedConsumerProperties<JmsConsumerProperties> properties) throws ProvisioningException {
+		logger.info("Provisioning consumer destination: '{}.{}'", name, group);
+
+		Supplier<ConsumerDestination> provisioning = () -> provision(name, IBMMQMetrics.CONSUMER,
+				() -> doProvisionConsumerDestination(name, group, properties));
+		if (backgroundExecutor == null) {
+			return provisioning.get();
+		}
+
+		IBMMQDestinationProperties destinationProperties = configurationProperties.getDestinationProperties(name);
+		boolean directQueue = destinationProperties.getBindingMode() == IBMMQDestinationProperties.BindingMode.QUEUE;
+		String queueName = consumerQueueName(name, group, properties, directQueue);
+		IBMMQRequests requests = requestsFor(properties.isPartitioned() ? properties.getInstanceIndex() : null);
+		prefetchInventoryNow(requests, consumerObjectNames(name, properties, queueName, directQueue));
+		// the dead letter queue is shared by the destinations, so it is inquired on its own
+		prefetchInventoryNow(requests, Collections.singletonList(properties.getExtension().getDlqName()));
+		IBMMQObjectInventory inventory = requests.getInventory();
+
+		boolean provisioned = inventory.containsQueue(properties.getExtension().getDlqName())
+				&& inventory.containsQueue(queueName)
+				&& (directQueue || inventory.containsSubscription(queueName,
+						destinationProperties.getSubscriptionSelector()));
+
+		ConsumerDestination consumerDestination = new JmsConsumerDestination(
+				requests.queue(queueName, destinationProperties));
+		provisionInBackground(String.format("%s.%s", name, group), IBMMQMetrics.CONSUMER, consumerDestination,
+				provisioned, provisioning);
+		return consumerDestination;
+	}
+
+	private <T> T provision(String name, String type, Supplier<T> provisioning) {
+		long start = System.nanoTime();
+		try {
+			T destination = provisioning.get();
+			metrics.bindingProvisioned(name, type, Outcome.CREATED, System.nanoTime() - start);
+			return destination;
+		}
+		catch (RuntimeException e) {
+			metrics.bindingProvisioned(name, type, Outcome.ERROR, System.nanoTime() - start);
+			throw e;
+		}
+	}
+
+	/**
+	 * Track the binding and queue its provisioning on the background thread.
+	 * @param provisioned whether all of the binding's objects are known to exist
+	 * already, in which case it is ready straight away and the background run only
+	 * brings their attributes up to date
+	 */
+	private void provisionInBackground(String name, String type, Object destination, boolean provisioned,
+			Supplier<?> provisioning) {
+		IBMMQProvisioningStatus.Binding binding = provisioningStatus.register(name, type, destination);
+		if (provisioned) {
+			binding.ready();
+		}
+
+		backgroundExecutor.execute(() -> provisionInBackground(binding, provisioning));
+	}
+
+	private void provisionInBackground(IBMMQProvisioningStatus.Binding binding, Supplier<?> provisioning) {
+		binding.attempted();
+		try {
+			provisioning.get();
+			binding.ready();
+			logger.info("Provisioned {} '{}' in the background", binding.getType(), binding.getName());
+		}
+		catch (RuntimeException e) {
+			long retryInterval = configurationProperties.getProvisioningRetryInterval();
+			boolean retrying = retryInterval > 0 && !backgroundExecutor.isShutdown();
+			logger.error(String.format("Could not provision %s '%s'%s", binding.getType(), binding.getName(),
+					retrying ? String.format(", retrying in %dms", retryInterval) : ""), e);
+			binding.failed(e, retrying);
+			if (retrying) {
+				backgroundExecutor.schedule(() -> provisionInBackground(binding, provisioning), retryInterval,
+						TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	/**
+	 * @return whether the queue manager could be connected to
+	 */
+	private boolean connect(IBMMQRequests requests) {
+		try {
+			requests.connect();
+			return true;
+		}
+		catch (RuntimeException e) {
+			// bindings will be retried once the queue manager can be reached
+			logger.error("Could not connect to the queue manager for background provisioning", e);
+			return false;
+		}
+	}
+
+	private ProducerDestination doProvisionProducerDestination(String name,
+			ExtendedProducerProperties<JmsProducerProperties> properties) {
+
+		List<DestinationNames> topicAndQueueNames = new ArrayList<>(this.destinationNameResolver
+				.resolveTopicAndQueueNameForRequiredGroups(name, properties));
+		final IBMMQDestinationProperties destinationProperties = configurationProperties
+				.getDestinationProperties(name);
+		boolean directQueue = destinationProperties.getBindingMode() == IBMMQDestinationProperties.BindingMode.QUEUE;
+		for (Map.Entry<IBMMQRequests, List<String>> objectNames : producerObjectNames(topicAndQueueNames,
+				directQueue).entrySet()) {
+			prefetchInventory(objectNames.getKey(), objectNames.getValue());
+		}
+		if (directQueue) {
+			return provisionProducerQueues(name, topicAndQueueNames, destinationProperties);
+		}
+
+		List<Throwable> failures = new ArrayList<>();
+
+		List<Callable<Topic>> topicTasks = new ArrayList<>();
+		for (DestinationNames destinationNames : topicAndQueueNames) {
+			final String sanitisedTopicName = sanitiseObjectName(destinationNames.getTopicName());
+			final IBMMQRequests requests = requestsFor(destinationNames.getPartitionIndex());
+			topicTasks.add(() -> requests.createTopic(sanitisedTopicName, destinationProperties));
+		}
+		List<Topic> topics = invokeAll(topicTasks, failures);
+
+		final Map<Integer, Topic> partitionTopics = new HashMap<>();
+		List<Callable<Void>> subscriptionTasks = new ArrayList<>();
+		for (int i = 0; i < topicAndQueueNames.size(); i++) {
+			Topic topic = topics.get(i);
+			if (topic == null) {
+				// the topic failed, so don't bother subscribing to it
+				continue;
+			}
+
+			DestinationNames destinationNames = topicAndQueueNames.get(i);
+			final String sanitisedTopicName = sanitiseObjectName(destinationNames.getTopicName());
+			final IBMMQRequests requests = requestsFor(destinationNames.getPartitionIndex());
+			for (String queue : destinationNames.getGroupNames()) {
+				// format for the subscribing queue name is: 'topic'.'queue'
+				final String sanitisedQueueName = sanitiseObjectName(
+						String.format("%s.%s", sanitisedTopicName, queue));
+				subscriptionTasks.add(() -> {
+					requests.createQueue(sanitisedQueueName, destinationProperties);
+					requests.subcribeQueueToTopic(sanitisedTopicName, sanitisedQueueName,
+							destinationProperties.getSubscriptionSelector());
+					return null;
+				});
 			}
 
 			if (destinationNames.getPartitionIndex() != null) {
@@ -74,33 +456,288 @@ public class IBMMQProvisioningProvider implements
 				partitionTopics.put(-1, topic);
 			}
 		}
+		invokeAll(subscriptionTasks, failures);
+
+		throwIfFailed(name, failures);
 
 		return new JmsProducerDestination(partitionTopics);
 	}
 
-	@Override
-	public ConsumerDestination provisionConsumerDestination(String name, String group,
-			ExtendedConsumerProperties<JmsConsumerProperties> properties) throws ProvisioningException {
-		logger.info("Provisioning consumer destination: '{}.{}'", name, group);
+	/**
+	 * Provision a plain local queue, named as the topic would have been, per
+	 * partition. Required groups are ignored, as every consumer reads from the same
+	 * queue.
+	 */
+	private ProducerDestination provisionProducerQueues(String name, List<DestinationNames> topicAndQueueNames,
+			final IBMMQDestinationProperties destinationProperties) {
+		List<Callable<Queue>> queueTasks = new ArrayList<>();
+		for (DestinationNames destinationNames : topicAndQueueNames) {
+			final String sanitisedQueueName = sanitiseObjectName(destinationNames.getTopicName());
+			final IBMMQRequests requests = requestsFor(destinationNames.getPartitionIndex());
+			queueTasks.add(() -> requests.createQueue(sanitisedQueueName, destinationProperties));
+		}
 
-		ibmMQRequests.createQueue(properties.getExtension().getDlqName());
+		List<Throwable> failures = new ArrayList<>();
+		List<Queue> queues = invokeAll(queueTasks, failures);
+		throwIfFailed(name, failures);
 
-		String queueName = this.destinationNameResolver.resolveQueueNameForInputGroup(group, properties);
+		final Map<Integer, Queue> partitionQueues = new HashMap<>();
+		for (int i = 0; i < topicAndQueueNames.size(); i++) {
+			Integer partitionIndex = topicAndQueueNames.get(i).getPartitionIndex();
+			partitionQueues.put(partitionIndex != null ? partitionIndex : -1, queues.get(i));
+		}
+
+		return new IBMMQProducerDestination(partitionQueues);
+	}
+
+	private ConsumerDestination doProvisionConsumerDestination(String name, String group,
+			final ExtendedConsumerProperties<JmsConsumerProperties> properties) {
+		final String topicName = sanitiseObjectName(
+				this.destinationNameResolver.resolveQueueNameForInputGroup(name, properties));
+		final IBMMQDestinationProperties destinationProperties = configurationProperties
+				.getDestinationProperties(name);
+		final boolean directQueue = destinationProperties
+				.getBindingMode() == IBMMQDestinationProperties.BindingMode.QUEUE;
+		final String sanitisedQueueName = consumerQueueName(name, group, properties, directQueue);
+
+		final String deadLetterQueueName = properties.getExtension().getDlqName();
+		// a partitioned consumer's instance index is the partition it consumes
+		final IBMMQRequests requests = requestsFor(properties.isPartitioned() ? properties.getInstanceIndex() : null);
+		prefetchInventory(requests, consumerObjectNames(name, properties, sanitisedQueueName, directQueue));
+		prefetchInventory(requests, Collections.singletonList(deadLetterQueueName));
+
+		List<Callable<Queue>> tasks = new ArrayList<>();
+		tasks.add(() -> requests.createDeadLetterQueue(deadLetterQueueName));
+		tasks.add(() -> {
+			Queue queue = requests.createQueue(sanitisedQueueName, destinationProperties,
+					deadLetterQueueName);
+			if (!directQueue) {
+				requests.subcribeQueueToTopic(topicName, sanitisedQueueName,
+						destinationProperties.getSubscriptionSelector());
+			}
+			return queue;
+		});
+
+		List<Throwable> failures = new ArrayList<>();
+		List<Queue> queues = invokeAll(tasks, failures);
+		throwIfFailed(String.format("%s.%s", name, group), failures);
+
+		// the monitor inquires the top level queue manager only
+		if (queueStatusMonitor != null && requests == ibmMQRequests) {
+			queueStatusMonitor.monitor(sanitisedQueueName);
+		}
+
+		return new JmsConsumerDestination(queues.get(1));
+	}
+
+	/**
+	 * Without an {@code inventoryFilter}, inquire the given objects, about to be
+	 * provisioned on the queue manager of the requests, rather than every object on it.
+	 * Each filter is only inquired once per queue manager.
+	 */
+	private void prefetchInventory(IBMMQRequests requests, Collection<String> objectNames) {
+		if (configurationProperties.isInventoryPrefetch() && configurationProperties.getInventoryFilter() == null) {
+			for (String filter : inventoryFilters(objectNames)) {
+				requests.prefetchInventory(filter);
+			}
+		}
+	}
+
+	/**
+	 * Prefetch the inventory of the given objects on the calling thread, before their
+	 * binding is checked against it, unless the queue manager could not be reached.
+	 */
+	private void prefetchInventoryNow(IBMMQRequests requests, Collection<String> objectNames) {
+		if (!unreachableRequests.contains(requests)) {
+			prefetchInventory(requests, objectNames);
+		}
+	}
+
+	/**
+	 * The topic and group queues of each partition of a producer destination, by the
+	 * queue manager they are provisioned on.
+	 */
+	private Map<IBMMQRequests, List<String>> producerObjectNames(List<DestinationNames> topicAndQueueNames,
+			boolean directQueue) {
+		Map<IBMMQRequests, List<String>> objectNames = new IdentityHashMap<>();
+		for (DestinationNames destinationNames : topicAndQueueNames) {
+			String sanitisedTopicName = sanitiseObjectName(destinationNames.getTopicName());
+			List<String> names = objectNames.computeIfAbsent(requestsFor(destinationNames.getPartitionIndex()),
+					requests -> new ArrayList<>());
+			names.add(sanitisedTopicName);
+			if (!directQueue) {
+				for (String queue : destinationNames.getGroupNames()) {
+					names.add(sanitiseObjectName(String.format("%s.%s", sanitisedTopicName, queue)));
+				}
+			}
+		}
+
+		return objectNames;
+	}
+
+	/**
+	 * The topic and queue of a consumer destination.
+	 */
+	private List<String> consumerObjectNames(String name, ExtendedConsumerProperties<JmsConsumerProperties> properties,
+			String queueName, boolean directQueue) {
+		List<String> objectNames = new ArrayList<>();
+		if (!directQueue) {
+			objectNames.add(sanitiseObjectName(
+					this.destinationNameResolver.resolveQueueNameForInputGroup(name, properties)));
+		}
+		objectNames.add(queueName);
+
+		return objectNames;
+	}
+
+	/**
+	 * Generic names matching the given sanitised object names: one for the prefix they
+	 * share, or, if they share none, one per name. Built from the names themselves
+	 * rather than the destination name, as long names are shortened from the start.
+	 */
+	static List<String> inventoryFilters(Collection<String> objectNames) {
+		String prefix = null;
+		for (String objectName : objectNames) {
+			prefix = prefix == null ? objectName : commonPrefix(prefix, objectName);
+		}
+		if (prefix == null) {
+			return Collections.emptyList();
+		}
+		if (prefix.isEmpty()) {
+			return new ArrayList<>(new LinkedHashSet<>(objectNames));
+		}
+
+		// generic names are limited to 48 characters too, including the asterisk
+		return Collections.singletonList(prefix.length() < 48 ? prefix + "*" : prefix);
+	}
+
+	private static String commonPrefix(String first, String second) {
+		int length = 0;
+		while (length < first.length() && length < second.length()
+				&& first.charAt(length) == second.charAt(length)) {
+			length++;
+		}
+
+		return first.substring(0, length);
+	}
+
+	private String consumerQueueName(String name, String group,
+			ExtendedConsumerProperties<JmsConsumerProperties> properties, boolean directQueue) {
 		String topicName = sanitiseObjectName(
 				this.destinationNameResolver.resolveQueueNameForInputGroup(name, properties));
+		if (directQueue) {
+			// in queue mode all groups read from the queue the producer puts to
+			return topicName;
+		}
+
+		String queueName = this.destinationNameResolver.resolveQueueNameForInputGroup(group, properties);
+		return sanitiseObjectName(String.format("%s.%s", topicName, queueName));
+	}
+
+	@Override
+	public void destroy() {
+		if (backgroundExecutor != null) {
+			backgroundExecutor.shutdownNow();
+		}
+		if (queueStatusMonitor != null) {
+			queueStatusMonitor.stop();
+		}
+		if (provisioningExecutor != null) {
+			provisioningExecutor.shutdownNow();
+		}
+		ibmMQRequests.close();
+		for (IBMMQRequests requests : shardRequests) {
+			requests.close();
+		}
+	}
+
+	private List<IBMMQRequests> allRequests() {
+		List<IBMMQRequests> requests = new ArrayList<>(shardRequests.size() + 1);
+		requests.add(ibmMQRequests);
+		requests.addAll(shardRequests);
+		return requests;
+	}
+
+	/**
+	 * The requests for the queue manager holding the given partition, the top level
+	 * one for non-partitioned destinations or when not sharding.
+	 */
+	private IBMMQRequests requestsFor(Integer partitionIndex) {
+		if (partitionIndex == null || shardRequests.isEmpty()) {
+			return ibmMQRequests;
+		}
+
+		return shardRequests.get(shards.shardFor(partitionIndex));
+	}
+
+	/**
+	 * Run the given tasks, in parallel if an executor is configured. Results are
+	 * returned in task order, with {@code null} for any task that failed; failures are
+	 * added to the given list.
+	 */
+	private <T> List<T> invokeAll(List<Callable<T>> tasks, List<Throwable> failures) {
+		List<T> results = new ArrayList<>(tasks.size());
+
+		if (provisioningExecutor == null) {
+			for (Callable<T> task : tasks) {
+				try {
+					results.add(task.call());
+				}
+				catch (Exception e) {
+					failures.add(e);
+					results.add(null);
+				}
+			}
+			return results;
+		}
+
+		List<Future<T>> futures = new ArrayList<>(tasks.size());
+		for (Callable<T> task : tasks) {
+			futures.add(provisioningExecutor.submit(task));
+		}
+		for (Future<T> future : futures) {
+			try {
+				results.add(future.get());
+			}
+			catch (ExecutionException e) {
+				failures.add(e.getCause());
+				results.add(null);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				for (Future<T> outstanding : futures) {
+					outstanding.cancel(true);
+				}
+				throw new ProvisioningException("Interrupted while provisioning", e);
+			}
+		}
+
+		return results;
+	}
 
-		String sanitisedQueueName = sanitiseObjectName(String.format("%s.%s", topicName, queueName));
-		Queue queue = ibmMQRequests.createQueue(sanitisedQueueName);
-		ibmMQRequests.subcribeQueueToTopic(topicName, sanitisedQueueName);
+	private void throwIfFailed(String destination, List<Throwable> failures) {
+		if (failures.isEmpty()) {
+			return;
+		}
 
-		return new JmsConsumerDestination(queue);
+		StringBuilder message = new StringBuilder(String.format(
+				"Could not provision %d object(s) for destination '%s':", failures.size(), destination));
+		for (Throwable failure : failures) {
+			message.append(System.lineSeparator()).append(" - ").append(failure.getMessage());
+		}
+
+		ProvisioningException exception = new ProvisioningException(message.toString(), failures.get(0));
+		for (Throwable failure : failures.subList(1, failures.size())) {
+			exception.addSuppressed(failure);
+		}
+		throw exception;
 	}
 
 	/**
 	 * Objects referring to MQ Objects. See naming convention rules here:
 	 * https://www.ibm.com/support/knowledgecenter/SSFKSJ_9.0.0/com.ibm.mq.pro.doc/q003340_.htm
 	 */
-	private String sanitiseObjectName(String object) {
+	static String sanitiseObjectName(String object) {
 		String sanitisedObjectName = object.replaceAll("[^A-Za-z0-9._/%]", "").trim();
 		if (sanitisedObjectName.length() > 48) {
 			// strip characters from the start of the object name
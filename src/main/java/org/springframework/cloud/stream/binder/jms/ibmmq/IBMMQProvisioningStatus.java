@@ -0,0 +1,141 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Progress of the bindings provisioned in the background (see
+ * {@code ibmmq.backgroundProvisioning}), e.g. for a readiness health indicator.
+ *
+ * Bindings provisioned synchronously are not tracked, as they are ready by the time
+ * their destination is returned. A binding stays ready once its objects exist, even
+ * if a later attempt to bring their attributes up to date fails; the failure is still
+ * recorded.
+ */
+public class IBMMQProvisioningStatus {
+
+	private final List<Binding> bindings = Collections.synchronizedList(new ArrayList<>());
+
+	/**
+	 * Returned destinations to their binding.
+	 */
+	private final Map<Object, Binding> destinations = Collections.synchronizedMap(new IdentityHashMap<>());
+
+	/**
+	 * Start tracking a binding whose objects are being provisioned.
+	 * @param destination the destination returned for the binding
+	 */
+	public Binding register(String name, String type, Object destination) {
+		Binding binding = new Binding(name, type);
+		this.bindings.add(binding);
+		this.destinations.put(destination, binding);
+		return binding;
+	}
+
+	/**
+	 * Completes once the objects of the binding the given destination was returned for
+	 * have been provisioned, right away for destinations that are not tracked.
+	 * Completes exceptionally if provisioning failed and will not be retried.
+	 */
+	public CompletableFuture<Void> whenProvisioned(Object destination) {
+		Binding binding = this.destinations.get(destination);
+		return binding != null ? binding.provisioned : CompletableFuture.completedFuture(null);
+	}
+
+	public List<Binding> getBindings() {
+		synchronized (this.bindings) {
+			return new ArrayList<>(this.bindings);
+		}
+	}
+
+	public int count(State state) {
+		int count = 0;
+		for (Binding binding : getBindings()) {
+			if (binding.getState() == state) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	public enum State {
+		PENDING, READY, FAILED
+	}
+
+	public static class Binding {
+
+		private final String name;
+
+		private final String type;
+
+		private final CompletableFuture<Void> provisioned = new CompletableFuture<>();
+
+		private volatile State state = State.PENDING;
+
+		private volatile Throwable failure;
+
+		private volatile int attempts;
+
+		Binding(String name, String type) {
+			this.name = name;
+			this.type = type;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * {@code producer} or {@code consumer}.
+		 */
+		public String getType() {
+			return type;
+		}
+
+		public State getState() {
+			return state;
+		}
+
+		/**
+		 * The failure of the last attempt, {@code null} once an attempt succeeds.
+		 */
+		public Throwable getFailure() {
+			return failure;
+		}
+
+		public int getAttempts() {
+			return attempts;
+		}
+
+		void ready() {
+			this.failure = null;
+			this.state = State.READY;
+			this.provisioned.complete(null);
+		}
+
+		/**
+		 * @param retrying whether provisioning will be attempted again, otherwise
+		 * anything waiting for the binding is failed, unless it is ready already
+		 */
+		void failed(Throwable failure, boolean retrying) {
+			this.failure = failure;
+			if (this.state == State.READY) {
+				// its objects exist, only updating them failed
+				return;
+			}
+
+			this.state = State.FAILED;
+			if (!retrying) {
+				this.provisioned.completeExceptionally(failure);
+			}
+		}
+
+		void attempted() {
+			this.attempts++;
+		}
+	}
+}
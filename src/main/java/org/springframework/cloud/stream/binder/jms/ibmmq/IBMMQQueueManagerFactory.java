@@ -0,0 +1,130 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+
+import com.ibm.mq.MQException;
+import com.ibm.mq.MQQueueManager;
+import com.ibm.mq.constants.MQConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQConfigurationProperties;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link MQQueueManagerFactory} connecting with the host, port, channel and
+ * credentials of the given {@link IBMMQConfigurationProperties}. The connection
+ * properties are passed to each {@link MQQueueManager} explicitly rather than through
+ * the static {@code MQEnvironment} fields, so binders connected to different queue
+ * managers can coexist in one JVM.
+ *
+ * With a {@code connectionNameList}, its addresses are tried in turn, as the MQ client
+ * does for JMS connections, so that whichever instance of a multi-instance queue
+ * manager is active gets connected to.
+ */
+public class IBMMQQueueManagerFactory implements MQQueueManagerFactory {
+
+	private static final Logger logger = LoggerFactory.getLogger(IBMMQQueueManagerFactory.class);
+
+	private static final int DEFAULT_PORT = 1414;
+
+	private final IBMMQConfigurationProperties configurationProperties;
+
+	public IBMMQQueueManagerFactory(IBMMQConfigurationProperties configurationProperties) {
+		this.configurationProperties = configurationProperties;
+	}
+
+	@Override
+	public MQQueueManager createQueueManager() throws MQException {
+		List<Address> addresses = addresses();
+		MQException failure = null;
+		for (Address address : addresses) {
+			try {
+				return connect(address.host, address.port);
+			}
+			catch (MQException e) {
+				if (addresses.size() > 1) {
+					logger.warn("Could not connect to queue manager '{}' at {}({}), reason {}",
+							configurationProperties.getQueueManager(), address.host, address.port, e.getReason());
+				}
+				failure = e;
+			}
+		}
+
+		throw failure;
+	}
+
+	MQQueueManager connect(String host, int port) throws MQException {
+		return new MQQueueManager(configurationProperties.getQueueManager(), connectionProperties(host, port));
+	}
+
+	/**
+	 * The addresses from the connection name list, or the host and port.
+	 */
+	List<Address> addresses() {
+		List<Address> addresses = new ArrayList<>();
+		if (StringUtils.hasText(configurationProperties.getConnectionNameList())) {
+			for (String connectionName : StringUtils
+					.commaDelimitedListToStringArray(configurationProperties.getConnectionNameList())) {
+				addresses.add(Address.parse(connectionName.trim()));
+			}
+		}
+		else {
+			addresses.add(new Address(configurationProperties.getHost(), configurationProperties.getPort()));
+		}
+
+		return addresses;
+	}
+
+	Hashtable<String, Object> connectionProperties() {
+		Address address = addresses().get(0);
+		return connectionProperties(address.host, address.port);
+	}
+
+	/**
+	 * A new table each time, as the MQ client may hold on to the one it is given.
+	 */
+	Hashtable<String, Object> connectionProperties(String host, int port) {
+		Hashtable<String, Object> properties = new Hashtable<>();
+		properties.put(MQConstants.TRANSPORT_PROPERTY, MQConstants.TRANSPORT_MQSERIES_CLIENT);
+		properties.put(MQConstants.HOST_NAME_PROPERTY, host);
+		properties.put(MQConstants.PORT_PROPERTY, port);
+		properties.put(MQConstants.CHANNEL_PROPERTY, configurationProperties.getChannel());
+		if (!StringUtils.isEmpty(configurationProperties.getUsername())) {
+			properties.put(MQConstants.USER_ID_PROPERTY, configurationProperties.getUsername());
+			properties.put(MQConstants.PASSWORD_PROPERTY, configurationProperties.getPassword());
+			if (configurationProperties.isMqcspAuthentication()) {
+				properties.put(MQConstants.USE_MQCSP_AUTHENTICATION_PROPERTY, true);
+			}
+		}
+
+		return properties;
+	}
+
+	/**
+	 * A {@code host(port)} connection name.
+	 */
+	static class Address {
+
+		final String host;
+
+		final int port;
+
+		Address(String host, Integer port) {
+			this.host = host;
+			this.port = port != null ? port : DEFAULT_PORT;
+		}
+
+		static Address parse(String connectionName) {
+			int open = connectionName.indexOf('(');
+			if (open < 0) {
+				return new Address(connectionName, null);
+			}
+
+			return new Address(connectionName.substring(0, open).trim(), Integer.parseInt(
+					connectionName.substring(open + 1, connectionName.indexOf(')', open)).trim()));
+		}
+	}
+}
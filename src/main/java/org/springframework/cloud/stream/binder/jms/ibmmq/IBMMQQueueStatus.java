@@ -0,0 +1,51 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+/**
+ * Point in time status of a local queue, as returned by a queue status inquiry.
+ */
+public class IBMMQQueueStatus {
+
+	private final String queueName;
+
+	private final int currentDepth;
+
+	private final int oldestMessageAge;
+
+	private final int openInputCount;
+
+	public IBMMQQueueStatus(String queueName, int currentDepth, int oldestMessageAge, int openInputCount) {
+		this.queueName = queueName;
+		this.currentDepth = currentDepth;
+		this.oldestMessageAge = oldestMessageAge;
+		this.openInputCount = openInputCount;
+	}
+
+	public String getQueueName() {
+		return queueName;
+	}
+
+	public int getCurrentDepth() {
+		return currentDepth;
+	}
+
+	/**
+	 * Age, in seconds, of the oldest message on the queue, or -1 if queue monitoring
+	 * (MONQ) is not enabled for the queue.
+	 */
+	public int getOldestMessageAge() {
+		return oldestMessageAge;
+	}
+
+	/**
+	 * Number of handles currently open for input, i.e. the number of consumers.
+	 */
+	public int getOpenInputCount() {
+		return openInputCount;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("IBMMQQueueStatus[queueName=%s, currentDepth=%d, oldestMessageAge=%d, openInputCount=%d]",
+				queueName, currentDepth, oldestMessageAge, openInputCount);
+	}
+}
@@ -0,0 +1,110 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.stream.binder.jms.ibmmq.metrics.IBMMQMetrics;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Periodically inquires the status (current depth, oldest message age and open input
+ * count) of the consumer queues provisioned by {@link IBMMQProvisioningProvider},
+ * publishes it through {@link IBMMQMetrics} and hands it to any registered
+ * {@link Listener}s, such as an {@link IBMMQConsumerAutoscaler}.
+ */
+public class IBMMQQueueStatusMonitor {
+
+	private static final Logger logger = LoggerFactory.getLogger(IBMMQQueueStatusMonitor.class);
+
+	private final IBMMQRequests ibmMQRequests;
+
+	private final long interval;
+
+	private final ConcurrentMap<String, List<Listener>> queues = new ConcurrentHashMap<>();
+
+	private volatile IBMMQMetrics metrics = IBMMQMetrics.NONE;
+
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * @param interval milliseconds between status inquiries
+	 */
+	public IBMMQQueueStatusMonitor(IBMMQRequests ibmMQRequests, long interval) {
+		this.ibmMQRequests = ibmMQRequests;
+		this.interval = interval;
+	}
+
+	public void setMetrics(IBMMQMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Include the given queue in the status inquiries.
+	 */
+	public void monitor(String queueName) {
+		queues.putIfAbsent(queueName, new CopyOnWriteArrayList<Listener>());
+	}
+
+	/**
+	 * Monitor the given queue and notify the listener of every status inquired.
+	 */
+	public void addListener(String queueName, Listener listener) {
+		monitor(queueName);
+		queues.get(queueName).add(listener);
+	}
+
+	public Set<String> getMonitoredQueues() {
+		return queues.keySet();
+	}
+
+	public synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("ibmmq-queue-status-");
+		threadFactory.setDaemon(true);
+		scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		scheduler.scheduleWithFixedDelay(this::poll, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * Inquire the status of all monitored queues once.
+	 */
+	public void poll() {
+		for (String queueName : queues.keySet()) {
+			try {
+				IBMMQQueueStatus status = ibmMQRequests.inquireQueueStatus(queueName);
+				metrics.queueStatus(status);
+				for (Listener listener : queues.get(queueName)) {
+					listener.queueStatus(status);
+				}
+			}
+			catch (RuntimeException e) {
+				logger.warn(String.format("Could not inquire status of queue '%s'", queueName), e);
+			}
+		}
+	}
+
+	public interface Listener {
+
+		void queueStatus(IBMMQQueueStatus status);
+
+	}
+}
@@ -0,0 +1,137 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntSupplier;
+
+import com.ibm.mq.MQException;
+import com.ibm.mq.constants.MQConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.stream.binder.jms.ibmmq.metrics.IBMMQMetrics;
+import org.springframework.jms.connection.SingleConnectionFactory;
+
+/**
+ * {@link ExceptionListener} for connections that the MQ client reconnects itself
+ * ({@code ibmmq.clientReconnect}). The client reports a reconnect in progress and its
+ * outcome through the listener; this records how long it took and how many messages
+ * were waiting on it. Any other failure, including a reconnect that timed out, resets
+ * the shared connection so the next use opens a new one.
+ *
+ * The {@link IBMMQBatchingProducer}, {@link IBMMQBatchingConsumer} and
+ * {@link IBMMQKeyOrderedConsumer} count their messages in flight with the listener of
+ * their connection factory while they run. The stock binder's bindings don't expose
+ * theirs.
+ */
+public class IBMMQReconnectListener implements ExceptionListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(IBMMQReconnectListener.class);
+
+	private final List<IntSupplier> inFlight = new CopyOnWriteArrayList<>();
+
+	private IBMMQMetrics metrics = IBMMQMetrics.NONE;
+
+	private SingleConnectionFactory connectionFactory;
+
+	/**
+	 * {@link System#nanoTime()} the reconnect in progress started at, 0 if none is.
+	 */
+	private long reconnectStarted;
+
+	private int reconnectInFlight;
+
+	public void setMetrics(IBMMQMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * The connection factory whose connection to reset when the client gives up.
+	 */
+	public void setConnectionFactory(SingleConnectionFactory connectionFactory) {
+		this.connectionFactory = connectionFactory;
+	}
+
+	/**
+	 * Count the messages the given source has waiting, e.g.
+	 * {@link IBMMQBatchingProducer#getInFlight()}, as in flight during a reconnect.
+	 */
+	public void addInFlight(IntSupplier source) {
+		this.inFlight.add(source);
+	}
+
+	public void removeInFlight(IntSupplier source) {
+		this.inFlight.remove(source);
+	}
+
+	/**
+	 * The listener of the given connection factory, {@code null} if it has none, e.g.
+	 * without {@code ibmmq.clientReconnect}.
+	 */
+	static IBMMQReconnectListener of(ConnectionFactory connectionFactory) {
+		if (connectionFactory instanceof SingleConnectionFactory && ((SingleConnectionFactory) connectionFactory)
+				.getExceptionListener() instanceof IBMMQReconnectListener) {
+			return (IBMMQReconnectListener) ((SingleConnectionFactory) connectionFactory).getExceptionListener();
+		}
+
+		return null;
+	}
+
+	@Override
+	public synchronized void onException(JMSException exception) {
+		int reason = reason(exception);
+		if (reason == MQConstants.MQRC_RECONNECTING) {
+			if (this.reconnectStarted == 0) {
+				this.reconnectStarted = System.nanoTime();
+				this.reconnectInFlight = inFlight();
+				logger.warn("Connection to the queue manager lost, reconnecting");
+			}
+			return;
+		}
+
+		if (reason == MQConstants.MQRC_RECONNECTED) {
+			if (this.reconnectStarted != 0) {
+				long duration = System.nanoTime() - this.reconnectStarted;
+				logger.info("Reconnected to the queue manager after {}ms", duration / 1_000_000);
+				this.metrics.reconnected(IBMMQMetrics.JMS, duration, this.reconnectInFlight);
+				this.reconnectStarted = 0;
+			}
+			return;
+		}
+
+		if (this.reconnectStarted != 0) {
+			this.metrics.reconnectFailed(IBMMQMetrics.JMS, System.nanoTime() - this.reconnectStarted);
+			this.reconnectStarted = 0;
+		}
+		logger.error("Connection to the queue manager failed, reason " + reason, exception);
+		if (this.connectionFactory != null) {
+			this.connectionFactory.resetConnection();
+		}
+	}
+
+	private int inFlight() {
+		int count = 0;
+		for (IntSupplier source : this.inFlight) {
+			count += source.getAsInt();
+		}
+		return count;
+	}
+
+	/**
+	 * The MQ reason code linked to the exception, -1 if there is none.
+	 */
+	static int reason(JMSException exception) {
+		Throwable cause = exception.getLinkedException() != null ? exception.getLinkedException() : exception;
+		while (cause != null) {
+			if (cause instanceof MQException) {
+				return ((MQException) cause).getReason();
+			}
+			cause = cause.getCause();
+		}
+
+		return -1;
+	}
+}
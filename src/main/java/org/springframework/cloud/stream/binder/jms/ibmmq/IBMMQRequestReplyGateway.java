@@ -0,0 +1,427 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import java.security.SecureRandom;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.context.Lifecycle;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.jms.support.converter.MessagingMessageConverter;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.MessagingException;
+import org.springframework.util.Assert;
+
+/**
+ * Synchronous request/reply over a shared, per instance reply queue, see
+ * {@link IBMMQProvisioningProvider#provisionReplyQueue(String)}, instead of a
+ * temporary dynamic queue created and deleted for every request.
+ *
+ * Each request is sent with a generated {@code JMSCorrelationID} and the reply queue
+ * as {@code JMSReplyTo}; responders must copy the correlation id onto their reply. A
+ * single dispatcher thread receives every reply from the reply queue and completes
+ * the future of the request with the same correlation id. Replies arriving after
+ * their request timed out are discarded.
+ *
+ * At most {@code maxInFlight} requests may be outstanding; further requests wait up
+ * to the timeout for one to complete.
+ *
+ * Requests are sent on one long lived connection, with a session and producer per
+ * concurrent sender kept for the next request, rather than connecting for every
+ * request. The connection is opened again after a send fails.
+ */
+public class IBMMQRequestReplyGateway implements Lifecycle {
+
+	private static final Logger logger = LoggerFactory.getLogger(IBMMQRequestReplyGateway.class);
+
+	private final ConnectionFactory connectionFactory;
+
+	private final Queue replyQueue;
+
+	private final Map<String, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+
+	/**
+	 * Random per gateway prefix, so correlation ids don't clash across restarts.
+	 */
+	private final String correlationIdPrefix;
+
+	private final AtomicLong correlationIdSequence = new AtomicLong();
+
+	private MessageConverter messageConverter = new MessagingMessageConverter(new IBMMQBytesMessageConverter(0));
+
+	/**
+	 * Milliseconds to wait for a reply.
+	 */
+	private long timeout = 5000;
+
+	private int maxInFlight = 100;
+
+	/**
+	 * Milliseconds to wait before reconnecting after a JMS failure.
+	 */
+	private long recoveryInterval = 5000;
+
+	private Semaphore inFlight;
+
+	private volatile boolean running;
+
+	private Thread dispatcherThread;
+
+	private final Object connectionMonitor = new Object();
+
+	/**
+	 * Connection the requests are sent on, guarded by the connection monitor.
+	 */
+	private Connection connection;
+
+	private final Deque<Sender> idleSenders = new ConcurrentLinkedDeque<>();
+
+	public IBMMQRequestReplyGateway(ConnectionFactory connectionFactory, Queue replyQueue) {
+		this.connectionFactory = connectionFactory;
+		this.replyQueue = replyQueue;
+
+		byte[] prefix = new byte[8];
+		new SecureRandom().nextBytes(prefix);
+		StringBuilder builder = new StringBuilder("ID:");
+		for (byte b : prefix) {
+			builder.append(String.format("%02x", b));
+		}
+		this.correlationIdPrefix = builder.toString();
+	}
+
+	public void setMessageConverter(MessageConverter messageConverter) {
+		this.messageConverter = messageConverter;
+	}
+
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	public void setMaxInFlight(int maxInFlight) {
+		this.maxInFlight = maxInFlight;
+	}
+
+	public void setRecoveryInterval(long recoveryInterval) {
+		this.recoveryInterval = recoveryInterval;
+	}
+
+	/**
+	 * Send the request to the given destination and return a future completed with
+	 * the reply, or exceptionally with a {@link TimeoutException} if no reply arrives
+	 * within the timeout.
+	 */
+	public CompletableFuture<Message<?>> send(Destination requestDestination, Message<?> request) {
+		Assert.state(this.running, "Request/reply gateway is not running");
+
+		CompletableFuture<Message<?>> future = new CompletableFuture<>();
+		try {
+			if (!this.inFlight.tryAcquire(this.timeout, TimeUnit.MILLISECONDS)) {
+				future.completeExceptionally(new TimeoutException(
+						String.format("More than %d requests in flight", this.maxInFlight)));
+				return future;
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			future.completeExceptionally(e);
+			return future;
+		}
+
+		// the hex digits make up the 24 byte MQ correlation id the reply queue is indexed on
+		String correlationId = String.format("%s%032x", this.correlationIdPrefix,
+				this.correlationIdSequence.incrementAndGet());
+		PendingRequest pendingRequest = new PendingRequest(future, System.currentTimeMillis() + this.timeout);
+		this.pendingRequests.put(correlationId, pendingRequest);
+		future.whenComplete((reply, failure) -> this.inFlight.release());
+
+		Sender sender = null;
+		try {
+			sender = borrowSender();
+			javax.jms.Message message = this.messageConverter.toMessage(request, sender.session);
+			message.setJMSCorrelationID(correlationId);
+			message.setJMSReplyTo(this.replyQueue);
+			sender.producer.send(requestDestination, message);
+			this.idleSenders.push(sender);
+		}
+		catch (JMSException e) {
+			this.pendingRequests.remove(correlationId);
+			future.completeExceptionally(e);
+			if (sender != null) {
+				sender.close();
+			}
+			resetConnection(sender != null ? sender.connection : null);
+		}
+		catch (RuntimeException e) {
+			// the request could not be converted, the session is still good
+			this.pendingRequests.remove(correlationId);
+			future.completeExceptionally(e);
+			if (sender != null) {
+				this.idleSenders.push(sender);
+			}
+		}
+
+		return future;
+	}
+
+	/**
+	 * Send the request and block until the reply arrives.
+	 */
+	public Message<?> sendAndReceive(Destination requestDestination, Message<?> request) throws MessagingException {
+		try {
+			return send(requestDestination, request).get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MessageDeliveryException(request, "Interrupted waiting for reply", e);
+		}
+		catch (ExecutionException e) {
+			throw new MessageDeliveryException(request, "No reply received", e.getCause());
+		}
+	}
+
+	@Override
+	public synchronized void start() {
+		if (this.running) {
+			return;
+		}
+
+		this.inFlight = new Semaphore(this.maxInFlight);
+		this.running = true;
+		this.dispatcherThread = new Thread(this::dispatchReplies, "ibmmq-reply-dispatcher-" + queueName());
+		this.dispatcherThread.setDaemon(true);
+		this.dispatcherThread.start();
+	}
+
+	/**
+	 * Stop dispatching replies and fail the requests still waiting for one.
+	 */
+	@Override
+	public synchronized void stop() {
+		if (!this.running) {
+			return;
+		}
+
+		this.running = false;
+		try {
+			this.dispatcherThread.join(TimeUnit.SECONDS.toMillis(30));
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		for (Iterator<PendingRequest> iterator = this.pendingRequests.values().iterator(); iterator.hasNext();) {
+			iterator.next().future.completeExceptionally(new IllegalStateException("Request/reply gateway stopped"));
+			iterator.remove();
+		}
+		resetConnection(null);
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	/**
+	 * Number of requests waiting for a reply.
+	 */
+	public int getInFlight() {
+		return this.pendingRequests.size();
+	}
+
+	private void dispatchReplies() {
+		while (this.running) {
+			Connection connection = null;
+			Session session = null;
+			boolean failed = false;
+			try {
+				connection = this.connectionFactory.createConnection();
+				session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+				MessageConsumer consumer = session.createConsumer(this.replyQueue);
+				connection.start();
+
+				while (this.running) {
+					javax.jms.Message reply = consumer.receive(100);
+					if (reply != null) {
+						dispatch(reply);
+					}
+					expireRequests();
+				}
+			}
+			catch (JMSException | RuntimeException e) {
+				logger.error(String.format("Reply dispatcher for '%s' failed, reconnecting in %dms", queueName(),
+						this.recoveryInterval), e);
+				failed = true;
+			}
+			finally {
+				JmsUtils.closeSession(session);
+				JmsUtils.closeConnection(connection);
+			}
+
+			if (failed) {
+				expireRequests();
+				sleep(this.recoveryInterval);
+			}
+		}
+	}
+
+	/**
+	 * An idle sender on the current connection, or a new one, opening the connection
+	 * if need be.
+	 */
+	private Sender borrowSender() throws JMSException {
+		Sender sender;
+		while ((sender = this.idleSenders.poll()) != null) {
+			if (sender.connection == currentConnection()) {
+				return sender;
+			}
+			// left over from a connection that has been reset
+			sender.close();
+		}
+
+		Connection connection = openConnection();
+		Session session = null;
+		try {
+			session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+			return new Sender(connection, session, session.createProducer(null));
+		}
+		catch (JMSException e) {
+			JmsUtils.closeSession(session);
+			throw e;
+		}
+	}
+
+	private Connection currentConnection() {
+		synchronized (this.connectionMonitor) {
+			return this.connection;
+		}
+	}
+
+	private Connection openConnection() throws JMSException {
+		synchronized (this.connectionMonitor) {
+			if (this.connection == null) {
+				this.connection = this.connectionFactory.createConnection();
+			}
+			return this.connection;
+		}
+	}
+
+	/**
+	 * Close the connection, unless another sender has already replaced the failed one,
+	 * together with its idle senders. {@code null} closes whichever connection is open.
+	 */
+	private void resetConnection(Connection failed) {
+		Connection closed;
+		synchronized (this.connectionMonitor) {
+			if (failed != null && this.connection != failed) {
+				return;
+			}
+			closed = this.connection;
+			this.connection = null;
+		}
+
+		Sender sender;
+		while ((sender = this.idleSenders.poll()) != null) {
+			sender.close();
+		}
+		JmsUtils.closeConnection(closed);
+	}
+
+	private void dispatch(javax.jms.Message reply) throws JMSException {
+		PendingRequest pendingRequest = this.pendingRequests.remove(reply.getJMSCorrelationID());
+		if (pendingRequest == null) {
+			logger.debug("Discarding reply with unknown or expired correlation id '{}'", reply.getJMSCorrelationID());
+			return;
+		}
+
+		try {
+			pendingRequest.future.complete((Message<?>) this.messageConverter.fromMessage(reply));
+		}
+		catch (JMSException | RuntimeException e) {
+			pendingRequest.future.completeExceptionally(e);
+		}
+	}
+
+	private void expireRequests() {
+		long now = System.currentTimeMillis();
+		for (Iterator<PendingRequest> iterator = this.pendingRequests.values().iterator(); iterator.hasNext();) {
+			PendingRequest pendingRequest = iterator.next();
+			if (pendingRequest.deadline <= now) {
+				iterator.remove();
+				pendingRequest.future.completeExceptionally(
+						new TimeoutException(String.format("No reply within %dms", this.timeout)));
+			}
+		}
+	}
+
+	private String queueName() {
+		try {
+			return this.replyQueue.getQueueName();
+		}
+		catch (JMSException e) {
+			return this.replyQueue.toString();
+		}
+	}
+
+	private void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			this.running = false;
+		}
+	}
+
+	private static class Sender {
+
+		private final Connection connection;
+
+		private final Session session;
+
+		private final MessageProducer producer;
+
+		Sender(Connection connection, Session session, MessageProducer producer) {
+			this.connection = connection;
+			this.session = session;
+			this.producer = producer;
+		}
+
+		void close() {
+			JmsUtils.closeMessageProducer(this.producer);
+			JmsUtils.closeSession(this.session);
+		}
+	}
+
+	private static class PendingRequest {
+
+		private final CompletableFuture<Message<?>> future;
+
+		private final long deadline;
+
+		PendingRequest(CompletableFuture<Message<?>> future, long deadline) {
+			this.future = future;
+			this.deadline = deadline;
+		}
+	}
+}
@@ -1,24 +1,26 @@
 package org.springframework.cloud.stream.binder.jms.ibmmq;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.JMSException;
 import javax.jms.Queue;
-import javax.jms.Session;
 import javax.jms.Topic;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQConfigurationProperties;
-import org.springframework.jms.support.JmsUtils;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.metrics.IBMMQMetrics;
+import org.springframework.cloud.stream.binder.jms.ibmmq.metrics.IBMMQMetrics.Outcome;
 
 import com.ibm.mq.MQException;
-import com.ibm.mq.MQQueueManager;
 import com.ibm.mq.constants.MQConstants;
 import com.ibm.mq.pcf.PCFMessage;
-import com.ibm.mq.pcf.PCFMessageAgent;
 
 public class IBMMQRequests {
 
@@ -28,66 +30,208 @@ public class IBMMQRequests {
 
 	private static final Logger logger = LoggerFactory.getLogger(IBMMQRequests.class);
 
-	private final ConnectionFactory connectionFactory;
+	private final IBMMQDestinationFactory destinationFactory;
 
 	/**
-	 * Thread safe (mostly). See
-	 * http://www.ibm.com/support/knowledgecenter/SSFKSJ_8.0.0/com.ibm.mq.javadoc.doc/WMQJavaClasses/com/ibm/mq/MQQueueManager.html
+	 * PCF agents, each with their own queue manager connection, shared by all
+	 * provisioning requests.
 	 */
-	private final MQQueueManager queueManager;
+	private final IBMMQPCFAgentPool pcfAgentPool;
 
 	private final IBMMQConfigurationProperties configurationProperties;
 
+	private final IBMMQObjectInventory inventory = new IBMMQObjectInventory();
+
+	/**
+	 * Generic names already inquired, each is only inquired once.
+	 */
+	private final Set<String> prefetchedFilters = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Backout queue configured for each consumer queue, so that bindings sharing a
+	 * queue can't set it to different ones.
+	 */
+	private final Map<String, String> backoutQueueNames = new ConcurrentHashMap<>();
+
+	private volatile IBMMQMetrics metrics = IBMMQMetrics.NONE;
+
 	public IBMMQRequests(ConnectionFactory connectionFactory,
-			IBMMQConfigurationProperties configurationProperties) {
-		this.connectionFactory = connectionFactory;
+			final IBMMQConfigurationProperties configurationProperties) {
+		this(connectionFactory, configurationProperties, pcfAgentPool(configurationProperties));
+	}
+
+	private static IBMMQPCFAgentPool pcfAgentPool(IBMMQConfigurationProperties configurationProperties) {
+		IBMMQPCFAgentPool pcfAgentPool = new IBMMQPCFAgentPool(new IBMMQQueueManagerFactory(configurationProperties),
+				configurationProperties.getPcfAgentPoolSize(),
+				configurationProperties.getPcfAgentIdleTimeout(),
+				configurationProperties.getPcfAgentBorrowTimeout());
+		if (configurationProperties.isClientReconnect()) {
+			pcfAgentPool.setReconnectTimeout(configurationProperties.getReconnectTimeout());
+		}
+		return pcfAgentPool;
+	}
+
+	IBMMQRequests(ConnectionFactory connectionFactory,
+			IBMMQConfigurationProperties configurationProperties,
+			IBMMQPCFAgentPool pcfAgentPool) {
+		this.destinationFactory = new IBMMQDestinationFactory(connectionFactory);
 		this.configurationProperties = configurationProperties;
+		this.pcfAgentPool = pcfAgentPool;
+
+		if (!configurationProperties.isBackgroundProvisioning()) {
+			connect();
+		}
+	}
 
+	/**
+	 * Connect the first PCF agent, so an unreachable queue manager fails fast, and
+	 * prefetch the inventory matching {@code inventoryFilter}, if one is set and
+	 * {@code inventoryPrefetch} is enabled. Done on construction, unless provisioning
+	 * in the background.
+	 */
+	public void connect() {
 		try {
-			this.queueManager = new MQQueueManager(
-					configurationProperties.getQueueManager());
+			pcfAgentPool.giveBack(pcfAgentPool.borrow());
 		}
 		catch (MQException e) {
 			throw new RuntimeException(
 					String.format("Could not create MQ Queue Manager object for '%s'",
-							configurationProperties.getQueueManager()));
+							configurationProperties.getQueueManager()), e);
+		}
+
+		if (configurationProperties.isInventoryPrefetch() && configurationProperties.getInventoryFilter() != null) {
+			prefetchInventory();
 		}
 	}
 
-	public Topic createTopic(String topicName) {
+	/**
+	 * The objects known to exist on the queue manager.
+	 */
+	public IBMMQObjectInventory getInventory() {
+		return inventory;
+	}
+
+	/**
+	 * Prefetch the inventory matching {@code inventoryFilter}, if one is set.
+	 */
+	public void prefetchInventory() {
+		if (configurationProperties.getInventoryFilter() != null) {
+			prefetchInventory(configurationProperties.getInventoryFilter());
+		}
+	}
+
+	/**
+	 * Index the queue, topic and subscription objects that already exist on the queue
+	 * manager and match the given generic name, using one wildcard inquiry per object
+	 * type. Objects found are then not created again. Each name is only inquired once.
+	 * If the inquiry is not permitted, provisioning falls back to creating every object
+	 * and handling the "already exists" reason codes.
+	 */
+	public void prefetchInventory(String filter) {
+		if (!prefetchedFilters.add(filter)) {
+			return;
+		}
+
 		try {
-			PCFMessageAgent pcfMessageAgent = new PCFMessageAgent(queueManager);
-			final PCFMessage request = new PCFMessage(MQConstants.MQCMD_CREATE_TOPIC);
-			request.addParameter(MQConstants.MQCA_TOPIC_NAME, topicName);
-			request.addParameter(MQConstants.MQCA_TOPIC_STRING, topicName);
-			pcfMessageAgent.send(request);
-			pcfMessageAgent.disconnect();
+			PCFMessage request = new PCFMessage(MQConstants.MQCMD_INQUIRE_Q_NAMES);
+			request.addParameter(MQConstants.MQCA_Q_NAME, filter);
+			request.addParameter(MQConstants.MQIA_Q_TYPE, MQConstants.MQQT_LOCAL);
+			for (PCFMessage response : inquire(request)) {
+				for (String queueName : response.getStringListParameterValue(MQConstants.MQCACF_Q_NAMES)) {
+					inventory.addQueue(queueName);
+				}
+			}
+
+			request = new PCFMessage(MQConstants.MQCMD_INQUIRE_TOPIC_NAMES);
+			request.addParameter(MQConstants.MQCA_TOPIC_NAME, filter);
+			for (PCFMessage response : inquire(request)) {
+				for (String topicName : response.getStringListParameterValue(MQConstants.MQCACF_TOPIC_NAMES)) {
+					inventory.addTopic(topicName);
+				}
+			}
+
+			request = new PCFMessage(MQConstants.MQCMD_INQUIRE_SUBSCRIPTION);
+			request.addParameter(MQConstants.MQCACF_SUB_NAME, filter);
+			request.addParameter(MQConstants.MQIACF_SUB_ATTRS,
+					new int[] { MQConstants.MQCACF_SUB_NAME, MQConstants.MQCACF_SUB_SELECTOR });
+			for (PCFMessage response : inquire(request)) {
+				inventory.addSubscription(response.getStringParameterValue(MQConstants.MQCACF_SUB_NAME),
+						response.getStringParameterValue(MQConstants.MQCACF_SUB_SELECTOR));
+			}
+
+			logger.info("Inquired existing objects matching '{}' on queue manager '{}', {} object(s) known",
+					filter, configurationProperties.getQueueManager(), inventory.size());
+		}
+		catch (MQException | IOException e) {
+			logger.warn(String.format(
+					"Could not inquire existing objects matching '%s', they will all be created",
+					filter), e);
+		}
+	}
+
+	/**
+	 * Send an inquiry, treating "nothing matched" as an empty result.
+	 */
+	private PCFMessage[] inquire(PCFMessage request) throws MQException, IOException {
+		try {
+			return pcfAgentPool.send(request);
 		}
 		catch (MQException e) {
-			// see
-			// http://www.ibm.com/support/knowledgecenter/SSFKSJ_8.0.0/com.ibm.mq.tro.doc/q048200_.htm
-			if (e.getReason() != MQ_OBJECT_ALREADY_EXISTS) {
-				throw new RuntimeException(
-						String.format("Could not provision topic '%s'", topicName), e);
-			}
-			else {
-				logger.warn("Topic '{}' already exists, using existing object",
-						topicName);
+			if (e.getReason() == MQConstants.MQRC_UNKNOWN_OBJECT_NAME
+					|| e.getReason() == MQConstants.MQRCCF_NONE_FOUND) {
+				return new PCFMessage[0];
 			}
+			throw e;
 		}
-		catch (IOException e) {
-			String errorMessage = String.format("Could not create topic: '%s'",
-					topicName);
-			logger.error(String.format("Could not create topic: '%s'", topicName, e));
-			throw new RuntimeException(errorMessage, e);
+	}
+
+	public Topic createTopic(String topicName) {
+		return createTopic(topicName, new IBMMQDestinationProperties());
+	}
+
+	public Topic createTopic(String topicName, IBMMQDestinationProperties destinationProperties) {
+		if (inventory.containsTopic(topicName)) {
+			logger.debug("Topic '{}' already exists, using existing object", topicName);
+			metrics.objectProvisioned(IBMMQMetrics.TOPIC, Outcome.ALREADY_EXISTS);
+		}
+		else {
+			try {
+				final PCFMessage request = new PCFMessage(MQConstants.MQCMD_CREATE_TOPIC);
+				request.addParameter(MQConstants.MQCA_TOPIC_NAME, topicName);
+				request.addParameter(MQConstants.MQCA_TOPIC_STRING, topicName);
+				sendCommand(IBMMQMetrics.TOPIC, request);
+				inventory.addTopic(topicName);
+			}
+			catch (MQException e) {
+				// see
+				// http://www.ibm.com/support/knowledgecenter/SSFKSJ_8.0.0/com.ibm.mq.tro.doc/q048200_.htm
+				if (e.getReason() != MQ_OBJECT_ALREADY_EXISTS) {
+					throw new RuntimeException(
+							String.format("Could not provision topic '%s'", topicName), e);
+				}
+				else {
+					logger.warn("Topic '{}' already exists, using existing object",
+							topicName);
+					inventory.addTopic(topicName);
+				}
+			}
+			catch (IOException e) {
+				String errorMessage = String.format("Could not create topic: '%s'",
+						topicName);
+				logger.error(String.format("Could not create topic: '%s'", topicName, e));
+				throw new RuntimeException(errorMessage, e);
+			}
 		}
 
-		Connection connection = null;
-		Session session = null;
+		return topic(topicName, destinationProperties);
+	}
+
+	/**
+	 * The JMS topic for the given topic object, without provisioning it.
+	 */
+	public Topic topic(String topicName, IBMMQDestinationProperties destinationProperties) {
 		try {
-			connection = connectionFactory.createConnection();
-			session = connection.createSession(true, Session.AUTO_ACKNOWLEDGE);
-			return session.createTopic(topicName);
+			return destinationFactory.createTopic(topicName, destinationProperties);
 		}
 		catch (JMSException e) {
 			String errorMessage = String.format("Could not create topic: '%s'",
@@ -95,46 +239,101 @@ public class IBMMQRequests {
 			logger.error(String.format("Could not create topic: '%s'", topicName, e));
 			throw new RuntimeException(errorMessage, e);
 		}
-		finally {
-			JmsUtils.closeSession(session);
-			JmsUtils.closeConnection(connection);
-		}
 	}
 
 	public Queue createQueue(String queueName) {
-		try {
-			PCFMessageAgent pcfMessageAgent = new PCFMessageAgent(queueManager);
+		return createQueue(queueName, new IBMMQDestinationProperties());
+	}
 
-			PCFMessage request = new PCFMessage(MQConstants.MQCMD_CREATE_Q);
-			request.addParameter(MQConstants.MQCA_Q_NAME, queueName);
-			request.addParameter(MQConstants.MQIA_Q_TYPE, MQConstants.MQQT_LOCAL);
-			request.addParameter(MQConstants.MQIA_MAX_Q_DEPTH,
-					configurationProperties.getQueueDepth());
-			pcfMessageAgent.send(request);
-			pcfMessageAgent.disconnect();
+	public Queue createQueue(String queueName, IBMMQDestinationProperties destinationProperties) {
+		return createLocalQueue(queueName, configurationProperties.getQueueDepth(), null, destinationProperties);
+	}
+
+	/**
+	 * Create a consumer queue with the given backout queue (BOQNAME) and the
+	 * destination's {@code backoutThreshold} (BOTHRESH), if one is set. The MQ JMS
+	 * client then moves a message that has been rolled back that many times to the
+	 * backout queue, instead of redelivering it forever. A queue shared by several
+	 * bindings, as in {@code QUEUE} binding mode, can only have one backout queue.
+	 */
+	public Queue createQueue(String queueName, IBMMQDestinationProperties destinationProperties,
+			String backoutQueueName) {
+		if (backoutQueueName != null && destinationProperties.getBackoutThreshold() != null) {
+			String configured = backoutQueueNames.putIfAbsent(queueName, backoutQueueName);
+			if (configured != null && !configured.equals(backoutQueueName)) {
+				throw new IllegalStateException(String.format(
+						"Queue '%s' is shared by bindings with different dead letter queues, '%s' and '%s', "
+								+ "but can only have one backout queue",
+						queueName, configured, backoutQueueName));
+			}
 		}
-		catch (MQException e) {
-			// see
-			// http://www.ibm.com/support/knowledgecenter/SSFKSJ_8.0.0/com.ibm.mq.tro.doc/q048200_.htm
-			if (e.getReason() != MQ_OBJECT_ALREADY_EXISTS) {
-				throw new RuntimeException(
-						String.format("Could not create queue '%s'", queueName), e);
+
+		return createLocalQueue(queueName, configurationProperties.getQueueDepth(), backoutQueueName,
+				destinationProperties);
+	}
+
+	/**
+	 * Create a dead letter queue, with {@code deadLetterQueueDepth} as its maximum
+	 * depth.
+	 */
+	public Queue createDeadLetterQueue(String queueName) {
+		return createLocalQueue(queueName, configurationProperties.getDeadLetterQueueDepth(), null,
+				new IBMMQDestinationProperties());
+	}
+
+	private Queue createLocalQueue(String queueName, int maxQueueDepth, String backoutQueueName,
+			IBMMQDestinationProperties destinationProperties) {
+		Map<Integer, Object> attributes = queueAttributes(backoutQueueName, destinationProperties);
+		boolean existing = inventory.containsQueue(queueName);
+		if (existing) {
+			logger.debug("Queue '{}' already exists, using existing object", queueName);
+			metrics.objectProvisioned(IBMMQMetrics.QUEUE, Outcome.ALREADY_EXISTS);
+		}
+		else {
+			try {
+				PCFMessage request = new PCFMessage(MQConstants.MQCMD_CREATE_Q);
+				request.addParameter(MQConstants.MQCA_Q_NAME, queueName);
+				request.addParameter(MQConstants.MQIA_Q_TYPE, MQConstants.MQQT_LOCAL);
+				request.addParameter(MQConstants.MQIA_MAX_Q_DEPTH, maxQueueDepth);
+				for (Map.Entry<Integer, Object> attribute : attributes.entrySet()) {
+					addParameter(request, attribute.getKey(), attribute.getValue());
+				}
+				sendCommand(IBMMQMetrics.QUEUE, request);
+				inventory.addQueue(queueName);
 			}
-			else {
-				logger.warn("Queue '{}' already exists, using existing object",
-						queueName);
+			catch (MQException e) {
+				// see
+				// http://www.ibm.com/support/knowledgecenter/SSFKSJ_8.0.0/com.ibm.mq.tro.doc/q048200_.htm
+				if (e.getReason() != MQ_OBJECT_ALREADY_EXISTS) {
+					throw new RuntimeException(
+							String.format("Could not create queue '%s'", queueName), e);
+				}
+				else {
+					logger.warn("Queue '{}' already exists, using existing object",
+							queueName);
+					inventory.addQueue(queueName);
+					existing = true;
+				}
+			}
+			catch (IOException e) {
+				logger.error(String.format("Could not create queue '%s'", queueName), e);
 			}
 		}
-		catch (IOException e) {
-			logger.error(String.format("Could not create queue '%s'", queueName), e);
+
+		if (existing && !attributes.isEmpty()) {
+			// e.g. created by a producer for its required groups, or with older settings
+			reconcileQueue(queueName, attributes);
 		}
 
-		Connection connection = null;
-		Session session = null;
+		return queue(queueName, destinationProperties);
+	}
+
+	/**
+	 * The JMS queue for the given local queue, without provisioning it.
+	 */
+	public Queue queue(String queueName, IBMMQDestinationProperties destinationProperties) {
 		try {
-			connection = connectionFactory.createConnection();
-			session = connection.createSession(true, Session.AUTO_ACKNOWLEDGE);
-			return session.createQueue(queueName);
+			return destinationFactory.createQueue(queueName, destinationProperties);
 		}
 		catch (JMSException e) {
 			String errorMessage = String.format("Could not create queue: '%s'",
@@ -142,48 +341,299 @@ public class IBMMQRequests {
 			logger.error(String.format("Could not create queue: '%s'", queueName, e));
 			throw new RuntimeException(errorMessage, e);
 		}
-		finally {
-			JmsUtils.closeSession(session);
-			JmsUtils.closeConnection(connection);
+	}
+
+	/**
+	 * The queue attributes, keyed by PCF parameter, configured for the binding. Unset
+	 * attributes are left to the queue manager defaults.
+	 */
+	private Map<Integer, Object> queueAttributes(String backoutQueueName,
+			IBMMQDestinationProperties destinationProperties) {
+		Map<Integer, Object> attributes = new LinkedHashMap<>();
+		if (backoutQueueName != null && destinationProperties.getBackoutThreshold() != null) {
+			attributes.put(MQConstants.MQCA_BACKOUT_REQ_Q_NAME, backoutQueueName);
+			attributes.put(MQConstants.MQIA_BACKOUT_THRESHOLD, destinationProperties.getBackoutThreshold());
+			// keep the backout count accurate across queue manager restarts
+			attributes.put(MQConstants.MQIA_HARDEN_GET_BACKOUT, MQConstants.MQQA_BACKOUT_HARDENED);
+		}
+		if (destinationProperties.getQueueIndexType() != null) {
+			attributes.put(MQConstants.MQIA_INDEX_TYPE, destinationProperties.getQueueIndexType().getValue());
+		}
+		if (destinationProperties.getQueueDefaultPersistent() != null) {
+			attributes.put(MQConstants.MQIA_DEF_PERSISTENCE, destinationProperties.getQueueDefaultPersistent()
+					? MQConstants.MQPER_PERSISTENT : MQConstants.MQPER_NOT_PERSISTENT);
+		}
+		if (destinationProperties.getQueueMaxMessageLength() != null) {
+			attributes.put(MQConstants.MQIA_MAX_MSG_LENGTH, destinationProperties.getQueueMaxMessageLength());
+		}
+		if (destinationProperties.getQueueDefaultReadAhead() != null) {
+			attributes.put(MQConstants.MQIA_DEF_READ_AHEAD,
+					destinationProperties.getQueueDefaultReadAhead().getValue());
 		}
+
+		return attributes;
 	}
 
+	/**
+	 * Inquire the given attributes of an existing queue and change those that differ.
+	 * A failure is only logged: some attributes, such as the index type, cannot be
+	 * changed while the queue is open or holds messages, and the queue is still usable
+	 * with its current attributes.
+	 */
+	private void reconcileQueue(String queueName, Map<Integer, Object> attributes) {
+		try {
+			PCFMessage inquiry = new PCFMessage(MQConstants.MQCMD_INQUIRE_Q);
+			inquiry.addParameter(MQConstants.MQCA_Q_NAME, queueName);
+			int[] attributeSelectors = new int[attributes.size()];
+			int i = 0;
+			for (Integer selector : attributes.keySet()) {
+				attributeSelectors[i++] = selector;
+			}
+			inquiry.addParameter(MQConstants.MQIACF_Q_ATTRS, attributeSelectors);
+			PCFMessage current = pcfAgentPool.send(inquiry)[0];
+
+			PCFMessage change = new PCFMessage(MQConstants.MQCMD_CHANGE_Q);
+			change.addParameter(MQConstants.MQCA_Q_NAME, queueName);
+			change.addParameter(MQConstants.MQIA_Q_TYPE, MQConstants.MQQT_LOCAL);
+			boolean changed = false;
+			for (Map.Entry<Integer, Object> attribute : attributes.entrySet()) {
+				Object currentValue = current.getParameterValue(attribute.getKey());
+				if (currentValue instanceof String) {
+					currentValue = ((String) currentValue).trim();
+				}
+				if (!attribute.getValue().equals(currentValue)) {
+					logger.info("Changing attribute {} of queue '{}' from '{}' to '{}'", attribute.getKey(),
+							queueName, currentValue, attribute.getValue());
+					addParameter(change, attribute.getKey(), attribute.getValue());
+					changed = true;
+				}
+			}
+
+			if (changed) {
+				sendCommand(IBMMQMetrics.QUEUE, change);
+			}
+		}
+		catch (MQException | IOException e) {
+			logger.warn(String.format("Could not reconcile the attributes of queue '%s'", queueName), e);
+		}
+	}
+
+	private void addParameter(PCFMessage request, int parameter, Object value) {
+		if (value instanceof String) {
+			request.addParameter(parameter, (String) value);
+		}
+		else {
+			request.addParameter(parameter, (Integer) value);
+		}
+	}
+
+	/**
+	 * Subscribe an existing queue, see {@link #createQueue(String)}, to the given topic.
+	 */
 	public void subcribeQueueToTopic(String topicName, String queueName) {
-		if (queueName != null) {
-			try {
-				createQueue(queueName);
+		subcribeQueueToTopic(topicName, queueName, null);
+	}
 
-				PCFMessageAgent pcfMessageAgent = new PCFMessageAgent(queueManager);
-				PCFMessage request = new PCFMessage(
-						MQConstants.MQCMD_CREATE_SUBSCRIPTION);
-				request.addParameter(MQConstants.MQCACF_SUB_NAME, queueName);
-				request.addParameter(MQConstants.MQCA_TOPIC_STRING, topicName);
-				request.addParameter(MQConstants.MQCACF_DESTINATION, queueName);
-				request.addParameter(MQConstants.MQCACF_DESTINATION_Q_MGR,
-						configurationProperties.getQueueManager());
-				pcfMessageAgent.send(request);
-				pcfMessageAgent.disconnect();
+	/**
+	 * Subscribe an existing queue to the given topic, only copying the publications
+	 * that match the selector, or every publication if it is {@code null}. A selector
+	 * cannot be changed on an existing subscription, so a subscription with a
+	 * different selector is replaced: a temporary subscription with the new selector is
+	 * created on the queue first, so no publication is missed while the subscription is
+	 * deleted and created again, then removed. Publications matching both selectors
+	 * while the two overlap are put on the queue twice; messages already on the queue
+	 * are kept.
+	 */
+	public void subcribeQueueToTopic(String topicName, String queueName, String selector) {
+		if (queueName == null) {
+			return;
+		}
+
+		String wantedSelector = selector != null ? selector.trim() : "";
+		String existingSelector = inventory.getSubscriptionSelector(queueName);
+		try {
+			if (wantedSelector.equals(existingSelector)) {
+				logger.debug("Subscription '{}' already exists for topic '{}', using existing object",
+						queueName, topicName);
+				metrics.objectProvisioned(IBMMQMetrics.SUBSCRIPTION, Outcome.ALREADY_EXISTS);
+				// left behind by a replacement that did not complete
+				if (inventory.getSubscriptionSelector(temporarySubscriptionName(queueName)) != null) {
+					deleteSubscription(temporarySubscriptionName(queueName));
+				}
+				return;
+			}
+
+			if (existingSelector != null) {
+				replaceSubscription(topicName, queueName, existingSelector, wantedSelector);
+				return;
+			}
+
+			try {
+				createSubscription(topicName, queueName, wantedSelector);
 			}
 			catch (MQException e) {
 				// see
 				// http://www.ibm.com/support/knowledgecenter/SSFKSJ_8.0.0/com.ibm.mq.tro.doc/q048200_.htm
 				if (e.getReason() != MQ_SUBSCRIPTION_ALREADY_EXISTS
 						&& e.getReason() != MQ_OBJECT_ALREADY_EXISTS) {
-					throw new RuntimeException(
-							String.format("Could not subscribe queue '%s' to topic '%s'",
-									queueName, topicName),
-							e);
+					throw e;
 				}
-				else {
+
+				existingSelector = inquireSubscriptionSelector(queueName);
+				if (wantedSelector.equals(existingSelector)) {
 					logger.warn(
 							"Subscription or queue '{}' already exists for topic '{}', using existing object",
 							queueName, topicName);
+					inventory.addSubscription(queueName, existingSelector);
+				}
+				else {
+					replaceSubscription(topicName, queueName, existingSelector, wantedSelector);
 				}
 			}
-			catch (IOException e) {
-				logger.error(String.format("Could not subscribe queue '%s' to topic '%s'",
-						topicName, queueName), e);
+		}
+		catch (MQException e) {
+			throw new RuntimeException(
+					String.format("Could not subscribe queue '%s' to topic '%s'",
+							queueName, topicName),
+					e);
+		}
+		catch (IOException e) {
+			logger.error(String.format("Could not subscribe queue '%s' to topic '%s'",
+					topicName, queueName), e);
+		}
+	}
+
+	private void createSubscription(String topicName, String queueName, String selector)
+			throws MQException, IOException {
+		createSubscription(queueName, topicName, queueName, selector);
+	}
+
+	private void createSubscription(String subscriptionName, String topicName, String queueName,
+			String selector) throws MQException, IOException {
+		PCFMessage request = new PCFMessage(
+				MQConstants.MQCMD_CREATE_SUBSCRIPTION);
+		request.addParameter(MQConstants.MQCACF_SUB_NAME, subscriptionName);
+		request.addParameter(MQConstants.MQCA_TOPIC_STRING, topicName);
+		request.addParameter(MQConstants.MQCACF_DESTINATION, queueName);
+		request.addParameter(MQConstants.MQCACF_DESTINATION_Q_MGR,
+				configurationProperties.getQueueManager());
+		if (!selector.isEmpty()) {
+			request.addParameter(MQConstants.MQCACF_SUB_SELECTOR, selector);
+		}
+		sendCommand(IBMMQMetrics.SUBSCRIPTION, request);
+		inventory.addSubscription(subscriptionName, selector);
+	}
+
+	private void deleteSubscription(String subscriptionName) throws MQException, IOException {
+		PCFMessage request = new PCFMessage(MQConstants.MQCMD_DELETE_SUBSCRIPTION);
+		request.addParameter(MQConstants.MQCACF_SUB_NAME, subscriptionName);
+		sendCommand(IBMMQMetrics.SUBSCRIPTION, request);
+		inventory.removeSubscription(subscriptionName);
+	}
+
+	/**
+	 * The selector of a subscription can't be altered, so the new subscription is
+	 * created under a temporary name before the existing one is deleted, keeping the
+	 * queue subscribed throughout, and the subscription named after the queue is then
+	 * created again with the new selector.
+	 */
+	private void replaceSubscription(String topicName, String queueName, String existingSelector,
+			String selector) throws MQException, IOException {
+		logger.info("Changing selector of subscription '{}' from '{}' to '{}'", queueName, existingSelector,
+				selector);
+
+		String temporarySubscriptionName = temporarySubscriptionName(queueName);
+		try {
+			createSubscription(temporarySubscriptionName, topicName, queueName, selector);
+		}
+		catch (MQException e) {
+			if (e.getReason() != MQ_SUBSCRIPTION_ALREADY_EXISTS) {
+				throw e;
 			}
+			// left behind by a replacement that did not complete, possibly with another selector
+			deleteSubscription(temporarySubscriptionName);
+			createSubscription(temporarySubscriptionName, topicName, queueName, selector);
+		}
+
+		deleteSubscription(queueName);
+		createSubscription(topicName, queueName, selector);
+		deleteSubscription(temporarySubscriptionName);
+	}
+
+	/**
+	 * '#' is not valid in a queue name, so the temporary subscription can't clash with
+	 * the subscription of another queue.
+	 */
+	private static String temporarySubscriptionName(String queueName) {
+		return queueName + "#REPLACING";
+	}
+
+	private String inquireSubscriptionSelector(String subscriptionName) throws MQException, IOException {
+		PCFMessage request = new PCFMessage(MQConstants.MQCMD_INQUIRE_SUBSCRIPTION);
+		request.addParameter(MQConstants.MQCACF_SUB_NAME, subscriptionName);
+		request.addParameter(MQConstants.MQIACF_SUB_ATTRS, new int[] { MQConstants.MQCACF_SUB_SELECTOR });
+		PCFMessage response = pcfAgentPool.send(request)[0];
+
+		return response.getStringParameterValue(MQConstants.MQCACF_SUB_SELECTOR).trim();
+	}
+
+	/**
+	 * Inquire the current depth, oldest message age and open input count of a local
+	 * queue.
+	 */
+	public IBMMQQueueStatus inquireQueueStatus(String queueName) {
+		try {
+			PCFMessage request = new PCFMessage(MQConstants.MQCMD_INQUIRE_Q_STATUS);
+			request.addParameter(MQConstants.MQCA_Q_NAME, queueName);
+			request.addParameter(MQConstants.MQIACF_Q_STATUS_TYPE, MQConstants.MQIACF_Q_STATUS);
+			request.addParameter(MQConstants.MQIACF_Q_STATUS_ATTRS, new int[] { MQConstants.MQIA_CURRENT_Q_DEPTH,
+					MQConstants.MQIACF_OLDEST_MSG_AGE, MQConstants.MQIA_OPEN_INPUT_COUNT });
+			PCFMessage response = pcfAgentPool.send(request)[0];
+
+			return new IBMMQQueueStatus(queueName, response.getIntParameterValue(MQConstants.MQIA_CURRENT_Q_DEPTH),
+					response.getIntParameterValue(MQConstants.MQIACF_OLDEST_MSG_AGE),
+					response.getIntParameterValue(MQConstants.MQIA_OPEN_INPUT_COUNT));
+		}
+		catch (MQException | IOException e) {
+			throw new RuntimeException(String.format("Could not inquire status of queue '%s'", queueName), e);
 		}
 	}
+
+	public void setMetrics(IBMMQMetrics metrics) {
+		this.metrics = metrics;
+		this.destinationFactory.setMetrics(metrics);
+		this.pcfAgentPool.setMetrics(metrics);
+	}
+
+	/**
+	 * Send a create command, recording its latency and outcome.
+	 */
+	private void sendCommand(String objectType, PCFMessage request) throws MQException, IOException {
+		long start = System.nanoTime();
+		try {
+			pcfAgentPool.send(request);
+			metrics.pcfCommand(objectType, Outcome.CREATED, MQConstants.MQRC_NONE, System.nanoTime() - start);
+			metrics.objectProvisioned(objectType, Outcome.CREATED);
+		}
+		catch (MQException e) {
+			Outcome outcome = e.getReason() == MQ_OBJECT_ALREADY_EXISTS
+					|| e.getReason() == MQ_SUBSCRIPTION_ALREADY_EXISTS ? Outcome.ALREADY_EXISTS : Outcome.ERROR;
+			metrics.pcfCommand(objectType, outcome, e.getReason(), System.nanoTime() - start);
+			metrics.objectProvisioned(objectType, outcome);
+			throw e;
+		}
+		catch (IOException e) {
+			metrics.pcfCommand(objectType, Outcome.ERROR, MQConstants.MQRC_NONE, System.nanoTime() - start);
+			metrics.objectProvisioned(objectType, Outcome.ERROR);
+			throw e;
+		}
+	}
+
+	/**
+	 * Disconnect the pooled PCF agents and any admin JMS connection.
+	 */
+	public void close() {
+		pcfAgentPool.close();
+		destinationFactory.close();
+	}
 }
@@ -0,0 +1,77 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.cloud.stream.binder.BinderHeaders;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties;
+import org.springframework.cloud.stream.provisioning.ProducerDestination;
+import org.springframework.context.Lifecycle;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
+import org.springframework.util.Assert;
+
+/**
+ * Sends each message of a partitioned destination to the queue manager its partition
+ * is assigned to, see {@link IBMMQShards}, through one {@link IBMMQBatchingProducer}
+ * per shard. Messages must carry the {@link BinderHeaders#PARTITION_HEADER} set by
+ * the binder's partition handling.
+ */
+public class IBMMQShardedProducer implements MessageHandler, Lifecycle {
+
+	private final IBMMQShards shards;
+
+	private final List<IBMMQBatchingProducer> producers = new ArrayList<>();
+
+	public IBMMQShardedProducer(IBMMQShards shards, ProducerDestination producerDestination,
+			IBMMQDestinationProperties destinationProperties) {
+		Assert.isTrue(!shards.isEmpty(), "No shards configured");
+
+		this.shards = shards;
+		for (int shard = 0; shard < shards.size(); shard++) {
+			this.producers.add(new IBMMQBatchingProducer(shards.getConnectionFactory(shard), producerDestination,
+					destinationProperties));
+		}
+	}
+
+	public CompletableFuture<Void> send(Message<?> message) {
+		return producerFor(message).send(message);
+	}
+
+	@Override
+	public void handleMessage(Message<?> message) throws MessagingException {
+		producerFor(message).handleMessage(message);
+	}
+
+	@Override
+	public void start() {
+		for (IBMMQBatchingProducer producer : this.producers) {
+			producer.start();
+		}
+	}
+
+	@Override
+	public void stop() {
+		for (IBMMQBatchingProducer producer : this.producers) {
+			producer.stop();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.producers.get(0).isRunning();
+	}
+
+	private IBMMQBatchingProducer producerFor(Message<?> message) {
+		Object partition = message.getHeaders().get(BinderHeaders.PARTITION_HEADER);
+		if (partition == null) {
+			throw new MessageDeliveryException(message,
+					String.format("Sharded destinations need the '%s' header", BinderHeaders.PARTITION_HEADER));
+		}
+
+		return this.producers.get(this.shards.shardFor(Integer.parseInt(partition.toString())));
+	}
+}
@@ -0,0 +1,105 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQConfigurationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQJmsConfiguration;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQShardProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.metrics.IBMMQMetrics;
+import org.springframework.jms.connection.SingleConnectionFactory;
+import org.springframework.util.Assert;
+
+/**
+ * The queue managers configured in {@code ibmmq.shards}, across which the partitions
+ * of partitioned destinations are spread. Partition {@code n} is always assigned to
+ * shard {@code n % size()}, so producers and consumers agree on where a partition
+ * lives without coordinating, and every shard carries an equal share of the
+ * partitions when their count is a multiple of the number of shards.
+ *
+ * Connection factories for the shards are created on first use and closed with the
+ * application context.
+ */
+public class IBMMQShards implements DisposableBean {
+
+	private final List<IBMMQConfigurationProperties> shardProperties;
+
+	private final ConnectionFactory[] connectionFactories;
+
+	private IBMMQMetrics metrics = IBMMQMetrics.NONE;
+
+	public IBMMQShards(IBMMQConfigurationProperties configurationProperties) {
+		List<IBMMQConfigurationProperties> shardProperties = new ArrayList<>();
+		for (IBMMQShardProperties shard : configurationProperties.getShards()) {
+			shardProperties.add(configurationProperties.forShard(shard));
+		}
+
+		this.shardProperties = Collections.unmodifiableList(shardProperties);
+		this.connectionFactories = new ConnectionFactory[shardProperties.size()];
+	}
+
+	/**
+	 * Metrics for the reconnects of the shards' connections, set before any connection
+	 * factory is created.
+	 */
+	public void setMetrics(IBMMQMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public int size() {
+		return shardProperties.size();
+	}
+
+	public boolean isEmpty() {
+		return shardProperties.isEmpty();
+	}
+
+	/**
+	 * The shard the given partition is assigned to.
+	 */
+	public int shardFor(int partition) {
+		Assert.state(!isEmpty(), "No shards configured");
+		Assert.isTrue(partition >= 0, "'partition' must not be negative");
+
+		return partition % shardProperties.size();
+	}
+
+	/**
+	 * The configuration properties connecting to the given shard.
+	 */
+	public IBMMQConfigurationProperties getProperties(int shard) {
+		return shardProperties.get(shard);
+	}
+
+	public synchronized ConnectionFactory getConnectionFactory(int shard) {
+		if (connectionFactories[shard] == null) {
+			try {
+				IBMMQReconnectListener reconnectListener = new IBMMQReconnectListener();
+				reconnectListener.setMetrics(this.metrics);
+				connectionFactories[shard] = IBMMQJmsConfiguration
+						.createConnectionFactory(shardProperties.get(shard), reconnectListener);
+			}
+			catch (JMSException e) {
+				throw new IllegalStateException(
+						String.format("Could not create connection factory for shard %d ('%s')", shard,
+								shardProperties.get(shard).getQueueManager()),
+						e);
+			}
+		}
+
+		return connectionFactories[shard];
+	}
+
+	@Override
+	public synchronized void destroy() {
+		for (ConnectionFactory connectionFactory : connectionFactories) {
+			if (connectionFactory instanceof SingleConnectionFactory) {
+				((SingleConnectionFactory) connectionFactory).destroy();
+			}
+		}
+	}
+}
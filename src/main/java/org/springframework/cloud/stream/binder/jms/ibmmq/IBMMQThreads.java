@@ -0,0 +1,104 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties.ConsumerExecution;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Threads for consumers, according to the destination's {@code consumerExecution}.
+ *
+ * Virtual threads (Java 21 and later) are created through reflection, so the binder
+ * still runs on Java 8; where they are not available, platform threads are used
+ * instead.
+ */
+public final class IBMMQThreads {
+
+	private static final Logger logger = LoggerFactory.getLogger(IBMMQThreads.class);
+
+	private static final Method ofVirtual;
+
+	private static final Method name;
+
+	private static final Method factory;
+
+	static {
+		Method ofVirtualMethod = null;
+		Method nameMethod = null;
+		Method factoryMethod = null;
+		try {
+			ofVirtualMethod = Thread.class.getMethod("ofVirtual");
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			nameMethod = builder.getMethod("name", String.class, long.class);
+			factoryMethod = builder.getMethod("factory");
+		}
+		catch (ReflectiveOperationException e) {
+			// before Java 21
+		}
+
+		ofVirtual = ofVirtualMethod;
+		name = nameMethod;
+		factory = factoryMethod;
+	}
+
+	private IBMMQThreads() {
+	}
+
+	public static boolean isVirtualThreadsAvailable() {
+		return ofVirtual != null;
+	}
+
+	/**
+	 * Whether consumers of the destination run on virtual threads, i.e. they are asked
+	 * for and available.
+	 */
+	public static boolean isVirtual(IBMMQDestinationProperties destinationProperties) {
+		return destinationProperties.getConsumerExecution() == ConsumerExecution.VIRTUAL_THREADS
+				&& isVirtualThreadsAvailable();
+	}
+
+	/**
+	 * Daemon threads named {@code prefix} followed by a sequence number.
+	 */
+	public static ThreadFactory threadFactory(String prefix, IBMMQDestinationProperties destinationProperties) {
+		if (destinationProperties.getConsumerExecution() == ConsumerExecution.VIRTUAL_THREADS) {
+			if (isVirtualThreadsAvailable()) {
+				return virtualThreadFactory(prefix);
+			}
+			logger.warn("Virtual threads need Java 21 or later, '{}' consumers will run on platform threads",
+					prefix);
+		}
+
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefix);
+		threadFactory.setDaemon(true);
+		return threadFactory;
+	}
+
+	/**
+	 * A task executor for a
+	 * {@link org.springframework.jms.listener.DefaultMessageListenerContainer}, starting
+	 * each consumer on a thread from {@link #threadFactory}.
+	 */
+	public static TaskExecutor taskExecutor(String prefix, IBMMQDestinationProperties destinationProperties) {
+		SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor(prefix);
+		taskExecutor.setThreadFactory(threadFactory(prefix, destinationProperties));
+		return taskExecutor;
+	}
+
+	private static ThreadFactory virtualThreadFactory(String prefix) {
+		try {
+			Object builder = name.invoke(ofVirtual.invoke(null), prefix, 0L);
+			return (ThreadFactory) factory.invoke(builder);
+		}
+		catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Could not create virtual thread factory", e);
+		}
+	}
+}
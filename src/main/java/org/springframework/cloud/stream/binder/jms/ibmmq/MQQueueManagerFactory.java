@@ -0,0 +1,14 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import com.ibm.mq.MQException;
+import com.ibm.mq.MQQueueManager;
+
+/**
+ * Strategy for creating connected {@link MQQueueManager} handles, used wherever the
+ * binder needs its own queue manager connection (e.g. for PCF admin commands).
+ */
+public interface MQQueueManagerFactory {
+
+	MQQueueManager createQueueManager() throws MQException;
+
+}
@@ -1,5 +1,11 @@
 package org.springframework.cloud.stream.binder.jms.ibmmq.config;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.BeanUtils;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import com.ibm.msg.client.wmq.WMQConstants;
@@ -16,6 +22,24 @@ public class IBMMQConfigurationProperties {
 
 	private Integer port = 1414;
 
+	/**
+	 * Comma separated 'host(port)' addresses of the instances of a multi-instance
+	 * queue manager, tried in turn. Takes precedence over host and port.
+	 */
+	private String connectionNameList;
+
+	/**
+	 * Whether to reconnect automatically, to the same queue manager, when its
+	 * connection fails. Needs {@code cachingEnabled}. Defaults to false.
+	 */
+	private boolean clientReconnect = false;
+
+	/**
+	 * Milliseconds to keep trying to reconnect before giving up. Defaults to 1800000,
+	 * the MQ client default of 30 minutes.
+	 */
+	private long reconnectTimeout = 1800000;
+
 	/**
 	 * The name of the Queue Manager
 	 */
@@ -38,16 +62,136 @@ public class IBMMQConfigurationProperties {
 	 */
 	private String password;
 
+	/**
+	 * Whether the username and password are sent in an MQCSP structure rather than in
+	 * compatibility mode, as queue managers authenticating with CONNAUTH may require.
+	 * Defaults to false, compatibility mode.
+	 */
+	private boolean mqcspAuthentication = false;
+
 	/**
 	 * Queue depth for provisioned queues. Defaults to 5000.
 	 */
 	private int queueDepth = 5000;
 
 	/**
-	 * Queue depth for the provisioned DLQ. Defaults to 5000.
+	 * Queue depth for the provisioned DLQ, which is also the backout queue of the
+	 * consumer queues. Defaults to 5000.
 	 */
 	private int deadLetterQueueDepth = 5000;
 
+	/**
+	 * Maximum number of pooled PCF agents (each with its own queue manager
+	 * connection) used for provisioning. Defaults to 4.
+	 */
+	private int pcfAgentPoolSize = 4;
+
+	/**
+	 * Milliseconds a pooled PCF agent may be idle before it is disconnected. Defaults
+	 * to 60000.
+	 */
+	private long pcfAgentIdleTimeout = 60000;
+
+	/**
+	 * Milliseconds to wait for a pooled PCF agent when all agents are in use. Defaults
+	 * to 30000.
+	 */
+	private long pcfAgentBorrowTimeout = 30000;
+
+	/**
+	 * Number of independent topic/queue/subscription chains provisioned in parallel.
+	 * Defaults to 1, i.e. provision serially. Should not exceed
+	 * {@link #pcfAgentPoolSize}.
+	 */
+	private int provisioningConcurrency = 1;
+
+	/**
+	 * Whether to provision in the background rather than while bindings are created,
+	 * so that a slow command server doesn't hold up startup. The binder's producer
+	 * bindings are still provisioned while they are created, as they publish straight
+	 * away. Defaults to false.
+	 */
+	private boolean backgroundProvisioning = false;
+
+	/**
+	 * Milliseconds between attempts to provision a binding in the background after a
+	 * failure. Defaults to 5000; 0 gives up after the first failure.
+	 */
+	private long provisioningRetryInterval = 5000;
+
+	/**
+	 * Whether to inquire which objects already exist on the queue manager, so that only
+	 * missing objects are created. Defaults to true.
+	 */
+	private boolean inventoryPrefetch = true;
+
+	/**
+	 * Generic (wildcard) object name used for a single inventory inquiry at startup,
+	 * e.g. 'MYAPP*'. When not set, the default, the objects of each destination are
+	 * inquired the first time it is provisioned, by its name followed by '*'.
+	 */
+	private String inventoryFilter;
+
+	/**
+	 * Whether to wrap the IBM MQ connection factory in a caching connection factory
+	 * that shares one connection and caches sessions and producers. Defaults to false.
+	 */
+	private boolean cachingEnabled = false;
+
+	/**
+	 * Number of sessions to cache per session acknowledge mode. Defaults to 10.
+	 */
+	private int sessionCacheSize = 10;
+
+	/**
+	 * Whether to cache message producers per session and destination. Defaults to
+	 * true.
+	 */
+	private boolean cacheProducers = true;
+
+	/**
+	 * Whether to cache message consumers per session and destination. Defaults to
+	 * false, as listener containers manage their own consumers.
+	 */
+	private boolean cacheConsumers = false;
+
+	/**
+	 * Whether client connections may share a channel instance (conversation sharing).
+	 * The number of conversations per channel instance is set by the server connection
+	 * channel's SHARECNV attribute. Defaults to the MQ client default.
+	 */
+	private Boolean shareConversations;
+
+	/**
+	 * Maximum size, in bytes, of the client's internal buffer for received messages.
+	 * Defaults to the MQ client default.
+	 */
+	private Integer maxBufferSize;
+
+	/**
+	 * Number of asynchronous puts between checks for put errors. Defaults to the MQ
+	 * client default.
+	 */
+	private Integer sendCheckCount;
+
+	/**
+	 * Milliseconds between status inquiries (depth, oldest message age, open input
+	 * count) of provisioned consumer queues. Defaults to 0, i.e. no inquiries.
+	 */
+	private long queueStatusInterval = 0;
+
+	/**
+	 * Per destination settings, keyed by binding destination name.
+	 */
+	private Map<String, IBMMQDestinationProperties> destinations = new HashMap<>();
+
+	/**
+	 * Queue managers that the partitions of partitioned destinations are spread
+	 * across, partition {@code n} living on shard {@code n % shards.size()}.
+	 * Non-partitioned destinations stay on the top level queue manager.
+	 */
+	private List<IBMMQShardProperties> shards = new ArrayList<>();
+
 	public String getHost() {
 		return host;
 	}
@@ -64,6 +208,30 @@ public class IBMMQConfigurationProperties {
 		this.port = port;
 	}
 
+	public String getConnectionNameList() {
+		return connectionNameList;
+	}
+
+	public void setConnectionNameList(String connectionNameList) {
+		this.connectionNameList = connectionNameList;
+	}
+
+	public boolean isClientReconnect() {
+		return clientReconnect;
+	}
+
+	public void setClientReconnect(boolean clientReconnect) {
+		this.clientReconnect = clientReconnect;
+	}
+
+	public long getReconnectTimeout() {
+		return reconnectTimeout;
+	}
+
+	public void setReconnectTimeout(long reconnectTimeout) {
+		this.reconnectTimeout = reconnectTimeout;
+	}
+
 	public String getQueueManager() {
 		return queueManager;
 	}
@@ -100,6 +268,14 @@ public class IBMMQConfigurationProperties {
 		this.password = password;
 	}
 
+	public boolean isMqcspAuthentication() {
+		return mqcspAuthentication;
+	}
+
+	public void setMqcspAuthentication(boolean mqcspAuthentication) {
+		this.mqcspAuthentication = mqcspAuthentication;
+	}
+
 	public int getDeadLetterQueueDepth() {
 		return deadLetterQueueDepth;
 	}
@@ -115,4 +291,189 @@ public class IBMMQConfigurationProperties {
 	public void setQueueDepth(int queueDepth) {
 		this.queueDepth = queueDepth;
 	}
+
+	public int getPcfAgentPoolSize() {
+		return pcfAgentPoolSize;
+	}
+
+	public void setPcfAgentPoolSize(int pcfAgentPoolSize) {
+		this.pcfAgentPoolSize = pcfAgentPoolSize;
+	}
+
+	public long getPcfAgentIdleTimeout() {
+		return pcfAgentIdleTimeout;
+	}
+
+	public void setPcfAgentIdleTimeout(long pcfAgentIdleTimeout) {
+		this.pcfAgentIdleTimeout = pcfAgentIdleTimeout;
+	}
+
+	public long getPcfAgentBorrowTimeout() {
+		return pcfAgentBorrowTimeout;
+	}
+
+	public void setPcfAgentBorrowTimeout(long pcfAgentBorrowTimeout) {
+		this.pcfAgentBorrowTimeout = pcfAgentBorrowTimeout;
+	}
+
+	public int getProvisioningConcurrency() {
+		return provisioningConcurrency;
+	}
+
+	public void setProvisioningConcurrency(int provisioningConcurrency) {
+		this.provisioningConcurrency = provisioningConcurrency;
+	}
+
+	public boolean isBackgroundProvisioning() {
+		return backgroundProvisioning;
+	}
+
+	public void setBackgroundProvisioning(boolean backgroundProvisioning) {
+		this.backgroundProvisioning = backgroundProvisioning;
+	}
+
+	public long getProvisioningRetryInterval() {
+		return provisioningRetryInterval;
+	}
+
+	public void setProvisioningRetryInterval(long provisioningRetryInterval) {
+		this.provisioningRetryInterval = provisioningRetryInterval;
+	}
+
+	public boolean isInventoryPrefetch() {
+		return inventoryPrefetch;
+	}
+
+	public void setInventoryPrefetch(boolean inventoryPrefetch) {
+		this.inventoryPrefetch = inventoryPrefetch;
+	}
+
+	public String getInventoryFilter() {
+		return inventoryFilter;
+	}
+
+	public void setInventoryFilter(String inventoryFilter) {
+		this.inventoryFilter = inventoryFilter;
+	}
+
+	public boolean isCachingEnabled() {
+		return cachingEnabled;
+	}
+
+	public void setCachingEnabled(boolean cachingEnabled) {
+		this.cachingEnabled = cachingEnabled;
+	}
+
+	public int getSessionCacheSize() {
+		return sessionCacheSize;
+	}
+
+	public void setSessionCacheSize(int sessionCacheSize) {
+		this.sessionCacheSize = sessionCacheSize;
+	}
+
+	public boolean isCacheProducers() {
+		return cacheProducers;
+	}
+
+	public void setCacheProducers(boolean cacheProducers) {
+		this.cacheProducers = cacheProducers;
+	}
+
+	public boolean isCacheConsumers() {
+		return cacheConsumers;
+	}
+
+	public void setCacheConsumers(boolean cacheConsumers) {
+		this.cacheConsumers = cacheConsumers;
+	}
+
+	public Boolean getShareConversations() {
+		return shareConversations;
+	}
+
+	public void setShareConversations(Boolean shareConversations) {
+		this.shareConversations = shareConversations;
+	}
+
+	public Integer getMaxBufferSize() {
+		return maxBufferSize;
+	}
+
+	public void setMaxBufferSize(Integer maxBufferSize) {
+		this.maxBufferSize = maxBufferSize;
+	}
+
+	public Integer getSendCheckCount() {
+		return sendCheckCount;
+	}
+
+	public void setSendCheckCount(Integer sendCheckCount) {
+		this.sendCheckCount = sendCheckCount;
+	}
+
+	public long getQueueStatusInterval() {
+		return queueStatusInterval;
+	}
+
+	public void setQueueStatusInterval(long queueStatusInterval) {
+		this.queueStatusInterval = queueStatusInterval;
+	}
+
+	public Map<String, IBMMQDestinationProperties> getDestinations() {
+		return destinations;
+	}
+
+	public void setDestinations(Map<String, IBMMQDestinationProperties> destinations) {
+		this.destinations = destinations;
+	}
+
+	public List<IBMMQShardProperties> getShards() {
+		return shards;
+	}
+
+	public void setShards(List<IBMMQShardProperties> shards) {
+		this.shards = shards;
+	}
+
+	/**
+	 * A copy of these properties connecting to the given shard instead.
+	 */
+	public IBMMQConfigurationProperties forShard(IBMMQShardProperties shard) {
+		IBMMQConfigurationProperties shardProperties = new IBMMQConfigurationProperties();
+		BeanUtils.copyProperties(this, shardProperties, "shards");
+		if (shard.getQueueManager() != null) {
+			shardProperties.setQueueManager(shard.getQueueManager());
+		}
+		if (shard.getConnectionNameList() != null) {
+			shardProperties.setConnectionNameList(shard.getConnectionNameList());
+		}
+		else if (shard.getHost() != null) {
+			// the shard lives elsewhere than the top level instances
+			shardProperties.setConnectionNameList(null);
+		}
+		if (shard.getHost() != null) {
+			shardProperties.setHost(shard.getHost());
+		}
+		if (shard.getPort() != null) {
+			shardProperties.setPort(shard.getPort());
+		}
+		if (shard.getChannel() != null) {
+			shardProperties.setChannel(shard.getChannel());
+		}
+		if (shard.getUsername() != null) {
+			shardProperties.setUsername(shard.getUsername());
+			shardProperties.setPassword(shard.getPassword());
+		}
+
+		return shardProperties;
+	}
+
+	/**
+	 * The settings for the given destination, or the defaults if none are configured.
+	 */
+	public IBMMQDestinationProperties getDestinationProperties(String destination) {
+		IBMMQDestinationProperties destinationProperties = destinations.get(destination);
+		return destinationProperties != null ? destinationProperties : new IBMMQDestinationProperties();
+	}
 }
@@ -0,0 +1,528 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq.config;
+
+import com.ibm.mq.constants.MQConstants;
+import com.ibm.msg.client.wmq.WMQConstants;
+
+/**
+ * IBM MQ specific settings for a single binding destination, configured under
+ * {@code ibmmq.destinations.<destination>}. Destination names containing dots must
+ * use the bracket notation, e.g. {@code ibmmq.destinations[my.destination]}.
+ *
+ * Settings left unset fall back to the queue manager or MQ client defaults.
+ */
+public class IBMMQDestinationProperties {
+
+	/**
+	 * How producers and consumers of the destination are connected.
+	 */
+	private BindingMode bindingMode = BindingMode.TOPIC;
+
+	/**
+	 * Whether messages sent to the destination carry the MQRFH2 header with the JMS
+	 * headers and properties ({@code JMS}), or are plain MQMD and payload for non-JMS
+	 * consumers ({@code MQ}).
+	 */
+	private TargetClient targetClient;
+
+	/**
+	 * Whether messages may be put asynchronously, i.e. without waiting for the queue
+	 * manager to confirm each put. Only takes effect for non-persistent messages or
+	 * messages sent in a transaction.
+	 */
+	private Boolean putAsyncAllowed;
+
+	/**
+	 * Whether non-persistent messages may be streamed to the client ahead of the
+	 * application requesting them.
+	 */
+	private Boolean readAheadAllowed;
+
+	/**
+	 * What happens to messages already read ahead when the consumer is closed.
+	 */
+	private ReadAheadClosePolicy readAheadClosePolicy;
+
+	/**
+	 * Persistence of messages sent to the destination.
+	 */
+	private Persistence persistence;
+
+	/**
+	 * Message selector of the subscriptions feeding the consumer group queues, e.g.
+	 * {@code region = 'EMEA'}, so that publications not matching it never reach the
+	 * queues. Changing it replaces the existing subscriptions, which may
+	 * deliver publications matching both selectors twice while they overlap.
+	 */
+	private String subscriptionSelector;
+
+	/**
+	 * Number of times a message may be backed out of the consumer queue before the MQ
+	 * client moves it to the dead letter queue, set as the queue's backout threshold,
+	 * with the dead letter queue as its backout queue, when it is provisioned. 0 leaves
+	 * failing messages on the queue. When not set, the default, the backout attributes
+	 * of the queue are left as they are.
+	 */
+	private Integer backoutThreshold;
+
+	/**
+	 * Index (INDXTYPE) maintained by the queue manager for the provisioned queues. An
+	 * index on the correlation or message id speeds up gets that select on it.
+	 */
+	private IndexType queueIndexType;
+
+	/**
+	 * Default persistence (DEFPSIST) of the provisioned queues, used by messages sent
+	 * with queue defined persistence.
+	 */
+	private Boolean queueDefaultPersistent;
+
+	/**
+	 * Maximum message length (MAXMSGL), in bytes, of the provisioned queues.
+	 */
+	private Integer queueMaxMessageLength;
+
+	/**
+	 * Default read ahead (DEFREADA) of the provisioned queues, for non-persistent
+	 * messages.
+	 */
+	private DefaultReadAhead queueDefaultReadAhead;
+
+	/**
+	 * Size, in bytes, from which binary payloads sent by the batching producer are
+	 * compressed. 0 disables compression. Compressed messages are decompressed by the
+	 * receiving side whatever its own setting.
+	 */
+	private int compressionThreshold = 0;
+
+	/**
+	 * Maximum number of messages sent in one transaction by an
+	 * {@code IBMMQBatchingProducer}; 1 commits each message on its own. Not used by the
+	 * binder's own producer bindings.
+	 */
+	private int producerBatchSize = 1;
+
+	/**
+	 * Maximum milliseconds the batching producer waits for a batch to fill up before
+	 * committing what it has.
+	 */
+	private long producerBatchLinger = 50;
+
+	/**
+	 * Maximum number of messages received in one transaction and delivered as a single
+	 * {@code List} payload by the batching consumer.
+	 */
+	private int consumerBatchSize = 1;
+
+	/**
+	 * Maximum milliseconds the batching consumer waits for a batch to fill up before
+	 * delivering what it has.
+	 */
+	private long consumerBatchTimeout = 1000;
+
+	/**
+	 * Times the batching and key ordered consumers hand a message to the handler on its
+	 * own before sending it to the dead letter queue.
+	 */
+	private int consumerMaxAttempts = 3;
+
+	/**
+	 * Threads the batching consumer receives and handles messages on, and the workers
+	 * of the key ordered consumer handle them on.
+	 */
+	private ConsumerExecution consumerExecution = ConsumerExecution.PLATFORM_THREADS;
+
+	/**
+	 * Maximum milliseconds a consumer on virtual threads waits between polls of an
+	 * empty queue.
+	 */
+	private long idleReceiveBackoff = 250;
+
+	/**
+	 * Worker threads the key ordered consumer dispatches messages to.
+	 */
+	private int dispatchWorkers = 4;
+
+	/**
+	 * Message property (or {@code JMSCorrelationID}) whose value keeps messages in order
+	 * on one worker of the key ordered consumer. Messages without it are spread over
+	 * all workers.
+	 */
+	private String dispatchKey = "JMSXGroupID";
+
+	/**
+	 * Maximum messages waiting for each worker of the key ordered consumer, after which
+	 * receiving is held back.
+	 */
+	private int dispatchQueueCapacity = 50;
+
+	/**
+	 * Maximum number of messages the key ordered consumer receives in one transaction,
+	 * committed once all of them have been handled.
+	 */
+	private int dispatchWindow = 100;
+
+	/**
+	 * Maximum milliseconds the key ordered consumer waits for the messages of a window
+	 * to be handled, after which the window is rolled back and redelivered.
+	 */
+	private long dispatchTimeout = 60000;
+
+	public BindingMode getBindingMode() {
+		return bindingMode;
+	}
+
+	public void setBindingMode(BindingMode bindingMode) {
+		this.bindingMode = bindingMode;
+	}
+
+	public TargetClient getTargetClient() {
+		return targetClient;
+	}
+
+	public void setTargetClient(TargetClient targetClient) {
+		this.targetClient = targetClient;
+	}
+
+	public Boolean getPutAsyncAllowed() {
+		return putAsyncAllowed;
+	}
+
+	public void setPutAsyncAllowed(Boolean putAsyncAllowed) {
+		this.putAsyncAllowed = putAsyncAllowed;
+	}
+
+	public Boolean getReadAheadAllowed() {
+		return readAheadAllowed;
+	}
+
+	public void setReadAheadAllowed(Boolean readAheadAllowed) {
+		this.readAheadAllowed = readAheadAllowed;
+	}
+
+	public ReadAheadClosePolicy getReadAheadClosePolicy() {
+		return readAheadClosePolicy;
+	}
+
+	public void setReadAheadClosePolicy(ReadAheadClosePolicy readAheadClosePolicy) {
+		this.readAheadClosePolicy = readAheadClosePolicy;
+	}
+
+	public Persistence getPersistence() {
+		return persistence;
+	}
+
+	public void setPersistence(Persistence persistence) {
+		this.persistence = persistence;
+	}
+
+	public String getSubscriptionSelector() {
+		return subscriptionSelector;
+	}
+
+	public void setSubscriptionSelector(String subscriptionSelector) {
+		this.subscriptionSelector = subscriptionSelector;
+	}
+
+	public Integer getBackoutThreshold() {
+		return backoutThreshold;
+	}
+
+	public void setBackoutThreshold(Integer backoutThreshold) {
+		this.backoutThreshold = backoutThreshold;
+	}
+
+	public IndexType getQueueIndexType() {
+		return queueIndexType;
+	}
+
+	public void setQueueIndexType(IndexType queueIndexType) {
+		this.queueIndexType = queueIndexType;
+	}
+
+	public Boolean getQueueDefaultPersistent() {
+		return queueDefaultPersistent;
+	}
+
+	public void setQueueDefaultPersistent(Boolean queueDefaultPersistent) {
+		this.queueDefaultPersistent = queueDefaultPersistent;
+	}
+
+	public Integer getQueueMaxMessageLength() {
+		return queueMaxMessageLength;
+	}
+
+	public void setQueueMaxMessageLength(Integer queueMaxMessageLength) {
+		this.queueMaxMessageLength = queueMaxMessageLength;
+	}
+
+	public DefaultReadAhead getQueueDefaultReadAhead() {
+		return queueDefaultReadAhead;
+	}
+
+	public void setQueueDefaultReadAhead(DefaultReadAhead queueDefaultReadAhead) {
+		this.queueDefaultReadAhead = queueDefaultReadAhead;
+	}
+
+	public int getCompressionThreshold() {
+		return compressionThreshold;
+	}
+
+	public void setCompressionThreshold(int compressionThreshold) {
+		this.compressionThreshold = compressionThreshold;
+	}
+
+	public int getProducerBatchSize() {
+		return producerBatchSize;
+	}
+
+	public void setProducerBatchSize(int producerBatchSize) {
+		this.producerBatchSize = producerBatchSize;
+	}
+
+	public long getProducerBatchLinger() {
+		return producerBatchLinger;
+	}
+
+	public void setProducerBatchLinger(long producerBatchLinger) {
+		this.producerBatchLinger = producerBatchLinger;
+	}
+
+	public int getConsumerBatchSize() {
+		return consumerBatchSize;
+	}
+
+	public void setConsumerBatchSize(int consumerBatchSize) {
+		this.consumerBatchSize = consumerBatchSize;
+	}
+
+	public long getConsumerBatchTimeout() {
+		return consumerBatchTimeout;
+	}
+
+	public void setConsumerBatchTimeout(long consumerBatchTimeout) {
+		this.consumerBatchTimeout = consumerBatchTimeout;
+	}
+
+	public int getConsumerMaxAttempts() {
+		return consumerMaxAttempts;
+	}
+
+	public void setConsumerMaxAttempts(int consumerMaxAttempts) {
+		this.consumerMaxAttempts = consumerMaxAttempts;
+	}
+
+	public ConsumerExecution getConsumerExecution() {
+		return consumerExecution;
+	}
+
+	public void setConsumerExecution(ConsumerExecution consumerExecution) {
+		this.consumerExecution = consumerExecution;
+	}
+
+	public long getIdleReceiveBackoff() {
+		return idleReceiveBackoff;
+	}
+
+	public void setIdleReceiveBackoff(long idleReceiveBackoff) {
+		this.idleReceiveBackoff = idleReceiveBackoff;
+	}
+
+	public int getDispatchWorkers() {
+		return dispatchWorkers;
+	}
+
+	public void setDispatchWorkers(int dispatchWorkers) {
+		this.dispatchWorkers = dispatchWorkers;
+	}
+
+	public String getDispatchKey() {
+		return dispatchKey;
+	}
+
+	public void setDispatchKey(String dispatchKey) {
+		this.dispatchKey = dispatchKey;
+	}
+
+	public int getDispatchQueueCapacity() {
+		return dispatchQueueCapacity;
+	}
+
+	public void setDispatchQueueCapacity(int dispatchQueueCapacity) {
+		this.dispatchQueueCapacity = dispatchQueueCapacity;
+	}
+
+	public int getDispatchWindow() {
+		return dispatchWindow;
+	}
+
+	public void setDispatchWindow(int dispatchWindow) {
+		this.dispatchWindow = dispatchWindow;
+	}
+
+	public long getDispatchTimeout() {
+		return dispatchTimeout;
+	}
+
+	public void setDispatchTimeout(long dispatchTimeout) {
+		this.dispatchTimeout = dispatchTimeout;
+	}
+
+	public enum BindingMode {
+
+		/**
+		 * Producers publish to a topic, each consumer group reads from its own queue
+		 * subscribed to that topic.
+		 */
+		TOPIC,
+
+		/**
+		 * Producers put directly to a local queue that all consumers read from, with no
+		 * topic or subscription in between. All consumer groups compete for the same
+		 * messages, so use this for destinations with a single consumer group.
+		 */
+		QUEUE
+	}
+
+	public enum ConsumerExecution {
+
+		/**
+		 * One platform thread per consumer, blocked in the MQ client while waiting for
+		 * messages.
+		 */
+		PLATFORM_THREADS,
+
+		/**
+		 * One virtual thread per consumer, on Java 21 or later. An empty queue is
+		 * polled with a back off up to {@code idleReceiveBackoff} rather than waited on
+		 * in the MQ client, so idle consumers don't hold on to a carrier thread.
+		 */
+		VIRTUAL_THREADS
+	}
+
+	public enum TargetClient {
+
+		JMS(WMQConstants.WMQ_CLIENT_JMS_COMPLIANT),
+
+		/**
+		 * No MQRFH2 header. JMS properties, including the message headers mapped to
+		 * them, are not sent.
+		 */
+		MQ(WMQConstants.WMQ_CLIENT_NONJMS_MQ);
+
+		private final int value;
+
+		TargetClient(int value) {
+			this.value = value;
+		}
+
+		public int getValue() {
+			return value;
+		}
+	}
+
+	public enum IndexType {
+
+		NONE(MQConstants.MQIT_NONE),
+
+		MESSAGE_ID(MQConstants.MQIT_MSG_ID),
+
+		CORRELATION_ID(MQConstants.MQIT_CORREL_ID),
+
+		GROUP_ID(MQConstants.MQIT_GROUP_ID),
+
+		MESSAGE_TOKEN(MQConstants.MQIT_MSG_TOKEN);
+
+		private final int value;
+
+		IndexType(int value) {
+			this.value = value;
+		}
+
+		public int getValue() {
+			return value;
+		}
+	}
+
+	public enum DefaultReadAhead {
+
+		/**
+		 * Don't read ahead unless the application asks for it.
+		 */
+		NO(MQConstants.MQREADA_NO),
+
+		/**
+		 * Read ahead unless the application disables it.
+		 */
+		YES(MQConstants.MQREADA_YES),
+
+		/**
+		 * Never read ahead, whatever the application asks for.
+		 */
+		DISABLED(MQConstants.MQREADA_DISABLED);
+
+		private final int value;
+
+		DefaultReadAhead(int value) {
+			this.value = value;
+		}
+
+		public int getValue() {
+			return value;
+		}
+	}
+
+	public enum ReadAheadClosePolicy {
+
+		/**
+		 * Deliver all messages already read ahead before the consumer closes.
+		 */
+		DELIVER_ALL(WMQConstants.WMQ_READ_AHEAD_DELIVERALL),
+
+		/**
+		 * Only deliver the current message; messages read ahead are discarded.
+		 */
+		DELIVER_CURRENT(WMQConstants.WMQ_READ_AHEAD_DELIVERCURRENT);
+
+		private final int value;
+
+		ReadAheadClosePolicy(int value) {
+			this.value = value;
+		}
+
+		public int getValue() {
+			return value;
+		}
+	}
+
+	public enum Persistence {
+
+		/**
+		 * Use the persistence set by the sending application.
+		 */
+		APPLICATION(WMQConstants.WMQ_PER_APP),
+
+		/**
+		 * Use the queue's default persistence (DEFPSIST).
+		 */
+		QUEUE_DEFINED(WMQConstants.WMQ_PER_QDEF),
+
+		PERSISTENT(WMQConstants.WMQ_PER_PER),
+
+		NON_PERSISTENT(WMQConstants.WMQ_PER_NON),
+
+		/**
+		 * Non-persistent, but not lost on a clean queue manager shutdown.
+		 */
+		HIGH(WMQConstants.WMQ_PER_NPHIGH);
+
+		private final int value;
+
+		Persistence(int value) {
+			this.value = value;
+		}
+
+		public int getValue() {
+			return value;
+		}
+	}
+}
@@ -1,21 +1,36 @@
 package org.springframework.cloud.stream.binder.jms.ibmmq.config;
 
 import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
 
-import com.ibm.mq.MQEnvironment;
 import com.ibm.mq.jms.MQConnectionFactory;
 import com.ibm.msg.client.wmq.WMQConstants;
+import io.micrometer.core.instrument.MeterRegistry;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.jms.JndiConnectionFactoryAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.stream.binder.jms.config.JmsBinderAutoConfiguration;
+import org.springframework.cloud.stream.binder.jms.ibmmq.IBMMQBinderProvisioningProvider;
 import org.springframework.cloud.stream.binder.jms.ibmmq.IBMMQProvisioningProvider;
+import org.springframework.cloud.stream.binder.jms.ibmmq.IBMMQReconnectListener;
+import org.springframework.cloud.stream.binder.jms.ibmmq.IBMMQShards;
+import org.springframework.cloud.stream.binder.jms.ibmmq.health.IBMMQProvisioningHealthIndicator;
+import org.springframework.cloud.stream.binder.jms.ibmmq.metrics.IBMMQMetrics;
+import org.springframework.cloud.stream.binder.jms.ibmmq.metrics.MicrometerIBMMQMetrics;
 import org.springframework.cloud.stream.binder.jms.utils.DestinationNameResolver;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jms.connection.CachingConnectionFactory;
+import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
 /**
@@ -35,6 +50,7 @@ public class IBMMQJmsConfiguration {
 
 	public IBMMQJmsConfiguration(
 			final IBMMQConfigurationProperties configurationProperties) {
+		assertReconnectable(configurationProperties);
 		this.configurationProperties = configurationProperties;
 	}
 
@@ -42,19 +58,102 @@ public class IBMMQJmsConfiguration {
 	@Bean
 	public MQConnectionFactory connectionFactory(
 			IBMMQConfigurationProperties configurationProperties) throws Exception {
-		// see http://stackoverflow.com/a/33135633/2408961
-		MQEnvironment.hostname = configurationProperties.getHost();
-		MQEnvironment.port = configurationProperties.getPort();
-		MQEnvironment.channel = configurationProperties.getChannel();
+		return mqConnectionFactory(configurationProperties);
+	}
 
-		if (!StringUtils.isEmpty(configurationProperties.getUsername())) {
-			MQEnvironment.userID = configurationProperties.getUsername();
-			MQEnvironment.password = configurationProperties.getPassword();
+	/**
+	 * With {@code ibmmq.cachingEnabled}, the {@code connectionFactory} bean wrapped in a
+	 * {@link CachingConnectionFactory} (sharing one connection and caching sessions and
+	 * producers). It is the primary {@link ConnectionFactory}, so it is the one the
+	 * binder uses, while the {@link MQConnectionFactory} bean is left as it is.
+	 */
+	@ConditionalOnProperty(prefix = "ibmmq", name = "cachingEnabled", havingValue = "true")
+	@Primary
+	@Bean
+	public CachingConnectionFactory ibmMQCachingConnectionFactory(
+			MQConnectionFactory connectionFactory,
+			IBMMQConfigurationProperties configurationProperties,
+			IBMMQReconnectListener reconnectListener) {
+		return cachingConnectionFactory(connectionFactory, configurationProperties, reconnectListener);
+	}
+
+	@Bean
+	public IBMMQReconnectListener ibmMQReconnectListener(ObjectProvider<IBMMQMetrics> metrics) {
+		IBMMQReconnectListener reconnectListener = new IBMMQReconnectListener();
+		IBMMQMetrics ibmMQMetrics = metrics.getIfAvailable();
+		if (ibmMQMetrics != null) {
+			reconnectListener.setMetrics(ibmMQMetrics);
+		}
+
+		return reconnectListener;
+	}
+
+	/**
+	 * Create a connection factory as for the {@code connectionFactory} bean, cached as
+	 * the binder's is, e.g. for the queue managers in {@code ibmmq.shards}.
+	 */
+	public static ConnectionFactory createConnectionFactory(
+			IBMMQConfigurationProperties configurationProperties) throws JMSException {
+		return createConnectionFactory(configurationProperties, new IBMMQReconnectListener());
+	}
+
+	/**
+	 * With {@code ibmmq.clientReconnect} the MQ client reconnects the shared connection
+	 * itself, so rather than having it replaced on the first exception the given
+	 * listener is told about the reconnect, and only resets the connection if the
+	 * client gives up.
+	 */
+	public static ConnectionFactory createConnectionFactory(
+			IBMMQConfigurationProperties configurationProperties,
+			IBMMQReconnectListener reconnectListener) throws JMSException {
+		assertReconnectable(configurationProperties);
+		MQConnectionFactory connectionFactory = mqConnectionFactory(configurationProperties);
+		if (!configurationProperties.isCachingEnabled()) {
+			return connectionFactory;
+		}
+
+		return cachingConnectionFactory(connectionFactory, configurationProperties, reconnectListener);
+	}
+
+	/**
+	 * The reconnect listener is attached to the shared connection of the caching
+	 * connection factory, so without it reconnects would go untimed and a connection
+	 * the client gave up on would never be reset.
+	 */
+	private static void assertReconnectable(IBMMQConfigurationProperties configurationProperties) {
+		Assert.state(!configurationProperties.isClientReconnect() || configurationProperties.isCachingEnabled(),
+				"'ibmmq.clientReconnect' needs 'ibmmq.cachingEnabled'");
+	}
+
+	private static CachingConnectionFactory cachingConnectionFactory(MQConnectionFactory connectionFactory,
+			IBMMQConfigurationProperties configurationProperties,
+			IBMMQReconnectListener reconnectListener) {
+		CachingConnectionFactory cachingConnectionFactory = new CachingConnectionFactory(connectionFactory);
+		cachingConnectionFactory.setSessionCacheSize(configurationProperties.getSessionCacheSize());
+		cachingConnectionFactory.setCacheProducers(configurationProperties.isCacheProducers());
+		cachingConnectionFactory.setCacheConsumers(configurationProperties.isCacheConsumers());
+		if (configurationProperties.isClientReconnect()) {
+			cachingConnectionFactory.setReconnectOnException(false);
+			reconnectListener.setConnectionFactory(cachingConnectionFactory);
+			cachingConnectionFactory.setExceptionListener(reconnectListener);
+		}
+		else {
+			cachingConnectionFactory.setReconnectOnException(true);
 		}
 
+		return cachingConnectionFactory;
+	}
+
+	private static MQConnectionFactory mqConnectionFactory(
+			IBMMQConfigurationProperties configurationProperties) throws JMSException {
 		MQConnectionFactory connectionFactory = new MQConnectionFactory();
-		connectionFactory.setHostName(configurationProperties.getHost());
-		connectionFactory.setPort(configurationProperties.getPort());
+		if (StringUtils.hasText(configurationProperties.getConnectionNameList())) {
+			connectionFactory.setConnectionNameList(configurationProperties.getConnectionNameList());
+		}
+		else {
+			connectionFactory.setHostName(configurationProperties.getHost());
+			connectionFactory.setPort(configurationProperties.getPort());
+		}
 		connectionFactory.setQueueManager(configurationProperties.getQueueManager());
 		connectionFactory.setChannel(configurationProperties.getChannel());
 		connectionFactory.setTransportType(configurationProperties.getTransportType());
@@ -64,18 +163,98 @@ public class IBMMQJmsConfiguration {
 					configurationProperties.getUsername());
 			connectionFactory.setStringProperty(WMQConstants.PASSWORD,
 					configurationProperties.getPassword());
+			if (configurationProperties.isMqcspAuthentication()) {
+				connectionFactory.setBooleanProperty(WMQConstants.USER_AUTHENTICATION_MQCSP, true);
+			}
+		}
+
+		if (configurationProperties.getShareConversations() != null) {
+			connectionFactory.setShareConvAllowed(configurationProperties.getShareConversations()
+					? WMQConstants.WMQ_SHARE_CONV_ALLOWED_YES : WMQConstants.WMQ_SHARE_CONV_ALLOWED_NO);
+		}
+		if (configurationProperties.getMaxBufferSize() != null) {
+			connectionFactory.setMaxBufferSize(configurationProperties.getMaxBufferSize());
+		}
+		if (configurationProperties.getSendCheckCount() != null) {
+			connectionFactory.setSendCheckCount(configurationProperties.getSendCheckCount());
+		}
+		if (configurationProperties.isClientReconnect()) {
+			connectionFactory.setClientReconnectOptions(WMQConstants.WMQ_CLIENT_RECONNECT_Q_MGR);
+			connectionFactory.setClientReconnectTimeout(
+					(int) Math.ceil(configurationProperties.getReconnectTimeout() / 1000.0));
 		}
 
 		return connectionFactory;
 	}
 
+	@Bean
+	public IBMMQShards ibmMQShards(ObjectProvider<IBMMQMetrics> metrics) {
+		IBMMQShards shards = new IBMMQShards(configurationProperties);
+		IBMMQMetrics ibmMQMetrics = metrics.getIfAvailable();
+		if (ibmMQMetrics != null) {
+			shards.setMetrics(ibmMQMetrics);
+		}
+
+		return shards;
+	}
+
 	@Bean
 	public IBMMQProvisioningProvider ibmMQQueueProvisioner(
-			MQConnectionFactory connectionFactory,
-			DestinationNameResolver destinationNameResolver)
+			ConnectionFactory connectionFactory,
+			DestinationNameResolver destinationNameResolver,
+			IBMMQShards shards,
+			ObjectProvider<IBMMQMetrics> metrics)
 			throws Exception {
-		return new IBMMQProvisioningProvider(connectionFactory, configurationProperties,
-				destinationNameResolver);
+		IBMMQProvisioningProvider provisioningProvider = new IBMMQProvisioningProvider(
+				connectionFactory, configurationProperties, destinationNameResolver, shards);
+		IBMMQMetrics ibmMQMetrics = metrics.getIfAvailable();
+		if (ibmMQMetrics != null) {
+			provisioningProvider.setMetrics(ibmMQMetrics);
+		}
+
+		return provisioningProvider;
+	}
+
+	/**
+	 * The provisioner the binder's own bindings go through, which refuses what they
+	 * can't work with. Injecting {@link IBMMQProvisioningProvider} still gets the
+	 * provisioner itself.
+	 */
+	@Primary
+	@Bean
+	public IBMMQBinderProvisioningProvider ibmMQBinderProvisioningProvider(
+			IBMMQProvisioningProvider provisioningProvider) {
+		return new IBMMQBinderProvisioningProvider(provisioningProvider, configurationProperties);
+	}
+
+	/**
+	 * Micrometer meters for provisioning, only when a {@link MeterRegistry} is present.
+	 */
+	@Configuration
+	@ConditionalOnClass(MeterRegistry.class)
+	static class IBMMQMetricsConfiguration {
+
+		@Bean
+		@ConditionalOnBean(MeterRegistry.class)
+		@ConditionalOnMissingBean(IBMMQMetrics.class)
+		public IBMMQMetrics ibmMQMetrics(MeterRegistry meterRegistry) {
+			return new MicrometerIBMMQMetrics(meterRegistry);
+		}
+	}
+
+	/**
+	 * Readiness of background provisioning, only with Spring Boot Actuator.
+	 */
+	@Configuration
+	@ConditionalOnClass(HealthIndicator.class)
+	static class IBMMQHealthConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean(name = "ibmMQProvisioningHealthIndicator")
+		public IBMMQProvisioningHealthIndicator ibmMQProvisioningHealthIndicator(
+				IBMMQProvisioningProvider provisioningProvider) {
+			return new IBMMQProvisioningHealthIndicator(provisioningProvider.getProvisioningStatus());
+		}
 	}
 
 }
@@ -0,0 +1,81 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq.config;
+
+/**
+ * Connection settings of one queue manager in {@code ibmmq.shards}. Settings left
+ * unset are taken from the top level {@code ibmmq} connection settings.
+ */
+public class IBMMQShardProperties {
+
+	/**
+	 * The name of the Queue Manager
+	 */
+	private String queueManager;
+
+	private String host;
+
+	private Integer port;
+
+	private String connectionNameList;
+
+	private String channel;
+
+	private String username;
+
+	private String password;
+
+	public String getQueueManager() {
+		return queueManager;
+	}
+
+	public void setQueueManager(String queueManager) {
+		this.queueManager = queueManager;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public void setHost(String host) {
+		this.host = host;
+	}
+
+	public Integer getPort() {
+		return port;
+	}
+
+	public void setPort(Integer port) {
+		this.port = port;
+	}
+
+	public String getConnectionNameList() {
+		return connectionNameList;
+	}
+
+	public void setConnectionNameList(String connectionNameList) {
+		this.connectionNameList = connectionNameList;
+	}
+
+	public String getChannel() {
+		return channel;
+	}
+
+	public void setChannel(String channel) {
+		this.channel = channel;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public void setUsername(String username) {
+		this.username = username;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+
+	public void setPassword(String password) {
+		this.password = password;
+	}
+}
@@ -0,0 +1,59 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq.health;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.cloud.stream.binder.jms.ibmmq.IBMMQProvisioningStatus;
+import org.springframework.cloud.stream.binder.jms.ibmmq.IBMMQProvisioningStatus.Binding;
+import org.springframework.cloud.stream.binder.jms.ibmmq.IBMMQProvisioningStatus.State;
+
+/**
+ * Reports the progress of background provisioning, for use as a readiness check:
+ * {@code OUT_OF_SERVICE} while any binding is still being provisioned, {@code DOWN}
+ * if provisioning of any binding failed (it may still be retried) and {@code UP} once
+ * every binding is ready. Failures of ready bindings, whose objects exist but could not
+ * be brought up to date, are listed without affecting the status.
+ */
+public class IBMMQProvisioningHealthIndicator extends AbstractHealthIndicator {
+
+	private final IBMMQProvisioningStatus provisioningStatus;
+
+	public IBMMQProvisioningHealthIndicator(IBMMQProvisioningStatus provisioningStatus) {
+		this.provisioningStatus = provisioningStatus;
+	}
+
+	@Override
+	protected void doHealthCheck(Health.Builder builder) {
+		int pending = provisioningStatus.count(State.PENDING);
+		int failed = provisioningStatus.count(State.FAILED);
+
+		if (failed > 0) {
+			builder.down();
+		}
+		else if (pending > 0) {
+			builder.status(Status.OUT_OF_SERVICE);
+		}
+		else {
+			builder.up();
+		}
+
+		builder.withDetail("ready", provisioningStatus.count(State.READY))
+				.withDetail("pending", pending)
+				.withDetail("failed", failed);
+
+		Map<String, String> failures = new LinkedHashMap<>();
+		for (Binding binding : provisioningStatus.getBindings()) {
+			Throwable failure = binding.getFailure();
+			if (failure != null) {
+				failures.put(String.format("%s %s", binding.getType(), binding.getName()),
+						String.format("%s (attempt %d)", failure.getMessage(), binding.getAttempts()));
+			}
+		}
+		if (!failures.isEmpty()) {
+			builder.withDetail("failures", failures);
+		}
+	}
+}
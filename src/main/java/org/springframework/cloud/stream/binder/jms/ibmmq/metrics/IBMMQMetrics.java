@@ -0,0 +1,112 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq.metrics;
+
+import org.springframework.cloud.stream.binder.jms.ibmmq.IBMMQQueueStatus;
+
+/**
+ * Callbacks for recording provisioning and admin traffic metrics. The
+ * {@link #NONE} implementation is used when no metrics registry is available.
+ */
+public interface IBMMQMetrics {
+
+	String QUEUE = "queue";
+
+	String TOPIC = "topic";
+
+	String SUBSCRIPTION = "subscription";
+
+	String PRODUCER = "producer";
+
+	String CONSUMER = "consumer";
+
+	/**
+	 * The JMS connection, for messaging.
+	 */
+	String JMS = "jms";
+
+	/**
+	 * The PCF agent connections, for administration.
+	 */
+	String PCF = "pcf";
+
+	/**
+	 * Records nothing.
+	 */
+	IBMMQMetrics NONE = new IBMMQMetrics() {
+	};
+
+	/**
+	 * A PCF command for an object of the given type completed.
+	 * @param reasonCode the MQ reason code, 0 if the command succeeded
+	 */
+	default void pcfCommand(String objectType, Outcome outcome, int reasonCode, long durationNanos) {
+	}
+
+	/**
+	 * An object of the given type was provisioned, either by a command or because it
+	 * was already known to exist.
+	 */
+	default void objectProvisioned(String objectType, Outcome outcome) {
+	}
+
+	/**
+	 * A JMS connection was opened.
+	 */
+	default void connectionOpened(long durationNanos) {
+	}
+
+	/**
+	 * All objects for a producer or consumer binding were provisioned.
+	 */
+	default void bindingProvisioned(String destination, String bindingType, Outcome outcome,
+			long durationNanos) {
+	}
+
+	/**
+	 * The status of a monitored queue was inquired.
+	 */
+	default void queueStatus(IBMMQQueueStatus status) {
+	}
+
+	/**
+	 * A {@link #JMS} or {@link #PCF} connection to the queue manager failed and was
+	 * re-established.
+	 * @param durationNanos time from the failure until the connection was usable again
+	 */
+	default void reconnected(String connection, long durationNanos) {
+	}
+
+	/**
+	 * A {@link #JMS} connection to the queue manager failed and was re-established.
+	 * @param durationNanos time from the failure until the connection was usable again
+	 * @param inFlight messages sent but not yet committed when the connection failed
+	 */
+	default void reconnected(String connection, long durationNanos, int inFlight) {
+		reconnected(connection, durationNanos);
+	}
+
+	/**
+	 * A {@link #JMS} or {@link #PCF} connection could not be re-established within the
+	 * reconnect timeout.
+	 */
+	default void reconnectFailed(String connection, long durationNanos) {
+	}
+
+	enum Outcome {
+
+		CREATED("created"),
+
+		ALREADY_EXISTS("already-exists"),
+
+		ERROR("error");
+
+		private final String tag;
+
+		Outcome(String tag) {
+			this.tag = tag;
+		}
+
+		public String getTag() {
+			return tag;
+		}
+	}
+}
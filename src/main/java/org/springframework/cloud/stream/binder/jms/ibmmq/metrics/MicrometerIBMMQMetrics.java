@@ -0,0 +1,145 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.cloud.stream.binder.jms.ibmmq.IBMMQQueueStatus;
+
+/**
+ * {@link IBMMQMetrics} backed by a Micrometer {@link MeterRegistry}.
+ *
+ * <ul>
+ * <li>{@code ibmmq.pcf.commands}: PCF command latency, tagged by {@code type},
+ * {@code outcome} and MQ {@code reason} code (e.g. 4001 or 3311 for objects that
+ * already exist)</li>
+ * <li>{@code ibmmq.provisioning.objects}: objects provisioned, tagged by {@code type}
+ * and {@code outcome}</li>
+ * <li>{@code ibmmq.jms.connection.open}: JMS connection open time</li>
+ * <li>{@code ibmmq.provisioning.binding}: total provisioning time per binding, tagged by
+ * {@code destination}, {@code type} and {@code outcome}</li>
+ * <li>{@code ibmmq.queue.depth}, {@code ibmmq.queue.oldest.message.age} and
+ * {@code ibmmq.queue.open.input.count}: gauges of the last inquired status of each
+ * monitored queue, tagged by {@code queue}</li>
+ * <li>{@code ibmmq.reconnect}: time to recover a failed connection, tagged by
+ * {@code connection} ({@code jms} or {@code pcf}) and {@code outcome}</li>
+ * <li>{@code ibmmq.reconnect.inflight}: messages in flight when a JMS connection
+ * failed</li>
+ * </ul>
+ */
+public class MicrometerIBMMQMetrics implements IBMMQMetrics {
+
+	private final MeterRegistry meterRegistry;
+
+	private final ConcurrentMap<String, AtomicReference<IBMMQQueueStatus>> queueStatuses = new ConcurrentHashMap<>();
+
+	public MicrometerIBMMQMetrics(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public void pcfCommand(String objectType, Outcome outcome, int reasonCode, long durationNanos) {
+		Timer.builder("ibmmq.pcf.commands")
+				.description("PCF admin command latency")
+				.tag("type", objectType)
+				.tag("outcome", outcome.getTag())
+				.tag("reason", String.valueOf(reasonCode))
+				.register(meterRegistry)
+				.record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void objectProvisioned(String objectType, Outcome outcome) {
+		Counter.builder("ibmmq.provisioning.objects")
+				.description("Provisioned MQ objects")
+				.tag("type", objectType)
+				.tag("outcome", outcome.getTag())
+				.register(meterRegistry)
+				.increment();
+	}
+
+	@Override
+	public void connectionOpened(long durationNanos) {
+		Timer.builder("ibmmq.jms.connection.open")
+				.description("JMS connection open time")
+				.register(meterRegistry)
+				.record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void queueStatus(IBMMQQueueStatus status) {
+		AtomicReference<IBMMQQueueStatus> lastStatus = queueStatuses.get(status.getQueueName());
+		if (lastStatus == null) {
+			AtomicReference<IBMMQQueueStatus> newStatus = new AtomicReference<>(status);
+			lastStatus = queueStatuses.putIfAbsent(status.getQueueName(), newStatus);
+			if (lastStatus == null) {
+				registerQueueGauges(status.getQueueName(), newStatus);
+				return;
+			}
+		}
+
+		lastStatus.set(status);
+	}
+
+	private void registerQueueGauges(String queueName, AtomicReference<IBMMQQueueStatus> status) {
+		Gauge.builder("ibmmq.queue.depth", status, s -> s.get().getCurrentDepth())
+				.description("Current queue depth")
+				.tag("queue", queueName)
+				.register(meterRegistry);
+		Gauge.builder("ibmmq.queue.oldest.message.age", status, s -> s.get().getOldestMessageAge())
+				.description("Age, in seconds, of the oldest message on the queue")
+				.tag("queue", queueName)
+				.register(meterRegistry);
+		Gauge.builder("ibmmq.queue.open.input.count", status, s -> s.get().getOpenInputCount())
+				.description("Number of handles open for input on the queue")
+				.tag("queue", queueName)
+				.register(meterRegistry);
+	}
+
+	@Override
+	public void reconnected(String connection, long durationNanos) {
+		reconnectTimer(connection, "recovered").record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void reconnected(String connection, long durationNanos, int inFlight) {
+		reconnected(connection, durationNanos);
+		DistributionSummary.builder("ibmmq.reconnect.inflight")
+				.description("Messages in flight when a connection failed")
+				.tag("connection", connection)
+				.register(meterRegistry)
+				.record(inFlight);
+	}
+
+	@Override
+	public void reconnectFailed(String connection, long durationNanos) {
+		reconnectTimer(connection, "failed").record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	private Timer reconnectTimer(String connection, String outcome) {
+		return Timer.builder("ibmmq.reconnect")
+				.description("Time to recover a failed connection")
+				.tag("connection", connection)
+				.tag("outcome", outcome)
+				.register(meterRegistry);
+	}
+
+	@Override
+	public void bindingProvisioned(String destination, String bindingType, Outcome outcome,
+			long durationNanos) {
+		Timer.builder("ibmmq.provisioning.binding")
+				.description("Total provisioning time per binding")
+				.tag("destination", destination)
+				.tag("type", bindingType)
+				.tag("outcome", outcome.getTag())
+				.register(meterRegistry)
+				.record(durationNanos, TimeUnit.NANOSECONDS);
+	}
+}
@@ -0,0 +1,221 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ibm.mq.MQException;
+import com.ibm.mq.constants.MQConstants;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
+import org.springframework.cloud.stream.binder.jms.config.JmsConsumerProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQConfigurationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.metrics.IBMMQMetrics;
+import org.springframework.cloud.stream.provisioning.ConsumerDestination;
+import org.springframework.jms.connection.SingleConnectionFactory;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessagingMessageConverter;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class IBMMQBatchingConsumerTests {
+
+	private IBMMQFakeQueueManager queueManager;
+
+	private IBMMQProvisioningProvider provisioningProvider;
+
+	private ConsumerDestination consumerDestination;
+
+	private IBMMQDestinationProperties destinationProperties;
+
+	@Before
+	public void setUp() throws Exception {
+		queueManager = new IBMMQFakeQueueManager();
+		IBMMQConfigurationProperties configurationProperties = queueManager.configurationProperties();
+		provisioningProvider = queueManager.provisioningProvider(configurationProperties);
+		consumerDestination = provisioningProvider.provisionConsumerDestination("orders", "billing",
+				new ExtendedConsumerProperties<>(new JmsConsumerProperties()));
+		destinationProperties = configurationProperties.getDestinationProperties("orders");
+		destinationProperties.setConsumerBatchSize(10);
+		destinationProperties.setConsumerBatchTimeout(200);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		provisioningProvider.destroy();
+		queueManager.stop();
+	}
+
+	@Test
+	public void messagesThatCannotBeConvertedAreDeadLettered() throws Exception {
+		List<Object> handled = new CopyOnWriteArrayList<>();
+		IBMMQBatchingConsumer consumer = new IBMMQBatchingConsumer(queueManager.getConnectionFactory(),
+				consumerDestination, JmsConsumerProperties.DEFAULT_DLQ_NAME, destinationProperties,
+				message -> handled.addAll((List<?>) message.getPayload()));
+		consumer.setMessageConverter(new MessagingMessageConverter() {
+
+			@Override
+			public Object fromMessage(javax.jms.Message message) throws JMSException {
+				if ("poison".equals(((TextMessage) message).getText())) {
+					throw new MessageConversionException("poison");
+				}
+				return super.fromMessage(message);
+			}
+		});
+
+		consumer.start();
+		try {
+			send("first", "poison", "last");
+			awaitHandled(handled, 2);
+		}
+		finally {
+			consumer.stop();
+		}
+
+		assertThat(handled, containsInAnyOrder("first", "last"));
+		assertThat(queueDepth(consumerDestination.getName()), equalTo(0));
+		assertThat(queueDepth(JmsConsumerProperties.DEFAULT_DLQ_NAME), equalTo(1));
+	}
+
+	@Test
+	public void failedMessagesAreAttemptedAgainBeforeBeingDeadLettered() throws Exception {
+		Map<Object, AtomicInteger> attempts = new ConcurrentHashMap<>();
+		List<Object> handled = new CopyOnWriteArrayList<>();
+		IBMMQBatchingConsumer consumer = new IBMMQBatchingConsumer(queueManager.getConnectionFactory(),
+				consumerDestination, JmsConsumerProperties.DEFAULT_DLQ_NAME, destinationProperties, message -> {
+					List<?> payloads = (List<?>) message.getPayload();
+					for (Object payload : payloads) {
+						int attempt = attempts.computeIfAbsent(payload, p -> new AtomicInteger()).incrementAndGet();
+						// 'flaky' fails in the batch and on its first attempt alone, 'poison' always fails
+						if ("poison".equals(payload) || ("flaky".equals(payload) && attempt < 3)) {
+							throw new IllegalStateException("failed " + payload);
+						}
+					}
+					handled.addAll(payloads);
+				});
+
+		consumer.start();
+		try {
+			send("flaky", "poison");
+			awaitHandled(handled, 1);
+			// the poison message is given its remaining attempts
+			Thread.sleep(200);
+		}
+		finally {
+			consumer.stop();
+		}
+
+		assertThat(handled, containsInAnyOrder("flaky"));
+		assertThat(attempts.get("poison").get(), greaterThanOrEqualTo(destinationProperties.getConsumerMaxAttempts()));
+		assertThat(queueDepth(consumerDestination.getName()), equalTo(0));
+		assertThat(queueDepth(JmsConsumerProperties.DEFAULT_DLQ_NAME), equalTo(1));
+	}
+
+	@Test
+	public void batchBeingHandledIsCountedAsInFlightDuringAReconnect() throws Exception {
+		IBMMQMetrics metrics = mock(IBMMQMetrics.class);
+		IBMMQReconnectListener reconnectListener = new IBMMQReconnectListener();
+		reconnectListener.setMetrics(metrics);
+		SingleConnectionFactory connectionFactory = new SingleConnectionFactory(queueManager.getConnectionFactory());
+		connectionFactory.setExceptionListener(reconnectListener);
+		AtomicInteger batchSize = new AtomicInteger();
+		CountDownLatch handling = new CountDownLatch(1);
+		CountDownLatch reconnected = new CountDownLatch(1);
+		IBMMQBatchingConsumer consumer = new IBMMQBatchingConsumer(connectionFactory, consumerDestination,
+				JmsConsumerProperties.DEFAULT_DLQ_NAME, destinationProperties, message -> {
+					batchSize.set(((List<?>) message.getPayload()).size());
+					handling.countDown();
+					try {
+						reconnected.await(10, TimeUnit.SECONDS);
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+
+		consumer.start();
+		try {
+			send("first", "second");
+			assertThat(handling.await(10, TimeUnit.SECONDS), equalTo(true));
+			reconnect(reconnectListener);
+			reconnected.countDown();
+		}
+		finally {
+			consumer.stop();
+			connectionFactory.destroy();
+		}
+		verify(metrics).reconnected(eq(IBMMQMetrics.JMS), anyLong(), eq(batchSize.get()));
+
+		// no longer counted once stopped
+		reconnect(reconnectListener);
+		verify(metrics).reconnected(eq(IBMMQMetrics.JMS), anyLong(), eq(0));
+	}
+
+	private void reconnect(IBMMQReconnectListener reconnectListener) {
+		for (int reason : new int[] { MQConstants.MQRC_RECONNECTING, MQConstants.MQRC_RECONNECTED }) {
+			JMSException exception = new JMSException("reason " + reason);
+			exception.setLinkedException(new MQException(MQConstants.MQCC_FAILED, reason, this));
+			reconnectListener.onException(exception);
+		}
+	}
+
+	private void send(String... texts) throws Exception {
+		Connection connection = queueManager.getConnectionFactory().createConnection();
+		try {
+			Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+			MessageProducer producer = session.createProducer(session.createQueue(consumerDestination.getName()));
+			for (String text : texts) {
+				producer.send(session.createTextMessage(text));
+			}
+		}
+		finally {
+			JmsUtils.closeConnection(connection);
+		}
+	}
+
+	private void awaitHandled(List<Object> handled, int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (handled.size() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private int queueDepth(String queueName) throws Exception {
+		Connection connection = queueManager.getConnectionFactory().createConnection();
+		try {
+			Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+			int depth = 0;
+			Enumeration<?> messages = session.createBrowser(session.createQueue(queueName)).getEnumeration();
+			while (messages.hasMoreElements()) {
+				messages.nextElement();
+				depth++;
+			}
+			return depth;
+		}
+		finally {
+			JmsUtils.closeConnection(connection);
+		}
+	}
+}
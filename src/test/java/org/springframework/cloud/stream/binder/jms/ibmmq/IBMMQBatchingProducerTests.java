@@ -0,0 +1,117 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IBMMQBatchingProducerTests {
+
+	@Test
+	public void failedSendRollsBackItsBatchAndSendsTheRestAgain() throws Exception {
+		Session session = mock(Session.class);
+		MessageProducer messageProducer = mock(MessageProducer.class);
+		when(session.createProducer(null)).thenReturn(messageProducer);
+		Connection connection = mock(Connection.class);
+		when(connection.createSession(anyBoolean(), anyInt())).thenReturn(session);
+		ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+		when(connectionFactory.createConnection()).thenReturn(connection);
+
+		IBMMQDestinationProperties destinationProperties = new IBMMQDestinationProperties();
+		destinationProperties.setProducerBatchSize(3);
+		destinationProperties.setProducerBatchLinger(1000);
+		IBMMQBatchingProducer producer = new IBMMQBatchingProducer(connectionFactory,
+				new IBMMQProducerDestination(Collections.singletonMap(-1, mock(Queue.class))),
+				destinationProperties);
+		producer.setMessageConverter(new PoisonMessageConverter());
+
+		producer.start();
+		try {
+			CompletableFuture<Void> first = producer.send(MessageBuilder.withPayload("first").build());
+			CompletableFuture<Void> poison = producer.send(MessageBuilder.withPayload("poison").build());
+			CompletableFuture<Void> last = producer.send(MessageBuilder.withPayload("last").build());
+
+			first.get(5, TimeUnit.SECONDS);
+			last.get(5, TimeUnit.SECONDS);
+			try {
+				poison.get(5, TimeUnit.SECONDS);
+				fail("Expected the poison message to fail");
+			}
+			catch (ExecutionException e) {
+				assertThat(e.getCause(), instanceOf(MessageConversionException.class));
+			}
+		}
+		finally {
+			producer.stop();
+		}
+
+		// 'first' is sent, rolled back with the poison message, then sent again before 'last'
+		verify(session).rollback();
+		verify(messageProducer, times(3)).send(any(Destination.class), any(javax.jms.Message.class));
+		verify(session, times(2)).commit();
+	}
+
+	@Test
+	public void messagesAreFailedWhenStoppedBeforeProvisioning() throws Exception {
+		ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+		IBMMQBatchingProducer producer = new IBMMQBatchingProducer(connectionFactory,
+				new IBMMQProducerDestination(Collections.singletonMap(-1, mock(Queue.class))),
+				new IBMMQDestinationProperties());
+		producer.setProvisioned(new CompletableFuture<>());
+
+		producer.start();
+		CompletableFuture<Void> message = producer.send(MessageBuilder.withPayload("message").build());
+		producer.stop();
+
+		try {
+			message.get(5, TimeUnit.SECONDS);
+			fail("Expected the message to fail");
+		}
+		catch (ExecutionException e) {
+			assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+		}
+		verify(connectionFactory, never()).createConnection();
+	}
+
+	private static class PoisonMessageConverter implements MessageConverter {
+
+		@Override
+		public javax.jms.Message toMessage(Object object, Session session) throws JMSException {
+			if ("poison".equals(((org.springframework.messaging.Message<?>) object).getPayload())) {
+				throw new MessageConversionException("poison");
+			}
+			return mock(javax.jms.Message.class);
+		}
+
+		@Override
+		public Object fromMessage(javax.jms.Message message) throws JMSException {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
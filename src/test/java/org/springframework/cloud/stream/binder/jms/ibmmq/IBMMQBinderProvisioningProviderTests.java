@@ -0,0 +1,125 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
+import org.springframework.cloud.stream.binder.ExtendedProducerProperties;
+import org.springframework.cloud.stream.binder.jms.config.JmsConsumerProperties;
+import org.springframework.cloud.stream.binder.jms.config.JmsProducerProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQConfigurationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQShardProperties;
+import org.springframework.cloud.stream.provisioning.ConsumerDestination;
+import org.springframework.cloud.stream.provisioning.ProvisioningException;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class IBMMQBinderProvisioningProviderTests {
+
+	private IBMMQFakeQueueManager queueManager;
+
+	private IBMMQConfigurationProperties configurationProperties;
+
+	private IBMMQProvisioningProvider provisioningProvider;
+
+	private IBMMQBinderProvisioningProvider binderProvisioningProvider;
+
+	@Before
+	public void setUp() throws Exception {
+		queueManager = new IBMMQFakeQueueManager();
+		configurationProperties = queueManager.configurationProperties();
+		IBMMQDestinationProperties destinationProperties = new IBMMQDestinationProperties();
+		destinationProperties.setBindingMode(IBMMQDestinationProperties.BindingMode.QUEUE);
+		configurationProperties.getDestinations().put("orders", destinationProperties);
+		provisioningProvider = queueManager.provisioningProvider(configurationProperties);
+		binderProvisioningProvider = new IBMMQBinderProvisioningProvider(provisioningProvider,
+				configurationProperties);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		provisioningProvider.destroy();
+		queueManager.stop();
+	}
+
+	@Test(expected = ProvisioningException.class)
+	public void producerInQueueModeIsRefused() {
+		binderProvisioningProvider.provisionProducerDestination("orders",
+				new ExtendedProducerProperties<>(new JmsProducerProperties()));
+	}
+
+	@Test
+	public void consumerInQueueModeReadsTheQueue() {
+		ConsumerDestination consumerDestination = binderProvisioningProvider.provisionConsumerDestination("orders",
+				"billing", new ExtendedConsumerProperties<>(new JmsConsumerProperties()));
+
+		assertThat(consumerDestination.getName(), equalTo("orders"));
+		assertThat(queueManager.containsQueue("orders"), equalTo(true));
+	}
+
+	@Test
+	public void producerInTopicModeIsProvisioned() {
+		binderProvisioningProvider.provisionProducerDestination("payments",
+				new ExtendedProducerProperties<>(new JmsProducerProperties()));
+
+		assertThat(queueManager.containsTopic("payments"), equalTo(true));
+	}
+
+	@Test
+	public void producerIsProvisionedBeforeItIsBoundWhenProvisioningInTheBackground() {
+		IBMMQConfigurationProperties backgroundProperties = queueManager.configurationProperties();
+		backgroundProperties.setBackgroundProvisioning(true);
+		IBMMQProvisioningProvider backgroundProvisioningProvider = queueManager
+				.provisioningProvider(backgroundProperties);
+		try {
+			ExtendedProducerProperties<JmsProducerProperties> properties = new ExtendedProducerProperties<>(
+					new JmsProducerProperties());
+			properties.setRequiredGroups("billing");
+
+			new IBMMQBinderProvisioningProvider(backgroundProvisioningProvider, backgroundProperties)
+					.provisionProducerDestination("payments", properties);
+
+			// the binder's producer publishes straight away, so the subscription must exist
+			assertThat(queueManager.containsSubscription("payments.billing"), equalTo(true));
+		}
+		finally {
+			backgroundProvisioningProvider.destroy();
+		}
+	}
+
+	@Test(expected = ProvisioningException.class)
+	public void partitionedProducerIsRefusedWhenSharding() {
+		configurationProperties.getShards().add(new IBMMQShardProperties());
+		ExtendedProducerProperties<JmsProducerProperties> properties = new ExtendedProducerProperties<>(
+				new JmsProducerProperties());
+		properties.setPartitionKeyExpression(new SpelExpressionParser().parseExpression("payload"));
+		properties.setPartitionCount(2);
+
+		binderProvisioningProvider.provisionProducerDestination("payments", properties);
+	}
+
+	@Test(expected = ProvisioningException.class)
+	public void partitionedConsumerIsRefusedWhenSharding() {
+		configurationProperties.getShards().add(new IBMMQShardProperties());
+		ExtendedConsumerProperties<JmsConsumerProperties> properties = new ExtendedConsumerProperties<>(
+				new JmsConsumerProperties());
+		properties.setPartitioned(true);
+		properties.setInstanceCount(2);
+
+		binderProvisioningProvider.provisionConsumerDestination("payments", "billing", properties);
+	}
+
+	@Test
+	public void unpartitionedBindingsAreProvisionedWhenSharding() {
+		configurationProperties.getShards().add(new IBMMQShardProperties());
+
+		binderProvisioningProvider.provisionProducerDestination("payments",
+				new ExtendedProducerProperties<>(new JmsProducerProperties()));
+
+		assertThat(queueManager.containsTopic("payments"), equalTo(true));
+	}
+}
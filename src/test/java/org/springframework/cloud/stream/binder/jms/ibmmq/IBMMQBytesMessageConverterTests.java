@@ -0,0 +1,177 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Session;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.jms.support.converter.MessageConversionException;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IBMMQBytesMessageConverterTests {
+
+	private Session session;
+
+	private byte[] payload;
+
+	@Before
+	public void setUp() throws Exception {
+		session = mock(Session.class);
+		when(session.createBytesMessage()).thenAnswer(invocation -> bytesMessage());
+
+		byte[] record = "{\"orderId\":12345,\"status\":\"SHIPPED\"},".getBytes(StandardCharsets.UTF_8);
+		payload = new byte[256 * 1024];
+		for (int i = 0; i < payload.length; i++) {
+			payload[i] = record[i % record.length];
+		}
+	}
+
+	@Test
+	public void payloadBelowThresholdIsWrittenWithoutCopying() throws Exception {
+		IBMMQBytesMessageConverter converter = new IBMMQBytesMessageConverter(payload.length + 1);
+
+		BytesMessage message = (BytesMessage) converter.toMessage(payload, session);
+
+		verify(message).writeBytes(same(payload), eq(0), eq(payload.length));
+		assertThat(message.getStringProperty(IBMMQBytesMessageConverter.COMPRESSION), nullValue());
+		message.reset();
+		assertThat((byte[]) converter.fromMessage(message), equalTo(payload));
+	}
+
+	@Test
+	public void payloadAboveThresholdIsCompressedAndDecompressed() throws Exception {
+		BytesMessage message = (BytesMessage) new IBMMQBytesMessageConverter(64 * 1024).toMessage(payload, session);
+
+		assertThat(message.getStringProperty(IBMMQBytesMessageConverter.COMPRESSION),
+				equalTo(IBMMQBytesMessageConverter.DEFLATE));
+		assertThat(message.getBodyLength(), lessThan((long) payload.length / 10));
+
+		// the receiving side doesn't need to compress to decompress
+		message.reset();
+		assertThat((byte[]) new IBMMQBytesMessageConverter(0).fromMessage(message), equalTo(payload));
+	}
+
+	@Test
+	public void directBufferIsWrittenInChunks() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(payload.length);
+		buffer.put(payload).flip();
+
+		BytesMessage message = (BytesMessage) new IBMMQBytesMessageConverter(0).toMessage(buffer, session);
+		BytesMessage compressedMessage = (BytesMessage) new IBMMQBytesMessageConverter(1).toMessage(buffer,
+				session);
+
+		// the buffer itself is left as it was
+		assertThat(buffer.remaining(), equalTo(payload.length));
+		message.reset();
+		assertThat((byte[]) new IBMMQBytesMessageConverter(0).fromMessage(message), equalTo(payload));
+		compressedMessage.reset();
+		assertThat((byte[]) new IBMMQBytesMessageConverter(0).fromMessage(compressedMessage), equalTo(payload));
+	}
+
+	@Test(expected = MessageConversionException.class)
+	public void corruptBodyIsRejected() throws Exception {
+		BytesMessage message = compressedMessage(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }, payload.length);
+
+		new IBMMQBytesMessageConverter(0).fromMessage(message);
+	}
+
+	@Test(expected = MessageConversionException.class)
+	public void truncatedBodyIsRejected() throws Exception {
+		byte[] body = compressedBody();
+
+		new IBMMQBytesMessageConverter(0).fromMessage(compressedMessage(Arrays.copyOf(body, body.length / 2),
+				payload.length));
+	}
+
+	@Test(expected = MessageConversionException.class)
+	public void bodyShorterThanItsDeclaredLengthIsRejected() throws Exception {
+		new IBMMQBytesMessageConverter(0).fromMessage(compressedMessage(compressedBody(), payload.length + 1));
+	}
+
+	@Test(expected = MessageConversionException.class)
+	public void negativeDeclaredLengthIsRejected() throws Exception {
+		new IBMMQBytesMessageConverter(0).fromMessage(compressedMessage(compressedBody(), -1));
+	}
+
+	@Test(expected = MessageConversionException.class)
+	public void declaredLengthAboveTheLimitIsRejected() throws Exception {
+		IBMMQBytesMessageConverter converter = new IBMMQBytesMessageConverter(0);
+		converter.setMaxUncompressedLength(payload.length - 1);
+
+		converter.fromMessage(compressedMessage(compressedBody(), payload.length));
+	}
+
+	private byte[] compressedBody() throws JMSException {
+		BytesMessage message = (BytesMessage) new IBMMQBytesMessageConverter(1).toMessage(payload, session);
+		message.reset();
+		byte[] body = new byte[(int) message.getBodyLength()];
+		message.readBytes(body);
+		return body;
+	}
+
+	private BytesMessage compressedMessage(byte[] body, int uncompressedLength) throws JMSException {
+		BytesMessage message = bytesMessage();
+		message.writeBytes(body, 0, body.length);
+		message.setStringProperty(IBMMQBytesMessageConverter.COMPRESSION, IBMMQBytesMessageConverter.DEFLATE);
+		message.setIntProperty(IBMMQBytesMessageConverter.UNCOMPRESSED_LENGTH, uncompressedLength);
+		message.reset();
+		return message;
+	}
+
+	/**
+	 * A {@link BytesMessage} writing into and reading from an in-memory body.
+	 */
+	private BytesMessage bytesMessage() throws JMSException {
+		final ByteArrayOutputStream body = new ByteArrayOutputStream();
+		final ByteArrayInputStream[] input = new ByteArrayInputStream[1];
+		final Map<String, Object> properties = new HashMap<>();
+
+		BytesMessage message = mock(BytesMessage.class);
+		doAnswer(invocation -> {
+			Object[] arguments = invocation.getArguments();
+			body.write((byte[]) arguments[0], (Integer) arguments[1], (Integer) arguments[2]);
+			return null;
+		}).when(message).writeBytes(any(byte[].class), anyInt(), anyInt());
+		doAnswer(invocation -> {
+			input[0] = new ByteArrayInputStream(body.toByteArray());
+			return null;
+		}).when(message).reset();
+		when(message.getBodyLength()).thenAnswer(invocation -> (long) body.size());
+		when(message.readBytes(any(byte[].class))).thenAnswer(invocation -> {
+			byte[] bytes = (byte[]) invocation.getArguments()[0];
+			return input[0].read(bytes, 0, bytes.length);
+		});
+		doAnswer(invocation -> properties.put((String) invocation.getArguments()[0], invocation.getArguments()[1]))
+				.when(message).setStringProperty(anyString(), anyString());
+		doAnswer(invocation -> properties.put((String) invocation.getArguments()[0], invocation.getArguments()[1]))
+				.when(message).setIntProperty(anyString(), anyInt());
+		when(message.getStringProperty(anyString()))
+				.thenAnswer(invocation -> properties.get(invocation.getArguments()[0]));
+		when(message.getIntProperty(anyString()))
+				.thenAnswer(invocation -> properties.get(invocation.getArguments()[0]));
+
+		return message;
+	}
+}
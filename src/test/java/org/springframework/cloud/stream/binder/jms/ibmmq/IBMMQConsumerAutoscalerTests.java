@@ -0,0 +1,36 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import org.junit.Test;
+
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class IBMMQConsumerAutoscalerTests {
+
+	@Test
+	public void maxConcurrentConsumersFollowsConcurrentConsumers() {
+		DefaultMessageListenerContainer listenerContainer = new DefaultMessageListenerContainer();
+		IBMMQConsumerAutoscaler autoscaler = new IBMMQConsumerAutoscaler(listenerContainer, 1, 3);
+		autoscaler.setScaleUpDepth(100);
+
+		for (int i = 0; i < 5; i++) {
+			autoscaler.queueStatus(new IBMMQQueueStatus("orders.billing", 500, 0, 1));
+		}
+		assertThat(listenerContainer.getConcurrentConsumers(), equalTo(3));
+		assertThat(listenerContainer.getMaxConcurrentConsumers(), equalTo(3));
+
+		autoscaler.queueStatus(new IBMMQQueueStatus("orders.billing", 0, 0, 3));
+		assertThat(listenerContainer.getConcurrentConsumers(), equalTo(2));
+		assertThat(listenerContainer.getMaxConcurrentConsumers(), equalTo(2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void containerScalingItselfIsRejected() {
+		DefaultMessageListenerContainer listenerContainer = new DefaultMessageListenerContainer();
+		listenerContainer.setMaxConcurrentConsumers(5);
+
+		new IBMMQConsumerAutoscaler(listenerContainer, 1, 3);
+	}
+}
@@ -0,0 +1,61 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import com.ibm.mq.jms.MQConnectionFactory;
+import com.ibm.mq.jms.MQDestination;
+import com.ibm.msg.client.wmq.WMQConstants;
+import org.junit.Test;
+
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties;
+import org.springframework.jms.connection.CachingConnectionFactory;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class IBMMQDestinationFactoryTests {
+
+	private final IBMMQDestinationFactory destinationFactory = new IBMMQDestinationFactory(
+			new MQConnectionFactory());
+
+	@Test
+	public void destinationPropertiesAreApplied() throws Exception {
+		IBMMQDestinationProperties destinationProperties = new IBMMQDestinationProperties();
+		destinationProperties.setPutAsyncAllowed(true);
+		destinationProperties.setReadAheadAllowed(true);
+		destinationProperties.setReadAheadClosePolicy(IBMMQDestinationProperties.ReadAheadClosePolicy.DELIVER_ALL);
+		destinationProperties.setPersistence(IBMMQDestinationProperties.Persistence.NON_PERSISTENT);
+		destinationProperties.setTargetClient(IBMMQDestinationProperties.TargetClient.MQ);
+
+		MQDestination queue = (MQDestination) destinationFactory.createQueue("telemetry.group",
+				destinationProperties);
+
+		assertThat(queue.getPutAsyncAllowed(), equalTo(WMQConstants.WMQ_PUT_ASYNC_ALLOWED_ENABLED));
+		assertThat(queue.getReadAheadAllowed(), equalTo(WMQConstants.WMQ_READ_AHEAD_ALLOWED_ENABLED));
+		assertThat(queue.getReadAheadClosePolicy(), equalTo(WMQConstants.WMQ_READ_AHEAD_DELIVERALL));
+		assertThat(queue.getPersistence(), equalTo(WMQConstants.WMQ_PER_NON));
+		assertThat(queue.getTargetClient(), equalTo(WMQConstants.WMQ_CLIENT_NONJMS_MQ));
+	}
+
+	@Test
+	public void unsetPropertiesKeepClientDefaults() throws Exception {
+		MQDestination queue = (MQDestination) destinationFactory.createQueue("telemetry.group",
+				new IBMMQDestinationProperties());
+
+		assertThat(queue.getPutAsyncAllowed(), equalTo(WMQConstants.WMQ_PUT_ASYNC_ALLOWED_AS_DEST));
+		assertThat(queue.getReadAheadAllowed(), equalTo(WMQConstants.WMQ_READ_AHEAD_ALLOWED_AS_DEST));
+		assertThat(queue.getTargetClient(), equalTo(WMQConstants.WMQ_CLIENT_JMS_COMPLIANT));
+	}
+
+	@Test
+	public void asyncPutAndReadAheadAreAppliedToTopicsBehindACachingConnectionFactory() throws Exception {
+		IBMMQDestinationProperties destinationProperties = new IBMMQDestinationProperties();
+		destinationProperties.setPutAsyncAllowed(true);
+		destinationProperties.setReadAheadAllowed(false);
+
+		MQDestination topic = (MQDestination) new IBMMQDestinationFactory(
+				new CachingConnectionFactory(new MQConnectionFactory())).createTopic("telemetry",
+						destinationProperties);
+
+		assertThat(topic.getPutAsyncAllowed(), equalTo(WMQConstants.WMQ_PUT_ASYNC_ALLOWED_ENABLED));
+		assertThat(topic.getReadAheadAllowed(), equalTo(WMQConstants.WMQ_READ_AHEAD_ALLOWED_DISABLED));
+	}
+}
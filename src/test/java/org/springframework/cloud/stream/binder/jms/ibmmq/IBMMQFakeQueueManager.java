@@ -0,0 +1,432 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.ibm.mq.MQException;
+import com.ibm.mq.constants.MQConstants;
+import com.ibm.mq.pcf.PCFMessage;
+import com.ibm.mq.pcf.PCFParameter;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.region.Destination;
+import org.apache.activemq.command.ActiveMQQueue;
+
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQConfigurationProperties;
+import org.springframework.cloud.stream.binder.jms.utils.Base64UrlNamingStrategy;
+import org.springframework.cloud.stream.binder.jms.utils.DestinationNameResolver;
+import org.springframework.jms.support.JmsUtils;
+
+/**
+ * In-process stand-in for a queue manager, so that provisioning and messaging can be
+ * exercised without IBM MQ.
+ *
+ * Answers the PCF commands {@link IBMMQRequests} sends, including the "already exists"
+ * reason codes, and keeps the objects they create in memory. Messages go through an
+ * embedded, non-persistent ActiveMQ broker: subscriptions are emulated by forwarding
+ * the publications on their topic that match their selector to their destination
+ * queue, as a queue manager does for an administrative subscription.
+ */
+public class IBMMQFakeQueueManager extends IBMMQPCFAgentPool {
+
+	private static final AtomicInteger instances = new AtomicInteger();
+
+	private final String name;
+
+	private final BrokerService broker;
+
+	private final ConnectionFactory connectionFactory;
+
+	/**
+	 * Connection for the subscription forwarders.
+	 */
+	private final Connection connection;
+
+	private final Map<String, Map<Integer, Object>> queues = new ConcurrentHashMap<>();
+
+	private final Map<String, String> topics = new ConcurrentHashMap<>();
+
+	private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+	private final AtomicInteger commands = new AtomicInteger();
+
+	private volatile long commandLatencyNanos;
+
+	public IBMMQFakeQueueManager() throws Exception {
+		super(() -> {
+			throw new UnsupportedOperationException("No queue manager behind the fake queue manager");
+		}, 1, 0, 0);
+
+		this.name = "FAKE.QM" + instances.incrementAndGet();
+		this.broker = new BrokerService();
+		this.broker.setBrokerName(this.name);
+		this.broker.setPersistent(false);
+		this.broker.setUseJmx(false);
+		this.broker.setUseShutdownHook(false);
+		this.broker.start();
+		this.broker.waitUntilStarted();
+
+		this.connectionFactory = new ActiveMQConnectionFactory(
+				String.format("vm://%s?create=false", this.name));
+		this.connection = this.connectionFactory.createConnection();
+		this.connection.start();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Connection factory for the embedded broker, to send and receive messages with.
+	 */
+	public ConnectionFactory getConnectionFactory() {
+		return connectionFactory;
+	}
+
+	/**
+	 * Simulate the round trip to the command server, for every PCF command.
+	 */
+	public void setCommandLatency(long latency, TimeUnit unit) {
+		this.commandLatencyNanos = unit.toNanos(latency);
+	}
+
+	public int getCommands() {
+		return commands.get();
+	}
+
+	public boolean containsQueue(String queueName) {
+		return queues.containsKey(queueName);
+	}
+
+	public boolean containsTopic(String topicName) {
+		return topics.containsKey(topicName);
+	}
+
+	public boolean containsSubscription(String subscriptionName) {
+		return subscriptions.containsKey(subscriptionName);
+	}
+
+	/**
+	 * Configuration naming this queue manager, with the inventory prefetch disabled.
+	 */
+	public IBMMQConfigurationProperties configurationProperties() {
+		IBMMQConfigurationProperties configurationProperties = new IBMMQConfigurationProperties();
+		configurationProperties.setQueueManager(name);
+		configurationProperties.setInventoryPrefetch(false);
+		return configurationProperties;
+	}
+
+	public IBMMQRequests requests(IBMMQConfigurationProperties configurationProperties) {
+		return new IBMMQRequests(connectionFactory, configurationProperties, this);
+	}
+
+	public IBMMQProvisioningProvider provisioningProvider(IBMMQConfigurationProperties configurationProperties) {
+		return new IBMMQProvisioningProvider(requests(configurationProperties), configurationProperties,
+				new DestinationNameResolver(new Base64UrlNamingStrategy("anonymous.")));
+	}
+
+	@Override
+	public PCFMessage[] send(PCFMessage request) throws MQException {
+		commands.incrementAndGet();
+		if (commandLatencyNanos > 0) {
+			LockSupport.parkNanos(commandLatencyNanos);
+		}
+
+		int command = request.getCommand();
+		switch (command) {
+		case MQConstants.MQCMD_CREATE_Q:
+			return createQueue(request);
+		case MQConstants.MQCMD_CHANGE_Q:
+			return changeQueue(request);
+		case MQConstants.MQCMD_INQUIRE_Q:
+			return inquireQueue(request);
+		case MQConstants.MQCMD_INQUIRE_Q_NAMES:
+			return response(command, MQConstants.MQCACF_Q_NAMES,
+					matching(queues.keySet(), string(request, MQConstants.MQCA_Q_NAME)));
+		case MQConstants.MQCMD_INQUIRE_Q_STATUS:
+			return inquireQueueStatus(request);
+		case MQConstants.MQCMD_CREATE_TOPIC:
+			return createTopic(request);
+		case MQConstants.MQCMD_INQUIRE_TOPIC_NAMES:
+			return response(command, MQConstants.MQCACF_TOPIC_NAMES,
+					matching(topics.keySet(), string(request, MQConstants.MQCA_TOPIC_NAME)));
+		case MQConstants.MQCMD_CREATE_SUBSCRIPTION:
+			return createSubscription(request);
+		case MQConstants.MQCMD_DELETE_SUBSCRIPTION:
+			return deleteSubscription(request);
+		case MQConstants.MQCMD_INQUIRE_SUBSCRIPTION:
+			return inquireSubscriptions(request);
+		default:
+			throw failed(MQConstants.MQRC_FUNCTION_NOT_SUPPORTED);
+		}
+	}
+
+	@Override
+	public PooledAgent borrow() {
+		return null;
+	}
+
+	@Override
+	public void giveBack(PooledAgent agent) {
+	}
+
+	@Override
+	public void invalidate(PooledAgent agent) {
+	}
+
+	/**
+	 * Stop the embedded broker. Closing the pool, as {@link IBMMQRequests#close()}
+	 * does, leaves it running.
+	 */
+	public void stop() {
+		for (Subscription subscription : subscriptions.values()) {
+			subscription.close();
+		}
+		subscriptions.clear();
+		JmsUtils.closeConnection(connection);
+		try {
+			broker.stop();
+			broker.waitUntilStopped();
+		}
+		catch (Exception e) {
+			throw new IllegalStateException("Could not stop embedded broker", e);
+		}
+	}
+
+	private PCFMessage[] createQueue(PCFMessage request) throws MQException {
+		String queueName = string(request, MQConstants.MQCA_Q_NAME);
+		Map<Integer, Object> attributes = new ConcurrentHashMap<>();
+		if (queues.putIfAbsent(queueName, attributes) != null) {
+			throw failed(IBMMQRequests.MQ_OBJECT_ALREADY_EXISTS);
+		}
+
+		attributes.putAll(attributes(request));
+		return response(request.getCommand());
+	}
+
+	private PCFMessage[] changeQueue(PCFMessage request) throws MQException {
+		queue(string(request, MQConstants.MQCA_Q_NAME)).putAll(attributes(request));
+		return response(request.getCommand());
+	}
+
+	private PCFMessage[] inquireQueue(PCFMessage request) throws MQException {
+		String queueName = string(request, MQConstants.MQCA_Q_NAME);
+		Map<Integer, Object> attributes = queue(queueName);
+
+		PCFMessage response = new PCFMessage(MQConstants.MQCFT_RESPONSE, request.getCommand(), 1, true);
+		response.addParameter(MQConstants.MQCA_Q_NAME, queueName);
+		for (int selector : (int[]) request.getParameterValue(MQConstants.MQIACF_Q_ATTRS)) {
+			addParameter(response, selector, attributes.get(selector));
+		}
+		return new PCFMessage[] { response };
+	}
+
+	private PCFMessage[] inquireQueueStatus(PCFMessage request) throws MQException {
+		String queueName = string(request, MQConstants.MQCA_Q_NAME);
+		queue(queueName);
+
+		int depth = 0;
+		int consumers = 0;
+		try {
+			Destination destination = broker.getDestination(new ActiveMQQueue(queueName));
+			if (destination != null) {
+				depth = (int) destination.getDestinationStatistics().getMessages().getCount();
+				consumers = (int) destination.getDestinationStatistics().getConsumers().getCount();
+			}
+		}
+		catch (Exception e) {
+			throw failed(MQConstants.MQRC_UNEXPECTED_ERROR);
+		}
+
+		PCFMessage response = new PCFMessage(MQConstants.MQCFT_RESPONSE, request.getCommand(), 1, true);
+		response.addParameter(MQConstants.MQCA_Q_NAME, queueName);
+		response.addParameter(MQConstants.MQIA_CURRENT_Q_DEPTH, depth);
+		// queue monitoring (MONQ) is off
+		response.addParameter(MQConstants.MQIACF_OLDEST_MSG_AGE, -1);
+		response.addParameter(MQConstants.MQIA_OPEN_INPUT_COUNT, consumers);
+		return new PCFMessage[] { response };
+	}
+
+	private PCFMessage[] createTopic(PCFMessage request) throws MQException {
+		String topicName = string(request, MQConstants.MQCA_TOPIC_NAME);
+		if (topics.putIfAbsent(topicName, string(request, MQConstants.MQCA_TOPIC_STRING)) != null) {
+			throw failed(IBMMQRequests.MQ_OBJECT_ALREADY_EXISTS);
+		}
+
+		return response(request.getCommand());
+	}
+
+	private synchronized PCFMessage[] createSubscription(PCFMessage request) throws MQException {
+		String subscriptionName = string(request, MQConstants.MQCACF_SUB_NAME);
+		if (subscriptions.containsKey(subscriptionName)) {
+			throw failed(IBMMQRequests.MQ_SUBSCRIPTION_ALREADY_EXISTS);
+		}
+
+		String queueName = string(request, MQConstants.MQCACF_DESTINATION);
+		queue(queueName);
+		try {
+			subscriptions.put(subscriptionName, new Subscription(string(request, MQConstants.MQCA_TOPIC_STRING),
+					queueName, string(request, MQConstants.MQCACF_SUB_SELECTOR)));
+		}
+		catch (JMSException e) {
+			// e.g. an invalid selector
+			throw failed(MQConstants.MQRC_SELECTOR_SYNTAX_ERROR);
+		}
+		return response(request.getCommand());
+	}
+
+	private synchronized PCFMessage[] deleteSubscription(PCFMessage request) throws MQException {
+		Subscription subscription = subscriptions.remove(string(request, MQConstants.MQCACF_SUB_NAME));
+		if (subscription == null) {
+			throw failed(MQConstants.MQRC_NO_SUBSCRIPTION);
+		}
+
+		subscription.close();
+		return response(request.getCommand());
+	}
+
+	private PCFMessage[] inquireSubscriptions(PCFMessage request) throws MQException {
+		List<String> subscriptionNames = matching(subscriptions.keySet(),
+				string(request, MQConstants.MQCACF_SUB_NAME));
+		if (subscriptionNames.isEmpty()) {
+			throw failed(MQConstants.MQRCCF_NONE_FOUND);
+		}
+
+		PCFMessage[] responses = new PCFMessage[subscriptionNames.size()];
+		for (int i = 0; i < responses.length; i++) {
+			String subscriptionName = subscriptionNames.get(i);
+			String selector = subscriptions.get(subscriptionName).selector;
+			responses[i] = new PCFMessage(MQConstants.MQCFT_RESPONSE, request.getCommand(), i + 1,
+					i == responses.length - 1);
+			responses[i].addParameter(MQConstants.MQCACF_SUB_NAME, subscriptionName);
+			responses[i].addParameter(MQConstants.MQCACF_SUB_SELECTOR, selector != null ? selector : "");
+		}
+		return responses;
+	}
+
+	private Map<Integer, Object> queue(String queueName) throws MQException {
+		Map<Integer, Object> attributes = queues.get(queueName);
+		if (attributes == null) {
+			throw failed(MQConstants.MQRC_UNKNOWN_OBJECT_NAME);
+		}
+		return attributes;
+	}
+
+	/**
+	 * The attributes set by a create or change command.
+	 */
+	private static Map<Integer, Object> attributes(PCFMessage request) {
+		Map<Integer, Object> attributes = new HashMap<>();
+		Enumeration<?> parameters = request.getParameters();
+		while (parameters.hasMoreElements()) {
+			PCFParameter parameter = (PCFParameter) parameters.nextElement();
+			if (parameter.getParameter() != MQConstants.MQCA_Q_NAME
+					&& parameter.getParameter() != MQConstants.MQIA_Q_TYPE) {
+				attributes.put(parameter.getParameter(), parameter.getValue());
+			}
+		}
+		return attributes;
+	}
+
+	private static void addParameter(PCFMessage message, int parameter, Object value) {
+		if (value instanceof Integer) {
+			message.addParameter(parameter, (Integer) value);
+		}
+		else if (value instanceof String) {
+			message.addParameter(parameter, (String) value);
+		}
+	}
+
+	private static String string(PCFMessage request, int parameter) {
+		Object value = request.getParameterValue(parameter);
+		return value != null ? ((String) value).trim() : null;
+	}
+
+	/**
+	 * Names matching an MQ generic name, i.e. one with an optional trailing asterisk.
+	 */
+	private static List<String> matching(Iterable<String> names, String genericName) {
+		List<String> matching = new ArrayList<>();
+		for (String name : names) {
+			if (genericName.endsWith("*") ? name.startsWith(genericName.substring(0, genericName.length() - 1))
+					: name.equals(genericName)) {
+				matching.add(name);
+			}
+		}
+		return matching;
+	}
+
+	private static PCFMessage[] response(int command) {
+		return new PCFMessage[] { new PCFMessage(MQConstants.MQCFT_RESPONSE, command, 1, true) };
+	}
+
+	private static PCFMessage[] response(int command, int parameter, List<String> names) {
+		PCFMessage response = new PCFMessage(MQConstants.MQCFT_RESPONSE, command, 1, true);
+		response.addParameter(parameter, names.toArray(new String[names.size()]));
+		return new PCFMessage[] { response };
+	}
+
+	private MQException failed(int reason) {
+		return new MQException(MQConstants.MQCC_FAILED, reason, this);
+	}
+
+	/**
+	 * Forwards the publications on a topic that match the selector to a queue, in a
+	 * transaction per publication.
+	 */
+	private class Subscription {
+
+		private final String selector;
+
+		private final Session session;
+
+		Subscription(String topicString, String queueName, String selector) throws JMSException {
+			this.selector = selector;
+			this.session = connection.createSession(true, Session.SESSION_TRANSACTED);
+			try {
+				MessageProducer producer = this.session.createProducer(this.session.createQueue(queueName));
+				MessageConsumer consumer = this.session.createConsumer(this.session.createTopic(topicString),
+						selector);
+				consumer.setMessageListener(message -> {
+					try {
+						producer.send(message);
+						this.session.commit();
+					}
+					catch (JMSException e) {
+						rollback();
+					}
+				});
+			}
+			catch (JMSException e) {
+				close();
+				throw e;
+			}
+		}
+
+		void close() {
+			JmsUtils.closeSession(this.session);
+		}
+
+		private void rollback() {
+			try {
+				this.session.rollback();
+			}
+			catch (JMSException e) {
+				// closed along with the broker
+			}
+		}
+	}
+}
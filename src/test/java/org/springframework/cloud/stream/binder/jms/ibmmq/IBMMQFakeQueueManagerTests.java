@@ -0,0 +1,190 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
+import org.springframework.cloud.stream.binder.ExtendedProducerProperties;
+import org.springframework.cloud.stream.binder.jms.config.JmsConsumerProperties;
+import org.springframework.cloud.stream.binder.jms.config.JmsProducerProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQConfigurationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties;
+import org.springframework.cloud.stream.binder.jms.utils.Base64UrlNamingStrategy;
+import org.springframework.cloud.stream.binder.jms.utils.DestinationNameResolver;
+import org.springframework.cloud.stream.provisioning.ConsumerDestination;
+import org.springframework.cloud.stream.provisioning.ProducerDestination;
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class IBMMQFakeQueueManagerTests {
+
+	private IBMMQFakeQueueManager queueManager;
+
+	private IBMMQConfigurationProperties configurationProperties;
+
+	@Before
+	public void setUp() throws Exception {
+		queueManager = new IBMMQFakeQueueManager();
+		configurationProperties = queueManager.configurationProperties();
+	}
+
+	@After
+	public void tearDown() {
+		queueManager.stop();
+	}
+
+	@Test
+	public void publicationsReachSubscribedGroupQueue() throws Exception {
+		IBMMQProvisioningProvider provisioningProvider = queueManager.provisioningProvider(configurationProperties);
+		ExtendedProducerProperties<JmsProducerProperties> producerProperties = new ExtendedProducerProperties<>(
+				new JmsProducerProperties());
+		producerProperties.setRequiredGroups("billing");
+		ProducerDestination producerDestination = provisioningProvider.provisionProducerDestination("orders",
+				producerProperties);
+		ConsumerDestination consumerDestination = provisioningProvider.provisionConsumerDestination("orders",
+				"billing", new ExtendedConsumerProperties<>(new JmsConsumerProperties()));
+
+		assertThat(queueManager.containsTopic("orders"), equalTo(true));
+		assertThat(queueManager.containsQueue(consumerDestination.getName()), equalTo(true));
+		assertThat(queueManager.containsSubscription(consumerDestination.getName()), equalTo(true));
+
+		IBMMQDestinationProperties destinationProperties = configurationProperties.getDestinationProperties("orders");
+		List<Object> received = new CopyOnWriteArrayList<>();
+		IBMMQBatchingConsumer consumer = new IBMMQBatchingConsumer(queueManager.getConnectionFactory(),
+				consumerDestination, JmsConsumerProperties.DEFAULT_DLQ_NAME, destinationProperties,
+				message -> received.addAll((List<?>) message.getPayload()));
+		IBMMQBatchingProducer producer = new IBMMQBatchingProducer(queueManager.getConnectionFactory(),
+				producerDestination, destinationProperties);
+		consumer.start();
+		producer.start();
+		try {
+			producer.send(MessageBuilder.withPayload("first").build()).get(5, TimeUnit.SECONDS);
+			producer.send(MessageBuilder.withPayload("second").build()).get(5, TimeUnit.SECONDS);
+
+			long deadline = System.currentTimeMillis() + 5000;
+			while (received.size() < 2 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertThat(received, contains("first", "second"));
+		}
+		finally {
+			producer.stop();
+			consumer.stop();
+			provisioningProvider.destroy();
+		}
+	}
+
+	@Test
+	public void existingObjectsAreReusedWithoutInventory() {
+		IBMMQRequests requests = queueManager.requests(configurationProperties);
+		requests.createTopic("orders");
+		requests.createQueue("orders.billing");
+		requests.subcribeQueueToTopic("orders", "orders.billing", "region = 'EMEA'");
+
+		// a fresh instance, e.g. another application instance, only learns from the reason codes
+		IBMMQRequests otherRequests = queueManager.requests(configurationProperties);
+		otherRequests.createTopic("orders");
+		otherRequests.createQueue("orders.billing");
+		otherRequests.subcribeQueueToTopic("orders", "orders.billing", "region = 'EMEA'");
+
+		assertThat(otherRequests.getInventory().containsTopic("orders"), equalTo(true));
+		assertThat(otherRequests.getInventory().containsQueue("orders.billing"), equalTo(true));
+		assertThat(otherRequests.getInventory().containsSubscription("orders.billing", "region = 'EMEA'"),
+				equalTo(true));
+	}
+
+	@Test
+	public void inventoryIsPrefetched() {
+		IBMMQRequests requests = queueManager.requests(configurationProperties);
+		requests.createTopic("orders");
+		requests.createQueue("orders.billing");
+		requests.subcribeQueueToTopic("orders", "orders.billing", null);
+		int commands = queueManager.getCommands();
+
+		IBMMQRequests otherRequests = queueManager.requests(configurationProperties);
+		otherRequests.prefetchInventory("orders*");
+		otherRequests.prefetchInventory("orders*");
+		otherRequests.createTopic("orders");
+		otherRequests.subcribeQueueToTopic("orders", "orders.billing", null);
+
+		// one inquiry per object type, only once, nothing created
+		assertThat(queueManager.getCommands() - commands, equalTo(3));
+	}
+
+	@Test
+	public void onlyTheObjectsOfTheDestinationAreInquired() {
+		IBMMQRequests requests = queueManager.requests(configurationProperties);
+		requests.createTopic("orders");
+		requests.createTopic("payments");
+		requests.createQueue("orders.billing");
+		requests.createDeadLetterQueue(new JmsConsumerProperties().getDlqName());
+
+		configurationProperties.setInventoryPrefetch(true);
+		IBMMQRequests otherRequests = queueManager.requests(configurationProperties);
+		IBMMQProvisioningProvider provisioningProvider = new IBMMQProvisioningProvider(otherRequests,
+				configurationProperties, new DestinationNameResolver(new Base64UrlNamingStrategy("anonymous.")));
+		try {
+			provisioningProvider.provisionConsumerDestination("orders", "billing",
+					new ExtendedConsumerProperties<>(new JmsConsumerProperties()));
+		}
+		finally {
+			provisioningProvider.destroy();
+		}
+
+		assertThat(otherRequests.getInventory().containsTopic("orders"), equalTo(true));
+		assertThat(otherRequests.getInventory().containsQueue("orders.billing"), equalTo(true));
+		assertThat(otherRequests.getInventory().containsTopic("payments"), equalTo(false));
+		assertThat(otherRequests.getInventory().containsQueue(new JmsConsumerProperties().getDlqName()),
+				equalTo(true));
+	}
+
+	@Test
+	public void objectsOfLongDestinationNamesAreInquired() {
+		String name = "orders.of.the.customers.of.the.european.region.placed.online";
+		String topicName = IBMMQProvisioningProvider.sanitiseObjectName(name);
+		String queueName = IBMMQProvisioningProvider.sanitiseObjectName(topicName + ".billing");
+		IBMMQRequests requests = queueManager.requests(configurationProperties);
+		requests.createTopic(topicName);
+		requests.createQueue(queueName);
+
+		configurationProperties.setInventoryPrefetch(true);
+		IBMMQRequests otherRequests = queueManager.requests(configurationProperties);
+		IBMMQProvisioningProvider provisioningProvider = new IBMMQProvisioningProvider(otherRequests,
+				configurationProperties, new DestinationNameResolver(new Base64UrlNamingStrategy("anonymous.")));
+		try {
+			provisioningProvider.provisionConsumerDestination(name, "billing",
+					new ExtendedConsumerProperties<>(new JmsConsumerProperties()));
+		}
+		finally {
+			provisioningProvider.destroy();
+		}
+
+		assertThat(otherRequests.getInventory().containsTopic(topicName), equalTo(true));
+		assertThat(otherRequests.getInventory().containsQueue(queueName), equalTo(true));
+	}
+
+	@Test
+	public void replyQueueLeavesTheConfiguredPropertiesAlone() {
+		IBMMQDestinationProperties destinationProperties = new IBMMQDestinationProperties();
+		configurationProperties.getDestinations().put("replies", destinationProperties);
+		IBMMQProvisioningProvider provisioningProvider = queueManager.provisioningProvider(configurationProperties);
+		try {
+			provisioningProvider.provisionReplyQueue("replies");
+		}
+		finally {
+			provisioningProvider.destroy();
+		}
+
+		assertThat(queueManager.containsQueue("replies"), equalTo(true));
+		assertThat(destinationProperties.getQueueIndexType(), nullValue());
+	}
+}
@@ -0,0 +1,274 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
+import org.springframework.cloud.stream.binder.jms.config.JmsConsumerProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQConfigurationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties;
+import org.springframework.cloud.stream.provisioning.ConsumerDestination;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessagingMessageConverter;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+
+public class IBMMQKeyOrderedConsumerTests {
+
+	private static final int KEYS = 8;
+
+	private static final int MESSAGES_PER_KEY = 50;
+
+	private IBMMQFakeQueueManager queueManager;
+
+	private IBMMQProvisioningProvider provisioningProvider;
+
+	private ConsumerDestination consumerDestination;
+
+	private IBMMQDestinationProperties destinationProperties;
+
+	@Before
+	public void setUp() throws Exception {
+		queueManager = new IBMMQFakeQueueManager();
+		IBMMQConfigurationProperties configurationProperties = queueManager.configurationProperties();
+		provisioningProvider = queueManager.provisioningProvider(configurationProperties);
+		consumerDestination = provisioningProvider.provisionConsumerDestination("orders", "billing",
+				new ExtendedConsumerProperties<>(new JmsConsumerProperties()));
+		destinationProperties = configurationProperties.getDestinationProperties("orders");
+		destinationProperties.setDispatchWorkers(4);
+		destinationProperties.setDispatchQueueCapacity(5);
+		destinationProperties.setDispatchWindow(20);
+		destinationProperties.setConsumerBatchTimeout(200);
+		destinationProperties.setDispatchKey("customer");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		provisioningProvider.destroy();
+		queueManager.stop();
+	}
+
+	@Test
+	public void messagesWithTheSameKeyAreHandledInOrder() throws Exception {
+		Map<String, List<Integer>> handled = new ConcurrentHashMap<>();
+		Set<String> threads = ConcurrentHashMap.newKeySet();
+		IBMMQKeyOrderedConsumer consumer = new IBMMQKeyOrderedConsumer(queueManager.getConnectionFactory(),
+				consumerDestination, JmsConsumerProperties.DEFAULT_DLQ_NAME, destinationProperties, message -> {
+					String key = (String) message.getHeaders().get("customer");
+					handled.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>())
+							.add(Integer.valueOf((String) message.getPayload()));
+					threads.add(Thread.currentThread().getName());
+				});
+
+		consumer.start();
+		try {
+			send(KEYS, MESSAGES_PER_KEY);
+			awaitHandled(handled, KEYS * MESSAGES_PER_KEY);
+		}
+		finally {
+			consumer.stop();
+		}
+
+		assertThat(handled.size(), equalTo(KEYS));
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < MESSAGES_PER_KEY; i++) {
+			expected.add(i);
+		}
+		for (List<Integer> sequence : handled.values()) {
+			assertThat(sequence, equalTo(expected));
+		}
+		assertThat(threads.size(), greaterThan(1));
+		assertThat(queueDepth(), equalTo(0));
+	}
+
+	@Test
+	public void failedMessageIsDeadLetteredWithTheRestOfItsKeyInTheWindow() throws Exception {
+		Map<String, List<Integer>> handled = new ConcurrentHashMap<>();
+		AtomicInteger attempts = new AtomicInteger();
+		IBMMQKeyOrderedConsumer consumer = new IBMMQKeyOrderedConsumer(queueManager.getConnectionFactory(),
+				consumerDestination, JmsConsumerProperties.DEFAULT_DLQ_NAME, destinationProperties, message -> {
+					if ("3".equals(message.getPayload())) {
+						attempts.incrementAndGet();
+						throw new IllegalStateException("poison");
+					}
+					handled.computeIfAbsent((String) message.getHeaders().get("customer"),
+							k -> new CopyOnWriteArrayList<>()).add(Integer.valueOf((String) message.getPayload()));
+				});
+
+		// queued up front, so all of them are received in one window
+		send(2, 10);
+		consumer.start();
+		try {
+			awaitDepth(JmsConsumerProperties.DEFAULT_DLQ_NAME, 14);
+		}
+		finally {
+			consumer.stop();
+		}
+
+		assertThat(handled.get("key-0"), contains(0, 1, 2));
+		assertThat(handled.get("key-1"), contains(0, 1, 2));
+		assertThat(attempts.get(), equalTo(2 * destinationProperties.getConsumerMaxAttempts()));
+		assertThat(queueDepth(), equalTo(0));
+		assertThat(queueDepth(JmsConsumerProperties.DEFAULT_DLQ_NAME), equalTo(14));
+	}
+
+	@Test
+	public void messageThatCannotBeConvertedIsDeadLetteredWithoutRollingBackTheWindow() throws Exception {
+		Map<String, List<Integer>> handled = new ConcurrentHashMap<>();
+		IBMMQKeyOrderedConsumer consumer = new IBMMQKeyOrderedConsumer(queueManager.getConnectionFactory(),
+				consumerDestination, JmsConsumerProperties.DEFAULT_DLQ_NAME, destinationProperties,
+				message -> handled.computeIfAbsent((String) message.getHeaders().get("customer"),
+						k -> new CopyOnWriteArrayList<>()).add(Integer.valueOf((String) message.getPayload())));
+		consumer.setMessageConverter(new MessagingMessageConverter() {
+
+			@Override
+			public Object fromMessage(javax.jms.Message message) throws JMSException {
+				if ("key-1".equals(message.getStringProperty("customer"))
+						&& "1".equals(((TextMessage) message).getText())) {
+					throw new MessageConversionException("poison");
+				}
+				return super.fromMessage(message);
+			}
+		});
+
+		send(2, 3);
+		consumer.start();
+		try {
+			awaitDepth(JmsConsumerProperties.DEFAULT_DLQ_NAME, 2);
+			awaitHandled(handled, 4);
+		}
+		finally {
+			consumer.stop();
+		}
+
+		// handled once each, not again after a rollback
+		assertThat(handled.get("key-0"), contains(0, 1, 2));
+		assertThat(handled.get("key-1"), contains(0));
+		assertThat(queueDepth(), equalTo(0));
+		assertThat(queueDepth(JmsConsumerProperties.DEFAULT_DLQ_NAME), equalTo(2));
+	}
+
+	@Test
+	public void messageThatCannotBeConvertedOnlyFailsTheMessagesAfterIt() throws Exception {
+		List<Integer> handled = new CopyOnWriteArrayList<>();
+		IBMMQKeyOrderedConsumer consumer = new IBMMQKeyOrderedConsumer(queueManager.getConnectionFactory(),
+				consumerDestination, JmsConsumerProperties.DEFAULT_DLQ_NAME, destinationProperties, message -> {
+					// still handling the first message when the second is received
+					sleep(200);
+					handled.add(Integer.valueOf((String) message.getPayload()));
+				});
+		consumer.setMessageConverter(new MessagingMessageConverter() {
+
+			@Override
+			public Object fromMessage(javax.jms.Message message) throws JMSException {
+				if ("1".equals(((TextMessage) message).getText())) {
+					throw new MessageConversionException("poison");
+				}
+				return super.fromMessage(message);
+			}
+		});
+
+		// good, bad, good for the same key
+		send(1, 3);
+		consumer.start();
+		try {
+			awaitDepth(JmsConsumerProperties.DEFAULT_DLQ_NAME, 2);
+		}
+		finally {
+			consumer.stop();
+		}
+
+		assertThat(handled, contains(0));
+		assertThat(queueDepth(), equalTo(0));
+		assertThat(queueDepth(JmsConsumerProperties.DEFAULT_DLQ_NAME), equalTo(2));
+	}
+
+	private void send(int keys, int messagesPerKey) throws Exception {
+		Connection connection = queueManager.getConnectionFactory().createConnection();
+		try {
+			Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+			MessageProducer producer = session.createProducer(session.createQueue(consumerDestination.getName()));
+			for (int i = 0; i < messagesPerKey; i++) {
+				for (int key = 0; key < keys; key++) {
+					TextMessage message = session.createTextMessage(String.valueOf(i));
+					message.setStringProperty("customer", "key-" + key);
+					producer.send(message);
+				}
+			}
+		}
+		finally {
+			JmsUtils.closeConnection(connection);
+		}
+	}
+
+	private void awaitHandled(Map<String, List<Integer>> handled, int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (System.currentTimeMillis() < deadline) {
+			int total = 0;
+			for (List<Integer> sequence : handled.values()) {
+				total += sequence.size();
+			}
+			if (total >= count) {
+				return;
+			}
+			Thread.sleep(10);
+		}
+	}
+
+	private void awaitDepth(String queueName, int depth) throws Exception {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (queueDepth(queueName) < depth && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private int queueDepth() throws Exception {
+		return queueDepth(consumerDestination.getName());
+	}
+
+	private int queueDepth(String queueName) throws Exception {
+		Connection connection = queueManager.getConnectionFactory().createConnection();
+		try {
+			Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+			int depth = 0;
+			Enumeration<?> messages = session.createBrowser(session.createQueue(queueName))
+					.getEnumeration();
+			while (messages.hasMoreElements()) {
+				messages.nextElement();
+				depth++;
+			}
+			return depth;
+		}
+		finally {
+			JmsUtils.closeConnection(connection);
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.cloud.stream.binder.jms.ibmmq.IBMMQProvisioningStatus.Binding;
+import org.springframework.cloud.stream.binder.jms.ibmmq.IBMMQProvisioningStatus.State;
+import org.springframework.cloud.stream.binder.jms.ibmmq.health.IBMMQProvisioningHealthIndicator;
+import org.springframework.cloud.stream.binder.jms.ibmmq.metrics.IBMMQMetrics;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class IBMMQProvisioningStatusTests {
+
+	private final IBMMQProvisioningStatus provisioningStatus = new IBMMQProvisioningStatus();
+
+	private final IBMMQProvisioningHealthIndicator healthIndicator = new IBMMQProvisioningHealthIndicator(
+			provisioningStatus);
+
+	@Test
+	public void untrackedDestinationsAreProvisioned() {
+		assertThat(provisioningStatus.whenProvisioned(new Object()).isDone(), equalTo(true));
+		assertThat(healthIndicator.health().getStatus(), equalTo(Status.UP));
+	}
+
+	@Test
+	public void readinessFollowsBindings() {
+		Object producerDestination = new Object();
+		Object consumerDestination = new Object();
+		Binding producer = provisioningStatus.register("orders", IBMMQMetrics.PRODUCER, producerDestination);
+		Binding consumer = provisioningStatus.register("orders.billing", IBMMQMetrics.CONSUMER,
+				consumerDestination);
+		CompletableFuture<Void> consumerProvisioned = provisioningStatus.whenProvisioned(consumerDestination);
+
+		assertThat(healthIndicator.health().getStatus(), equalTo(Status.OUT_OF_SERVICE));
+
+		producer.ready();
+		consumer.attempted();
+		consumer.failed(new IllegalStateException("MQRC_NOT_AUTHORIZED"), true);
+
+		assertThat(provisioningStatus.whenProvisioned(producerDestination).isDone(), equalTo(true));
+		assertThat(consumerProvisioned.isDone(), equalTo(false));
+		assertThat(healthIndicator.health().getStatus(), equalTo(Status.DOWN));
+		assertThat(healthIndicator.health().getDetails().get("failed"), equalTo(1));
+
+		consumer.attempted();
+		consumer.ready();
+
+		assertThat(consumerProvisioned.isDone(), equalTo(true));
+		assertThat(consumer.getAttempts(), equalTo(2));
+		assertThat(healthIndicator.health().getStatus(), equalTo(Status.UP));
+		assertThat(healthIndicator.health().getDetails().get("ready"), equalTo(2));
+	}
+
+	@Test
+	public void failureWithoutRetryFailsWaiters() {
+		Object destination = new Object();
+		Binding binding = provisioningStatus.register("orders", IBMMQMetrics.PRODUCER, destination);
+
+		binding.failed(new IllegalStateException("MQRC_NOT_AUTHORIZED"), false);
+
+		assertThat(provisioningStatus.whenProvisioned(destination).isCompletedExceptionally(), equalTo(true));
+	}
+
+	@Test
+	public void readyBindingStaysReadyWhenUpdatingItFails() {
+		Object destination = new Object();
+		Binding binding = provisioningStatus.register("orders", IBMMQMetrics.PRODUCER, destination);
+		binding.ready();
+
+		binding.attempted();
+		binding.failed(new IllegalStateException("MQRC_NOT_AUTHORIZED"), false);
+
+		assertThat(binding.getState(), equalTo(State.READY));
+		assertThat(provisioningStatus.whenProvisioned(destination).isCompletedExceptionally(), equalTo(false));
+		assertThat(healthIndicator.health().getStatus(), equalTo(Status.UP));
+		assertThat(healthIndicator.health().getDetails().containsKey("failures"), equalTo(true));
+	}
+}
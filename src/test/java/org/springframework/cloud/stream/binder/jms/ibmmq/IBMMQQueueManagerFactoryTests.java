@@ -0,0 +1,69 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import java.util.Hashtable;
+
+import com.ibm.mq.constants.MQConstants;
+import org.junit.Test;
+
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQConfigurationProperties;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+public class IBMMQQueueManagerFactoryTests {
+
+	@Test
+	public void eachFactoryConnectsWithItsOwnSettings() {
+		Hashtable<String, Object> first = new IBMMQQueueManagerFactory(properties("QM1", "mq1", 1414))
+				.connectionProperties();
+		Hashtable<String, Object> second = new IBMMQQueueManagerFactory(properties("QM2", "mq2", 1415))
+				.connectionProperties();
+
+		assertThat(first.get(MQConstants.HOST_NAME_PROPERTY), equalTo((Object) "mq1"));
+		assertThat(first.get(MQConstants.PORT_PROPERTY), equalTo((Object) 1414));
+		assertThat(second.get(MQConstants.HOST_NAME_PROPERTY), equalTo((Object) "mq2"));
+		assertThat(second.get(MQConstants.PORT_PROPERTY), equalTo((Object) 1415));
+		assertThat(first.get(MQConstants.TRANSPORT_PROPERTY),
+				equalTo((Object) MQConstants.TRANSPORT_MQSERIES_CLIENT));
+		assertThat(first, not(hasKey(MQConstants.USER_ID_PROPERTY)));
+	}
+
+	@Test
+	public void credentialsArePassedPerQueueManager() {
+		IBMMQConfigurationProperties configurationProperties = properties("QM1", "mq1", 1414);
+		configurationProperties.setUsername("app");
+		configurationProperties.setPassword("passw0rd");
+
+		Hashtable<String, Object> connectionProperties = new IBMMQQueueManagerFactory(configurationProperties)
+				.connectionProperties();
+
+		assertThat(connectionProperties.get(MQConstants.USER_ID_PROPERTY), equalTo((Object) "app"));
+		assertThat(connectionProperties.get(MQConstants.PASSWORD_PROPERTY), equalTo((Object) "passw0rd"));
+		assertThat(connectionProperties, not(hasKey(MQConstants.USE_MQCSP_AUTHENTICATION_PROPERTY)));
+	}
+
+	@Test
+	public void credentialsAreSentInAnMQCSPStructureWhenEnabled() {
+		IBMMQConfigurationProperties configurationProperties = properties("QM1", "mq1", 1414);
+		configurationProperties.setUsername("app");
+		configurationProperties.setPassword("passw0rd");
+		configurationProperties.setMqcspAuthentication(true);
+
+		Hashtable<String, Object> connectionProperties = new IBMMQQueueManagerFactory(configurationProperties)
+				.connectionProperties();
+
+		assertThat(connectionProperties.get(MQConstants.USE_MQCSP_AUTHENTICATION_PROPERTY),
+				equalTo((Object) true));
+	}
+
+	private IBMMQConfigurationProperties properties(String queueManager, String host, int port) {
+		IBMMQConfigurationProperties configurationProperties = new IBMMQConfigurationProperties();
+		configurationProperties.setQueueManager(queueManager);
+		configurationProperties.setHost(host);
+		configurationProperties.setPort(port);
+		configurationProperties.setChannel("DEV.APP.SVRCONN");
+		return configurationProperties;
+	}
+}
@@ -0,0 +1,207 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.JMSException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ibm.mq.MQException;
+import com.ibm.mq.MQQueueManager;
+import com.ibm.mq.constants.MQConstants;
+import com.ibm.mq.pcf.PCFMessage;
+import com.ibm.mq.pcf.PCFMessageAgent;
+import org.junit.Test;
+
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQConfigurationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQJmsConfiguration;
+import org.springframework.cloud.stream.binder.jms.ibmmq.metrics.IBMMQMetrics;
+import org.springframework.jms.connection.SingleConnectionFactory;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IBMMQReconnectTests {
+
+	@Test
+	public void queueManagerFactoryTriesEachAddressInTurn() throws Exception {
+		IBMMQConfigurationProperties configurationProperties = new IBMMQConfigurationProperties();
+		configurationProperties.setQueueManager("QM1");
+		configurationProperties.setConnectionNameList("mq1(1414), mq2(1415)");
+		FailingOverQueueManagerFactory queueManagerFactory = new FailingOverQueueManagerFactory(
+				configurationProperties, "mq1");
+
+		MQQueueManager queueManager = queueManagerFactory.createQueueManager();
+
+		assertThat(queueManager, sameInstance(queueManagerFactory.queueManager));
+		assertThat(queueManagerFactory.attempts, contains("mq1:1414", "mq2:1415"));
+	}
+
+	@Test
+	public void queueManagerFactoryDefaultsThePortOfAnAddress() {
+		IBMMQConfigurationProperties configurationProperties = new IBMMQConfigurationProperties();
+		configurationProperties.setConnectionNameList("mq1");
+
+		IBMMQQueueManagerFactory.Address address = new IBMMQQueueManagerFactory(configurationProperties)
+				.addresses().get(0);
+
+		assertThat(address.host, equalTo("mq1"));
+		assertThat(address.port, equalTo(1414));
+	}
+
+	@Test
+	public void queueManagerFactoryFailsWithTheLastAddress() throws Exception {
+		IBMMQConfigurationProperties configurationProperties = new IBMMQConfigurationProperties();
+		configurationProperties.setConnectionNameList("mq1(1414),mq2(1414)");
+
+		try {
+			new FailingOverQueueManagerFactory(configurationProperties, "mq1", "mq2").createQueueManager();
+			fail("Expected no queue manager to be available");
+		}
+		catch (MQException e) {
+			assertThat(e.getReason(), equalTo(MQConstants.MQRC_HOST_NOT_AVAILABLE));
+		}
+	}
+
+	@Test
+	public void commandIsRetriedOnANewConnection() throws Exception {
+		PCFMessage[] responses = new PCFMessage[0];
+		PCFMessageAgent broken = mock(PCFMessageAgent.class);
+		when(broken.send(any(PCFMessage.class))).thenThrow(
+				new MQException(MQConstants.MQCC_FAILED, MQConstants.MQRC_CONNECTION_BROKEN, this));
+		PCFMessageAgent healthy = mock(PCFMessageAgent.class);
+		when(healthy.send(any(PCFMessage.class))).thenReturn(responses);
+		IBMMQMetrics metrics = mock(IBMMQMetrics.class);
+
+		IBMMQPCFAgentPool pool = new AgentsPool(broken, healthy);
+		pool.setReconnectTimeout(5000);
+		pool.setMetrics(metrics);
+
+		assertThat(pool.send(new PCFMessage(MQConstants.MQCMD_INQUIRE_Q)), sameInstance(responses));
+		verify(broken).disconnect();
+		verify(metrics).reconnected(eq(IBMMQMetrics.PCF), anyLong());
+	}
+
+	@Test
+	public void commandFailsWithoutAReconnectTimeout() throws Exception {
+		PCFMessageAgent broken = mock(PCFMessageAgent.class);
+		when(broken.send(any(PCFMessage.class))).thenThrow(
+				new MQException(MQConstants.MQCC_FAILED, MQConstants.MQRC_CONNECTION_BROKEN, this));
+
+		try {
+			new AgentsPool(broken, mock(PCFMessageAgent.class)).send(new PCFMessage(MQConstants.MQCMD_INQUIRE_Q));
+			fail("Expected the broken connection to fail the command");
+		}
+		catch (MQException e) {
+			assertThat(e.getReason(), equalTo(MQConstants.MQRC_CONNECTION_BROKEN));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void clientReconnectWithoutCachingIsRejected() {
+		IBMMQConfigurationProperties configurationProperties = new IBMMQConfigurationProperties();
+		configurationProperties.setClientReconnect(true);
+
+		new IBMMQJmsConfiguration(configurationProperties);
+	}
+
+	@Test
+	public void listenerRecordsClientReconnects() {
+		IBMMQMetrics metrics = mock(IBMMQMetrics.class);
+		SingleConnectionFactory connectionFactory = mock(SingleConnectionFactory.class);
+		IBMMQReconnectListener listener = new IBMMQReconnectListener();
+		listener.setMetrics(metrics);
+		listener.setConnectionFactory(connectionFactory);
+		listener.addInFlight(() -> 3);
+		listener.addInFlight(() -> 4);
+
+		listener.onException(exception(MQConstants.MQRC_RECONNECTING));
+		listener.onException(exception(MQConstants.MQRC_RECONNECTING));
+		listener.onException(exception(MQConstants.MQRC_RECONNECTED));
+
+		verify(metrics).reconnected(eq(IBMMQMetrics.JMS), anyLong(), eq(7));
+		verify(connectionFactory, never()).resetConnection();
+	}
+
+	@Test
+	public void listenerResetsTheConnectionWhenReconnectFails() {
+		IBMMQMetrics metrics = mock(IBMMQMetrics.class);
+		SingleConnectionFactory connectionFactory = mock(SingleConnectionFactory.class);
+		IBMMQReconnectListener listener = new IBMMQReconnectListener();
+		listener.setMetrics(metrics);
+		listener.setConnectionFactory(connectionFactory);
+
+		listener.onException(exception(MQConstants.MQRC_RECONNECTING));
+		listener.onException(exception(MQConstants.MQRC_RECONNECT_FAILED));
+
+		verify(metrics).reconnectFailed(eq(IBMMQMetrics.JMS), anyLong());
+		verify(connectionFactory).resetConnection();
+	}
+
+	private JMSException exception(int reason) {
+		JMSException exception = new JMSException("reason " + reason);
+		exception.setLinkedException(new MQException(MQConstants.MQCC_FAILED, reason, this));
+		return exception;
+	}
+
+	/**
+	 * Connects to mock queue managers, except at the given hosts, which are down.
+	 */
+	private static class FailingOverQueueManagerFactory extends IBMMQQueueManagerFactory {
+
+		private final List<String> unavailableHosts = new ArrayList<>();
+
+		private final List<String> attempts = new ArrayList<>();
+
+		private final MQQueueManager queueManager = mock(MQQueueManager.class);
+
+		FailingOverQueueManagerFactory(IBMMQConfigurationProperties configurationProperties,
+				String... unavailableHosts) {
+			super(configurationProperties);
+			for (String host : unavailableHosts) {
+				this.unavailableHosts.add(host);
+			}
+		}
+
+		@Override
+		MQQueueManager connect(String host, int port) throws MQException {
+			this.attempts.add(host + ":" + port);
+			if (this.unavailableHosts.contains(host)) {
+				throw new MQException(MQConstants.MQCC_FAILED, MQConstants.MQRC_HOST_NOT_AVAILABLE, this);
+			}
+			return this.queueManager;
+		}
+	}
+
+	/**
+	 * Hands out the given agents in turn, each on its own mock connection.
+	 */
+	private static class AgentsPool extends IBMMQPCFAgentPool {
+
+		private final List<PCFMessageAgent> agents = new ArrayList<>();
+
+		AgentsPool(PCFMessageAgent... agents) {
+			super(() -> {
+				MQQueueManager queueManager = mock(MQQueueManager.class);
+				when(queueManager.isConnected()).thenReturn(true);
+				return queueManager;
+			}, 1, 60000, 1000);
+			for (PCFMessageAgent agent : agents) {
+				this.agents.add(agent);
+			}
+		}
+
+		@Override
+		PCFMessageAgent createAgent(MQQueueManager queueManager) {
+			return this.agents.remove(0);
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.Topic;
+import java.util.List;
+
+import com.ibm.mq.MQException;
+import com.ibm.mq.constants.MQConstants;
+import com.ibm.mq.jms.MQConnectionFactory;
+import com.ibm.mq.pcf.PCFMessage;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQConfigurationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IBMMQRequestsTests {
+
+	private IBMMQPCFAgentPool pcfAgentPool;
+
+	private IBMMQConfigurationProperties configurationProperties;
+
+	@Before
+	public void setUp() throws Exception {
+		pcfAgentPool = mock(IBMMQPCFAgentPool.class);
+		when(pcfAgentPool.send(any(PCFMessage.class))).thenReturn(new PCFMessage[0]);
+
+		configurationProperties = new IBMMQConfigurationProperties();
+		configurationProperties.setQueueManager("QM1");
+		configurationProperties.setInventoryPrefetch(false);
+	}
+
+	@Test
+	public void provisioningSharesOneAdminConnection() throws Exception {
+		Session session = mock(Session.class);
+		when(session.createQueue(anyString())).thenReturn(mock(Queue.class));
+		when(session.createTopic(anyString())).thenReturn(mock(Topic.class));
+		Connection connection = mock(Connection.class);
+		when(connection.createSession(anyBoolean(), anyInt())).thenReturn(session);
+		ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+		when(connectionFactory.createConnection()).thenReturn(connection);
+
+		IBMMQRequests requests = new IBMMQRequests(connectionFactory, configurationProperties,
+				pcfAgentPool);
+		for (int i = 0; i < 10; i++) {
+			requests.createTopic("topic" + i);
+			requests.createQueue("topic" + i + ".queue");
+			requests.subcribeQueueToTopic("topic" + i, "topic" + i + ".queue");
+		}
+
+		verify(connectionFactory, times(1)).createConnection();
+		verify(connection, times(1)).createSession(anyBoolean(), anyInt());
+
+		requests.close();
+
+		verify(session).close();
+		verify(connection).close();
+	}
+
+	@Test
+	public void mqConnectionFactoryProvisioningOpensNoConnections() throws Exception {
+		MQConnectionFactory connectionFactory = mock(MQConnectionFactory.class);
+
+		IBMMQRequests requests = new IBMMQRequests(connectionFactory, configurationProperties,
+				pcfAgentPool);
+		Topic topic = requests.createTopic("topic");
+		Queue queue = requests.createQueue("topic.queue");
+		requests.close();
+
+		assertThat(topic.getTopicName(), equalTo("topic"));
+		assertThat(queue.getQueueName(), equalTo("topic.queue"));
+		verify(connectionFactory, never()).createConnection();
+	}
+
+	@Test
+	public void consumerQueueBacksOutToDeadLetterQueue() throws Exception {
+		configurationProperties.setQueueDepth(1000);
+		configurationProperties.setDeadLetterQueueDepth(200);
+		IBMMQDestinationProperties destinationProperties = new IBMMQDestinationProperties();
+		destinationProperties.setBackoutThreshold(5);
+
+		IBMMQRequests requests = new IBMMQRequests(mock(MQConnectionFactory.class), configurationProperties,
+				pcfAgentPool);
+		requests.createDeadLetterQueue("dlq");
+		requests.createQueue("topic.queue", destinationProperties, "dlq");
+
+		ArgumentCaptor<PCFMessage> requestCaptor = ArgumentCaptor.forClass(PCFMessage.class);
+		verify(pcfAgentPool, times(2)).send(requestCaptor.capture());
+		PCFMessage deadLetterQueueRequest = requestCaptor.getAllValues().get(0);
+		PCFMessage queueRequest = requestCaptor.getAllValues().get(1);
+
+		assertThat(deadLetterQueueRequest.getIntParameterValue(MQConstants.MQIA_MAX_Q_DEPTH), equalTo(200));
+		assertThat(queueRequest.getIntParameterValue(MQConstants.MQIA_MAX_Q_DEPTH), equalTo(1000));
+		assertThat(queueRequest.getStringParameterValue(MQConstants.MQCA_BACKOUT_REQ_Q_NAME), equalTo("dlq"));
+		assertThat(queueRequest.getIntParameterValue(MQConstants.MQIA_BACKOUT_THRESHOLD), equalTo(5));
+	}
+
+	@Test
+	public void backoutSettingsAreLeftAloneByDefault() throws Exception {
+		IBMMQRequests requests = new IBMMQRequests(mock(MQConnectionFactory.class), configurationProperties,
+				pcfAgentPool);
+		requests.createQueue("topic.queue", new IBMMQDestinationProperties(), "dlq");
+
+		ArgumentCaptor<PCFMessage> requestCaptor = ArgumentCaptor.forClass(PCFMessage.class);
+		verify(pcfAgentPool).send(requestCaptor.capture());
+		assertThat(requestCaptor.getValue().getParameter(MQConstants.MQCA_BACKOUT_REQ_Q_NAME), nullValue());
+		assertThat(requestCaptor.getValue().getParameter(MQConstants.MQIA_BACKOUT_THRESHOLD), nullValue());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void sharedQueueCannotHaveDifferentBackoutQueues() throws Exception {
+		IBMMQDestinationProperties destinationProperties = new IBMMQDestinationProperties();
+		destinationProperties.setBackoutThreshold(3);
+
+		IBMMQRequests requests = new IBMMQRequests(mock(MQConnectionFactory.class), configurationProperties,
+				pcfAgentPool);
+		requests.createQueue("orders", destinationProperties, "billing.dlq");
+		requests.createQueue("orders", destinationProperties, "shipping.dlq");
+	}
+
+	@Test
+	public void existingQueueIsReconciledWithConfiguredAttributes() throws Exception {
+		PCFMessage current = new PCFMessage(MQConstants.MQCMD_INQUIRE_Q);
+		current.addParameter(MQConstants.MQIA_INDEX_TYPE, MQConstants.MQIT_NONE);
+		current.addParameter(MQConstants.MQIA_MAX_MSG_LENGTH, 4 * 1024 * 1024);
+		when(pcfAgentPool.send(any(PCFMessage.class)))
+				.thenThrow(new MQException(MQConstants.MQCC_FAILED, IBMMQRequests.MQ_OBJECT_ALREADY_EXISTS, this))
+				.thenReturn(new PCFMessage[] { current }).thenReturn(new PCFMessage[0]);
+		IBMMQDestinationProperties destinationProperties = new IBMMQDestinationProperties();
+		destinationProperties.setQueueIndexType(IBMMQDestinationProperties.IndexType.CORRELATION_ID);
+		destinationProperties.setQueueMaxMessageLength(4 * 1024 * 1024);
+
+		IBMMQRequests requests = new IBMMQRequests(mock(MQConnectionFactory.class), configurationProperties,
+				pcfAgentPool);
+		requests.createQueue("replies", destinationProperties);
+
+		ArgumentCaptor<PCFMessage> requestCaptor = ArgumentCaptor.forClass(PCFMessage.class);
+		verify(pcfAgentPool, times(3)).send(requestCaptor.capture());
+		PCFMessage createRequest = requestCaptor.getAllValues().get(0);
+		PCFMessage changeRequest = requestCaptor.getAllValues().get(2);
+
+		assertThat(createRequest.getIntParameterValue(MQConstants.MQIA_INDEX_TYPE),
+				equalTo(MQConstants.MQIT_CORREL_ID));
+		assertThat(changeRequest.getCommand(), equalTo(MQConstants.MQCMD_CHANGE_Q));
+		assertThat(changeRequest.getIntParameterValue(MQConstants.MQIA_INDEX_TYPE),
+				equalTo(MQConstants.MQIT_CORREL_ID));
+		// unchanged attributes are left alone
+		assertThat(changeRequest.getParameter(MQConstants.MQIA_MAX_MSG_LENGTH), nullValue());
+	}
+
+	@Test
+	public void subscriptionWithDifferentSelectorIsReplaced() throws Exception {
+		PCFMessage existing = new PCFMessage(MQConstants.MQCMD_INQUIRE_SUBSCRIPTION);
+		existing.addParameter(MQConstants.MQCACF_SUB_SELECTOR, "region = 'APAC'");
+		when(pcfAgentPool.send(any(PCFMessage.class)))
+				.thenThrow(new MQException(MQConstants.MQCC_FAILED, IBMMQRequests.MQ_SUBSCRIPTION_ALREADY_EXISTS,
+						this))
+				.thenReturn(new PCFMessage[] { existing }).thenReturn(new PCFMessage[0]);
+
+		IBMMQRequests requests = new IBMMQRequests(mock(MQConnectionFactory.class), configurationProperties,
+				pcfAgentPool);
+		requests.subcribeQueueToTopic("topic", "topic.queue", "region = 'EMEA'");
+
+		ArgumentCaptor<PCFMessage> requestCaptor = ArgumentCaptor.forClass(PCFMessage.class);
+		verify(pcfAgentPool, times(6)).send(requestCaptor.capture());
+		List<PCFMessage> replaceRequests = requestCaptor.getAllValues().subList(2, 6);
+
+		// the queue stays subscribed while the subscription is replaced
+		assertThat(replaceRequests.get(0).getCommand(), equalTo(MQConstants.MQCMD_CREATE_SUBSCRIPTION));
+		assertThat(replaceRequests.get(0).getStringParameterValue(MQConstants.MQCACF_SUB_NAME),
+				not(equalTo("topic.queue")));
+		assertThat(replaceRequests.get(0).getStringParameterValue(MQConstants.MQCACF_DESTINATION),
+				equalTo("topic.queue"));
+		assertThat(replaceRequests.get(1).getCommand(), equalTo(MQConstants.MQCMD_DELETE_SUBSCRIPTION));
+		assertThat(replaceRequests.get(1).getStringParameterValue(MQConstants.MQCACF_SUB_NAME),
+				equalTo("topic.queue"));
+		assertThat(replaceRequests.get(2).getCommand(), equalTo(MQConstants.MQCMD_CREATE_SUBSCRIPTION));
+		assertThat(replaceRequests.get(2).getStringParameterValue(MQConstants.MQCACF_SUB_NAME),
+				equalTo("topic.queue"));
+		assertThat(replaceRequests.get(2).getStringParameterValue(MQConstants.MQCACF_SUB_SELECTOR),
+				equalTo("region = 'EMEA'"));
+		assertThat(replaceRequests.get(3).getCommand(), equalTo(MQConstants.MQCMD_DELETE_SUBSCRIPTION));
+		assertThat(replaceRequests.get(3).getStringParameterValue(MQConstants.MQCACF_SUB_NAME),
+				equalTo(replaceRequests.get(0).getStringParameterValue(MQConstants.MQCACF_SUB_NAME)));
+
+		// known to be up to date now
+		requests.subcribeQueueToTopic("topic", "topic.queue", "region = 'EMEA'");
+		verify(pcfAgentPool, times(6)).send(any(PCFMessage.class));
+	}
+}
@@ -0,0 +1,55 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import org.junit.Test;
+
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQConfigurationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQShardProperties;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class IBMMQShardsTests {
+
+	@Test
+	public void partitionsAreSpreadEvenlyAcrossShards() {
+		IBMMQShards shards = new IBMMQShards(properties("QM1", "QM2", "QM3"));
+
+		int[] partitionsPerShard = new int[shards.size()];
+		for (int partition = 0; partition < 12; partition++) {
+			partitionsPerShard[shards.shardFor(partition)]++;
+		}
+
+		assertThat(partitionsPerShard, equalTo(new int[] { 4, 4, 4 }));
+		assertThat(shards.shardFor(7), equalTo(new IBMMQShards(properties("QM1", "QM2", "QM3")).shardFor(7)));
+	}
+
+	@Test
+	public void shardsInheritTopLevelSettings() {
+		IBMMQConfigurationProperties configurationProperties = properties("QM1", "QM2");
+		configurationProperties.getShards().get(1).setHost("mq2");
+
+		IBMMQShards shards = new IBMMQShards(configurationProperties);
+
+		assertThat(shards.getProperties(0).getQueueManager(), equalTo("QM1"));
+		assertThat(shards.getProperties(0).getHost(), equalTo("mq"));
+		assertThat(shards.getProperties(1).getQueueManager(), equalTo("QM2"));
+		assertThat(shards.getProperties(1).getHost(), equalTo("mq2"));
+		assertThat(shards.getProperties(1).getChannel(), equalTo("DEV.APP.SVRCONN"));
+		assertThat(shards.getProperties(1).getQueueDepth(), equalTo(20000));
+		assertThat(shards.getProperties(1).getShards().isEmpty(), equalTo(true));
+	}
+
+	private IBMMQConfigurationProperties properties(String... queueManagers) {
+		IBMMQConfigurationProperties configurationProperties = new IBMMQConfigurationProperties();
+		configurationProperties.setQueueManager("QM0");
+		configurationProperties.setHost("mq");
+		configurationProperties.setChannel("DEV.APP.SVRCONN");
+		configurationProperties.setQueueDepth(20000);
+		for (String queueManager : queueManagers) {
+			IBMMQShardProperties shard = new IBMMQShardProperties();
+			shard.setQueueManager(queueManager);
+			configurationProperties.getShards().add(shard);
+		}
+		return configurationProperties;
+	}
+}
@@ -44,13 +44,12 @@ public class IBMMQTestUtils {
 	}
 
 	public static ConnectionFactory createConnectionFactory() throws Exception {
-		return new IBMMQJmsConfiguration(getIBMMQProperties())
-				.connectionFactory(getIBMMQProperties());
+		return IBMMQJmsConfiguration.createConnectionFactory(getIBMMQProperties());
 	}
 
 	public static void deprovisionDLQ(String deadLetterQueueName) throws Exception {
-		MQQueueManager queueManager = new MQQueueManager(
-				getIBMMQProperties().getQueueManager());
+		MQQueueManager queueManager = new IBMMQQueueManagerFactory(getIBMMQProperties())
+				.createQueueManager();
 		PCFMessageAgent pcfMessageAgent = new PCFMessageAgent(queueManager);
 
 		try {
@@ -0,0 +1,37 @@
+package org.springframework.cloud.stream.binder.jms.ibmmq;
+
+import org.junit.Test;
+
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties;
+import org.springframework.cloud.stream.binder.jms.ibmmq.config.IBMMQDestinationProperties.ConsumerExecution;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+
+public class IBMMQThreadsTests {
+
+	@Test
+	public void platformThreadsAreNamedDaemonThreads() {
+		Thread thread = IBMMQThreads.threadFactory("ibmmq-test-", new IBMMQDestinationProperties())
+				.newThread(() -> {
+				});
+
+		assertThat(thread.getName(), equalTo("ibmmq-test-1"));
+		assertThat(thread.isDaemon(), equalTo(true));
+		assertThat(IBMMQThreads.isVirtual(new IBMMQDestinationProperties()), equalTo(false));
+	}
+
+	@Test
+	public void virtualThreadsFallBackToPlatformThreadsWhenNotAvailable() {
+		IBMMQDestinationProperties destinationProperties = new IBMMQDestinationProperties();
+		destinationProperties.setConsumerExecution(ConsumerExecution.VIRTUAL_THREADS);
+
+		Thread thread = IBMMQThreads.threadFactory("ibmmq-test-", destinationProperties).newThread(() -> {
+		});
+
+		assertThat(thread.getName(), startsWith("ibmmq-test-"));
+		assertThat(thread.isDaemon(), equalTo(true));
+		assertThat(IBMMQThreads.isVirtual(destinationProperties), equalTo(IBMMQThreads.isVirtualThreadsAvailable()));
+	}
+}